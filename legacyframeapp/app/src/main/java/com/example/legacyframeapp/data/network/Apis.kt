@@ -29,6 +29,10 @@ interface ProductApiService {
     @GET("/api/catalog/productos")
     suspend fun getProducts(): Response<List<ProductRemote>>
 
+    // Several products in one call (ids separated by commas, max 200)
+    @GET("/api/catalog/productos/lote")
+    suspend fun getProductsByIds(@Query("ids") ids: String): Response<ProductBatchRemote>
+
     @POST("/api/catalog/productos")
     suspend fun createProduct(@Body request: CreateProductRequest): Response<ProductRemote>
 
@@ -65,6 +65,12 @@ data class ProductRemote(
     val categoria: CategoriaRemote?
 )
 
+// Response of /api/catalog/productos/lote: products in request order plus ids that don't exist
+data class ProductBatchRemote(
+    val productos: List<ProductRemote>,
+    val faltantes: List<Long>
+)
+
 data class CategoriaRemote(
     val id: Long,
     val nombre: String,
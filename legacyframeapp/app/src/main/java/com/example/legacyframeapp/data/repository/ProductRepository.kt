@@ -12,6 +12,8 @@ class ProductRepositoryImpl(private val apiService: ProductApiService) : Product
     companion object {
         // Your server (emulator or Dev Tunnels).
         private const val BASE_IMAGE_URL = "http://10.0.2.2:8083"
+        // Same cap as the server for /productos/lote
+        private const val BATCH_LIMIT = 200
     }
 
     override suspend fun getProducts(): List<Product> {
@@ -21,35 +23,7 @@ class ProductRepositoryImpl(private val apiService: ProductApiService) : Product
             if (response.isSuccessful) {
                 val remotes: List<ProductRemote> = response.body() ?: emptyList()
 
-                remotes.map { remote ->
-                    val pathDesdeBd = remote.imagenUrl ?: ""
-
-                    // --- URL NORMALIZATION ---
-                    // If it starts with 'content' or 'file', it's a local photo -> keep as is.
-                    // If it starts with 'http', it's already remote -> keep as is.
-                    // Otherwise, it is a server image (/assets) -> prefix with the server URL.
-
-                    val finalUrl = when {
-                        pathDesdeBd.startsWith("content://") -> pathDesdeBd
-                        pathDesdeBd.startsWith("file://") -> pathDesdeBd
-                        pathDesdeBd.startsWith("http") -> pathDesdeBd
-                        pathDesdeBd.isBlank() -> ""
-                        else -> {
-                            val pathLimpio = if (pathDesdeBd.startsWith("/")) pathDesdeBd else "/$pathDesdeBd"
-                            BASE_IMAGE_URL + pathLimpio
-                        }
-                    }
-
-                    Product(
-                        id = remote.id.toString(),
-                        name = remote.nombre,
-                        description = remote.descripcion ?: "",
-                        price = remote.precio.toInt(),
-                        imageUrl = finalUrl,
-                        category = remote.categoria?.nombre ?: "Sin categoría",
-                        stock = remote.stock
-                    )
-                }
+                remotes.map { it.toDomain() }
             } else {
                 Log.e("ProductRepo", "Error API: ${response.code()}")
                 emptyList()
@@ -97,7 +71,58 @@ class ProductRepositoryImpl(private val apiService: ProductApiService) : Product
         }
     }
 
+    // Only the requested product, not the whole catalog
     suspend fun getProductById(id: String): Product? {
-        return getProducts().find { it.id == id }
+        return getProductsByIds(listOf(id)).firstOrNull()
+    }
+
+    // One round-trip for a list of ids (e.g. the cart); keeps the requested order
+    suspend fun getProductsByIds(ids: List<String>): List<Product> {
+        val validIds = ids.mapNotNull { it.toLongOrNull() }.distinct()
+        if (validIds.isEmpty()) return emptyList()
+        return try {
+            validIds.chunked(BATCH_LIMIT).flatMap { chunk ->
+                val response = apiService.getProductsByIds(chunk.joinToString(","))
+                if (response.isSuccessful) {
+                    response.body()?.productos?.map { it.toDomain() } ?: emptyList()
+                } else {
+                    Log.e("ProductRepo", "Error API lote: ${response.code()}")
+                    emptyList()
+                }
+            }
+        } catch (e: Exception) {
+            Log.e("ProductRepo", "Error red: ${e.message}")
+            emptyList()
+        }
+    }
+
+    private fun ProductRemote.toDomain(): Product {
+        val pathDesdeBd = imagenUrl ?: ""
+
+        // --- URL NORMALIZATION ---
+        // If it starts with 'content' or 'file', it's a local photo -> keep as is.
+        // If it starts with 'http', it's already remote -> keep as is.
+        // Otherwise, it is a server image (/assets) -> prefix with the server URL.
+
+        val finalUrl = when {
+            pathDesdeBd.startsWith("content://") -> pathDesdeBd
+            pathDesdeBd.startsWith("file://") -> pathDesdeBd
+            pathDesdeBd.startsWith("http") -> pathDesdeBd
+            pathDesdeBd.isBlank() -> ""
+            else -> {
+                val pathLimpio = if (pathDesdeBd.startsWith("/")) pathDesdeBd else "/$pathDesdeBd"
+                BASE_IMAGE_URL + pathLimpio
+            }
+        }
+
+        return Product(
+            id = id.toString(),
+            name = nombre,
+            description = descripcion ?: "",
+            price = precio.toInt(),
+            imageUrl = finalUrl,
+            category = categoria?.nombre ?: "Sin categoría",
+            stock = stock
+        )
     }
 }
\ No newline at end of file
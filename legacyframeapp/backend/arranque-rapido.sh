@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+# Arranque rápido de un microservicio (para instancias que agrega el autoscaler).
+#
+#   ./arranque-rapido.sh <productos|pedidos|auth_movil> preparar   # al construir la imagen
+#   ./arranque-rapido.sh <productos|pedidos|auth_movil> [args...]   # al iniciar la instancia
+#
+# preparar:
+#   1. Compila con el perfil Maven arranque-rapido (procesamiento AOT de Spring con el perfil "rapido").
+#   2. Extrae el jar (lib/ + jar de la aplicación): CDS necesita un classpath de jars sueltos.
+#   3. Hace una corrida de entrenamiento que se detiene apenas refresca el contexto
+#      (spring.context.exit=onRefresh) y guarda las clases cargadas en app.jsa (class data sharing).
+# iniciar: arranca con AOT + app.jsa + perfil rapido (beans perezosos, sin datos iniciales ni DDL).
+# El informe de tiempos (listo para solicitudes, primera solicitud y beans más lentos) sale en el log.
+#
+# Ojo: con AOT las condiciones de configuración (@ConditionalOnProperty, perfiles) se evalúan al
+# compilar. Cambiar, por ejemplo, spring.datasource.replica.jdbc-url (con o sin réplica) exige volver
+# a preparar; URLs, usuarios y demás valores sí se pueden pasar al iniciar.
+set -euo pipefail
+
+servicio="${1:?uso: $0 <productos|pedidos|auth_movil> [preparar|args...]}"
+shift
+cd "$(dirname "$0")/$servicio"
+destino=target/rapido
+
+preparar() {
+    sh ./mvnw -q -B -Parranque-rapido -DskipTests package
+    jar=$(ls target/*.jar | grep -v -- '-plain\.jar$' | head -n 1)
+    rm -rf "$destino"
+    java -Djarmode=tools -jar "$jar" extract --destination "$destino"
+    (cd "$destino" && java -XX:ArchiveClassesAtExit=app.jsa -Xlog:cds=off \
+        -Dspring.aot.enabled=true -Dspring.profiles.active=rapido -Dspring.context.exit=onRefresh \
+        -jar "$(basename "$jar")" > /dev/null)
+    echo "Listo: $servicio/$destino (app.jsa)"
+}
+
+if [[ "${1:-}" == "preparar" ]]; then
+    preparar
+    exit 0
+fi
+
+[[ -f "$destino/app.jsa" ]] || preparar
+cd "$destino"
+exec java -XX:SharedArchiveFile=app.jsa -Xlog:cds=off \
+    -Dspring.aot.enabled=true -Dspring.profiles.active=rapido \
+    -jar "$(ls *.jar | head -n 1)" "$@"
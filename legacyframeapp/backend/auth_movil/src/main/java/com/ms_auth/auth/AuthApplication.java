@@ -1,11 +1,14 @@
 package com.ms_auth.auth;
 
+import com.ms_auth.auth.config.ReporteArranque;
 import com.ms_auth.auth.model.Usuario;
 import com.ms_auth.auth.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -15,10 +18,15 @@ import java.util.Optional;
 public class AuthApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(AuthApplication.class, args);
+        SpringApplication app = new SpringApplication(AuthApplication.class);
+        // Registra cuánto tarda cada paso del arranque (ver ReporteArranque)
+        app.setApplicationStartup(new BufferingApplicationStartup(ReporteArranque.CAPACIDAD));
+        app.run(args);
     }
 
+    // Instancias que se suman a una base que ya tiene el admin (perfil rapido) lo saltan: auth.admin-inicial=false
     @Bean
+    @ConditionalOnProperty(name = "auth.admin-inicial", havingValue = "true", matchIfMissing = true)
     CommandLineRunner init(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder) {
         return args -> {
             Optional<Usuario> admin = usuarioRepository.findByEmail("admin@legacyframes.cl");
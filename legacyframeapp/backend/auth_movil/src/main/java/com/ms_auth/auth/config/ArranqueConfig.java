@@ -0,0 +1,32 @@
+package com.ms_auth.auth.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Con spring.main.lazy-initialization=true (perfil rapido) cada bean se crea recién cuando se usa.
+// Los que tienen tareas @Scheduled quedan fuera: si nadie los pide, sus tareas nunca se programarían.
+// Copia idéntica en productos, pedidos y auth_movil (salvo el package): un cambio va en las tres.
+// La prueba está en productos (ArranqueConfigTest).
+@Configuration
+public class ArranqueConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter tareasProgramadasSinLazy() {
+        return (nombre, definicion, tipo) -> tieneTareas(tipo);
+    }
+
+    static boolean tieneTareas(Class<?> tipo) {
+        if (tipo == null) return false;
+        AtomicBoolean encontrada = new AtomicBoolean();
+        ReflectionUtils.doWithMethods(tipo,
+                m -> encontrada.set(true),
+                m -> !encontrada.get() && AnnotatedElementUtils.hasAnnotation(m, Scheduled.class));
+        return encontrada.get();
+    }
+}
@@ -1,23 +1,39 @@
 package com.ms_pedidos.pedidos;
 
+import com.ms_pedidos.pedidos.config.ReporteArranque;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 @SpringBootApplication
+@EnableScheduling
 public class PedidosApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(PedidosApplication.class, args);
+		SpringApplication app = new SpringApplication(PedidosApplication.class);
+		// Registra cuánto tarda cada paso del arranque (ver ReporteArranque)
+		app.setApplicationStartup(new BufferingApplicationStartup(ReporteArranque.CAPACIDAD));
+		app.run(args);
 	}
 
-	// 1. Herramienta para comunicación entre servicios
+	// 1. Herramienta para comunicación entre servicios (con límite: un servicio lento no debe colgar al que lo llama)
 	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
+	public RestTemplate restTemplate(RestTemplateBuilder builder,
+									 @Value("${pedidos.http.connect-timeout-ms:2000}") long connectTimeoutMs,
+									 @Value("${pedidos.http.read-timeout-ms:5000}") long readTimeoutMs) {
+		return builder
+				.connectTimeout(Duration.ofMillis(connectTimeoutMs))
+				.readTimeout(Duration.ofMillis(readTimeoutMs))
+				.build();
 	}
 
 	// 2. CONFIGURACIÓN CORS GLOBAL (LA SOLUCIÓN DEFINITIVA)
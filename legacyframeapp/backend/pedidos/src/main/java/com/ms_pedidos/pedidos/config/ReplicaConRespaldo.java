@@ -0,0 +1,44 @@
+package com.ms_pedidos.pedidos.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Réplica de lectura que, si no entrega conexión, cae a la primaria por un rato en lugar de fallar:
+// una lectura un poco más cargada en la primaria es mejor que un error. Pasado el intervalo se reintenta.
+public class ReplicaConRespaldo extends DelegatingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaConRespaldo.class);
+
+    private final DataSource primaria;
+    private final long reintentoMs;
+    private volatile long caidaHasta; // mientras now < caidaHasta se lee de la primaria
+
+    public ReplicaConRespaldo(DataSource replica, DataSource primaria, long reintentoMs) {
+        super(replica);
+        this.primaria = primaria;
+        this.reintentoMs = reintentoMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (System.currentTimeMillis() < caidaHasta) {
+            return primaria.getConnection();
+        }
+        try {
+            return super.getConnection();
+        } catch (SQLException e) {
+            caidaHasta = System.currentTimeMillis() + reintentoMs;
+            log.warn("Réplica de lectura no disponible, se lee de la primaria durante {} ms: {}", reintentoMs, e.getMessage());
+            return primaria.getConnection();
+        }
+    }
+
+    public boolean isReplicaDisponible() {
+        return System.currentTimeMillis() >= caidaHasta;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ms_pedidos.pedidos.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Enrutamiento lectura/escritura: las transacciones {@code @Transactional(readOnly = true)} (y los
+ * métodos de lectura de Spring Data llamados fuera de una transacción) van a la réplica; el resto,
+ * a la primaria. Solo se activa si está configurada {@code spring.datasource.replica.jdbc-url}.
+ *
+ * El {@link LazyConnectionDataSourceProxy} no pide la conexión física hasta la primera sentencia,
+ * cuando ya se sabe si la transacción es de solo lectura. El historial y el listado de pedidos
+ * pueden venir levemente atrasados respecto de un pedido recién creado.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.datasource.replica", name = "jdbc-url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primariaDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primariaDataSource") DataSource primaria,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 @Value("${pedidos.datasource.replica.reintento-ms:30000}") long reintentoMs) {
+        return enrutar(primaria, replica, reintentoMs);
+    }
+
+    public static DataSource enrutar(DataSource primaria, DataSource replica, long reintentoMs) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaria);
+        proxy.setReadOnlyDataSource(new ReplicaConRespaldo(replica, primaria, reintentoMs));
+        return proxy;
+    }
+}
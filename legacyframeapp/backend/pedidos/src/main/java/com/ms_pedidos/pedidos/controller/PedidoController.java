@@ -1,6 +1,11 @@
 package com.ms_pedidos.pedidos.controller;
 
+import com.ms_pedidos.pedidos.dto.CategoriaVendidaDto;
+import com.ms_pedidos.pedidos.dto.CompradoJuntoDto;
+import com.ms_pedidos.pedidos.dto.MasVendidoDto;
 import com.ms_pedidos.pedidos.model.Pedido;
+import com.ms_pedidos.pedidos.recomendacion.IndiceCoocurrencia;
+import com.ms_pedidos.pedidos.recomendacion.MasVendidos;
 import com.ms_pedidos.pedidos.repository.PedidoRepository;
 import com.ms_pedidos.pedidos.service.PedidoService;
 import com.ms_pedidos.pedidos.dto.PedidoDto;
@@ -25,6 +30,12 @@ public class PedidoController {
     @Autowired
     private PedidoRepository pedidoRepository;
 
+    @Autowired
+    private IndiceCoocurrencia indiceCoocurrencia;
+
+    @Autowired
+    private MasVendidos masVendidos;
+
     // Crear pedido
     @PostMapping
         @Operation(
@@ -71,4 +82,50 @@ public class PedidoController {
         List<Pedido> historial = pedidoRepository.findByUsuarioEmail(email);
         return ResponseEntity.ok(historial);
     }
-}
\ No newline at end of file
+
+    // Comprados juntos (sugerencias para la ficha de producto)
+    @GetMapping("/products/{productoId}/bought-together")
+    @Operation(
+            summary = "Productos comprados junto a otro",
+            description = "Devuelve los productos que más veces aparecieron en el mismo pedido que el indicado, " +
+                    "de mayor a menor. Se lee de un índice en memoria que se actualiza con cada pedido."
+    )
+    public ResponseEntity<List<CompradoJuntoDto>> compradosJuntos(
+            @Parameter(description = "ID del producto")
+            @PathVariable Long productoId,
+            @Parameter(description = "Cantidad máxima de sugerencias (tope pedidos.comprados-juntos.top-k)")
+            @RequestParam(defaultValue = "10") int limite
+    ) {
+        int n = Math.max(1, Math.min(limite, indiceCoocurrencia.getTopK()));
+        return ResponseEntity.ok(indiceCoocurrencia.compradosJuntos(productoId, n));
+    }
+
+    // Más vendidos (ranking en memoria, se actualiza con cada pedido)
+    @GetMapping("/bestsellers")
+    @Operation(
+            summary = "Productos más vendidos",
+            description = "Devuelve los productos más vendidos, de todo el catálogo o de una categoría. Las unidades " +
+                    "tienen decaimiento (pedidos.mas-vendidos.vida-media-horas): las ventas recientes pesan más."
+    )
+    public ResponseEntity<List<MasVendidoDto>> masVendidos(
+            @Parameter(description = "ID de la categoría (vacío para el ranking global)")
+            @RequestParam(required = false) Long categoriaId,
+            @Parameter(description = "Cantidad máxima de productos (tope pedidos.mas-vendidos.publicados)")
+            @RequestParam(defaultValue = "10") int limite
+    ) {
+        int n = Math.max(1, Math.min(limite, masVendidos.getPublicados()));
+        return ResponseEntity.ok(masVendidos.masVendidos(categoriaId, n));
+    }
+
+    @GetMapping("/bestsellers/categories")
+    @Operation(
+            summary = "Categorías más vendidas",
+            description = "Devuelve las categorías ordenadas por unidades vendidas (con el mismo decaimiento que el ranking de productos)."
+    )
+    public ResponseEntity<List<CategoriaVendidaDto>> categoriasMasVendidas(
+            @Parameter(description = "Cantidad máxima de categorías")
+            @RequestParam(defaultValue = "10") int limite
+    ) {
+        return ResponseEntity.ok(masVendidos.categoriasMasVendidas(Math.max(1, limite)));
+    }
+}
@@ -0,0 +1,20 @@
+package com.ms_pedidos.pedidos.dto;
+
+public class CategoriaVendidaDto {
+    private Long categoriaId;
+    private Double unidades; // unidades vendidas con decaimiento, sumando todos sus productos
+
+    public CategoriaVendidaDto() { }
+
+    public CategoriaVendidaDto(Long categoriaId, Double unidades) {
+        this.categoriaId = categoriaId;
+        this.unidades = unidades;
+    }
+
+    // Getters y Setters
+    public Long getCategoriaId() { return categoriaId; }
+    public void setCategoriaId(Long categoriaId) { this.categoriaId = categoriaId; }
+
+    public Double getUnidades() { return unidades; }
+    public void setUnidades(Double unidades) { this.unidades = unidades; }
+}
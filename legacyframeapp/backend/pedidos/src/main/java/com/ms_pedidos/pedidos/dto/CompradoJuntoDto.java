@@ -0,0 +1,20 @@
+package com.ms_pedidos.pedidos.dto;
+
+public class CompradoJuntoDto {
+    private Long productoId;
+    private Integer veces; // pedidos en los que aparecieron ambos productos
+
+    public CompradoJuntoDto() { }
+
+    public CompradoJuntoDto(Long productoId, Integer veces) {
+        this.productoId = productoId;
+        this.veces = veces;
+    }
+
+    // Getters y Setters
+    public Long getProductoId() { return productoId; }
+    public void setProductoId(Long productoId) { this.productoId = productoId; }
+
+    public Integer getVeces() { return veces; }
+    public void setVeces(Integer veces) { this.veces = veces; }
+}
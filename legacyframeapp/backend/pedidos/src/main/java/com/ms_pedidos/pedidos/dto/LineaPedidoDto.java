@@ -0,0 +1,27 @@
+package com.ms_pedidos.pedidos.dto;
+
+import java.time.LocalDateTime;
+
+// Una línea de detalle reducida a lo que necesitan los índices en memoria (sin cargar la entidad)
+public class LineaPedidoDto {
+    private final Long pedidoId;
+    private final Long productoId;
+    private final Integer cantidad;
+    private final LocalDateTime fechaCreacion; // del pedido
+
+    public LineaPedidoDto(Long pedidoId, Long productoId) {
+        this(pedidoId, productoId, null, null);
+    }
+
+    public LineaPedidoDto(Long pedidoId, Long productoId, Integer cantidad, LocalDateTime fechaCreacion) {
+        this.pedidoId = pedidoId;
+        this.productoId = productoId;
+        this.cantidad = cantidad;
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public Long getPedidoId() { return pedidoId; }
+    public Long getProductoId() { return productoId; }
+    public Integer getCantidad() { return cantidad; }
+    public LocalDateTime getFechaCreacion() { return fechaCreacion; }
+}
@@ -0,0 +1,25 @@
+package com.ms_pedidos.pedidos.dto;
+
+public class MasVendidoDto {
+    private Long productoId;
+    private Long categoriaId; // null si productos no la informó
+    private Double unidades;  // unidades vendidas con decaimiento (las recientes pesan más)
+
+    public MasVendidoDto() { }
+
+    public MasVendidoDto(Long productoId, Long categoriaId, Double unidades) {
+        this.productoId = productoId;
+        this.categoriaId = categoriaId;
+        this.unidades = unidades;
+    }
+
+    // Getters y Setters
+    public Long getProductoId() { return productoId; }
+    public void setProductoId(Long productoId) { this.productoId = productoId; }
+
+    public Long getCategoriaId() { return categoriaId; }
+    public void setCategoriaId(Long categoriaId) { this.categoriaId = categoriaId; }
+
+    public Double getUnidades() { return unidades; }
+    public void setUnidades(Double unidades) { this.unidades = unidades; }
+}
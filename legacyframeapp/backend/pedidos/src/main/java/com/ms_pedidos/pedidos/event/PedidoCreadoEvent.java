@@ -0,0 +1,15 @@
+package com.ms_pedidos.pedidos.event;
+
+import com.ms_pedidos.pedidos.model.Pedido;
+
+// Se publica desde PedidoService cuando un pedido queda guardado (con sus detalles)
+public class PedidoCreadoEvent {
+
+    private final Pedido pedido;
+
+    public PedidoCreadoEvent(Pedido pedido) {
+        this.pedido = pedido;
+    }
+
+    public Pedido getPedido() { return pedido; }
+}
@@ -0,0 +1,68 @@
+package com.ms_pedidos.pedidos.recomendacion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Categoría de cada producto según el microservicio de productos (pedidos solo guarda el productoId).
+ * Se trae el catálogo entero proyectado a {@code categoriaId} ({@code ?fields=}), que es liviano;
+ * si productos no responde (o no contesta dentro de los timeouts del RestTemplate) se sigue con lo
+ * último que se leyó. No se llama nunca con el lock del ranking tomado ni dentro de una transacción.
+ */
+@Component
+public class CategoriasProductos {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoriasProductos.class);
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Value("${pedidos.productos.url:http://localhost:8083}")
+    private String productosUrl;
+
+    private volatile Map<Long, Long> categoriaPorProducto = Map.of();
+
+    // null si el producto no está (todavía) en el mapa
+    public Long categoria(long productoId) {
+        return categoriaPorProducto.get(productoId);
+    }
+
+    public synchronized boolean refrescar() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        try {
+            List<Map<String, Object>> filas = restTemplate.exchange(
+                    productosUrl + "/api/catalog/productos?fields=categoriaId",
+                    HttpMethod.GET,
+                    new HttpEntity<>(headers),
+                    new ParameterizedTypeReference<List<Map<String, Object>>>() { }
+            ).getBody();
+            if (filas == null) return false;
+            Map<Long, Long> mapa = new HashMap<>(filas.size() * 2);
+            for (Map<String, Object> fila : filas) {
+                if (fila.get("id") instanceof Number id && fila.get("categoriaId") instanceof Number categoria) {
+                    mapa.put(id.longValue(), categoria.longValue());
+                }
+            }
+            categoriaPorProducto = mapa;
+            return true;
+        } catch (RestClientException e) {
+            log.warn("No se pudieron leer las categorías desde productos ({}): {}", productosUrl, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.ms_pedidos.pedidos.recomendacion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Heavy hitters con memoria acotada (algoritmo Space-Saving, Metwally et al.): guarda como mucho
+ * {@code capacidad} ids con su cuenta. Cuando llega uno nuevo y está lleno, reemplaza al de menor
+ * cuenta y hereda esa cuenta como error. Todo id cuyo total real supere total/capacidad está
+ * presente, y la cuenta estimada nunca subestima (sobreestima a lo sumo en {@code error}).
+ *
+ * El mínimo se ubica con un heap indexado (O(log capacidad) por suma) y el slot de cada id con un
+ * {@link MapaLongInt}. Los ids deben ser mayores que 0. No es thread-safe.
+ */
+final class ContadorFrecuentes {
+
+    record Estimacion(long id, double cuenta, double error) { }
+
+    private final long[] ids;
+    private final double[] cuentas;
+    private final double[] errores;
+    private final int[] heap;      // slots ordenados como min-heap por cuenta
+    private final int[] posicion;  // slot -> posición en el heap
+    private final MapaLongInt slots; // id -> slot + 1
+    private int tamano;
+
+    ContadorFrecuentes(int capacidad) {
+        ids = new long[capacidad];
+        cuentas = new double[capacidad];
+        errores = new double[capacidad];
+        heap = new int[capacidad];
+        posicion = new int[capacidad];
+        slots = new MapaLongInt(capacidad * 2);
+    }
+
+    void sumar(long id, double peso) {
+        int slot = slots.get(id) - 1;
+        if (slot >= 0) {
+            cuentas[slot] += peso;
+            bajar(posicion[slot]);
+            return;
+        }
+        if (tamano < ids.length) {
+            slot = tamano++;
+            ids[slot] = id;
+            cuentas[slot] = peso;
+            errores[slot] = 0;
+            heap[slot] = slot;
+            posicion[slot] = slot;
+            subir(slot);
+        } else {
+            slot = heap[0];
+            slots.quitar(ids[slot]);
+            ids[slot] = id;
+            errores[slot] = cuentas[slot];
+            cuentas[slot] += peso;
+            bajar(0);
+        }
+        slots.sumar(id, slot + 1);
+    }
+
+    // Multiplica todas las cuentas (decaimiento); el orden del heap no cambia
+    void escalar(double factor) {
+        for (int i = 0; i < tamano; i++) {
+            cuentas[i] *= factor;
+            errores[i] *= factor;
+        }
+    }
+
+    // Los n de mayor cuenta, de mayor a menor
+    List<Estimacion> top(int n) {
+        List<Estimacion> todas = new ArrayList<>(tamano);
+        for (int i = 0; i < tamano; i++) {
+            todas.add(new Estimacion(ids[i], cuentas[i], errores[i]));
+        }
+        todas.sort(Comparator.comparingDouble(Estimacion::cuenta).reversed().thenComparingLong(Estimacion::id));
+        return todas.size() > n ? List.copyOf(todas.subList(0, n)) : todas;
+    }
+
+    int size() {
+        return tamano;
+    }
+
+    private void subir(int i) {
+        while (i > 0) {
+            int padre = (i - 1) >>> 1;
+            if (cuentas[heap[padre]] <= cuentas[heap[i]]) return;
+            intercambiar(i, padre);
+            i = padre;
+        }
+    }
+
+    private void bajar(int i) {
+        while (true) {
+            int menor = i;
+            int izq = 2 * i + 1;
+            int der = izq + 1;
+            if (izq < tamano && cuentas[heap[izq]] < cuentas[heap[menor]]) menor = izq;
+            if (der < tamano && cuentas[heap[der]] < cuentas[heap[menor]]) menor = der;
+            if (menor == i) return;
+            intercambiar(i, menor);
+            i = menor;
+        }
+    }
+
+    private void intercambiar(int a, int b) {
+        int s = heap[a];
+        heap[a] = heap[b];
+        heap[b] = s;
+        posicion[heap[a]] = a;
+        posicion[heap[b]] = b;
+    }
+}
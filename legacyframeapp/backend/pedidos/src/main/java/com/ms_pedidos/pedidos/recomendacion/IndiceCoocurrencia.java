@@ -0,0 +1,218 @@
+package com.ms_pedidos.pedidos.recomendacion;
+
+import com.ms_pedidos.pedidos.dto.CompradoJuntoDto;
+import com.ms_pedidos.pedidos.dto.LineaPedidoDto;
+import com.ms_pedidos.pedidos.event.PedidoCreadoEvent;
+import com.ms_pedidos.pedidos.model.DetallePedido;
+import com.ms_pedidos.pedidos.model.Pedido;
+import com.ms_pedidos.pedidos.repository.DetallePedidoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * "Comprados juntos": cuántos pedidos contienen cada par de productos.
+ *
+ * Los conteos por par viven en un {@link MapaLongInt} (clave = los dos ids empaquetados en un long)
+ * y cada producto guarda además su top-K ya ordenado, que se corrige al sumar cada par. Como los
+ * conteos solo crecen, el top-K incremental es exacto y leerlo es un get del mapa, sin ordenar nada.
+ *
+ * Se alimenta de cada pedido nuevo ({@link PedidoCreadoEvent}) y de una pasada por el historial de
+ * {@code detalle_pedidos}: completa al arrancar y luego periódica desde el último pedido visto
+ * (menos un margen, por los commits que llegan fuera de orden y por los pedidos tomados en otras
+ * instancias). Un bitset de pedidos ya contados hace que cada pedido sume una sola vez.
+ */
+@Component
+public class IndiceCoocurrencia {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceCoocurrencia.class);
+
+    // Un pedido con más productos distintos solo aporta los primeros (los pares crecen al cuadrado)
+    static final int MAX_PRODUCTOS_POR_PEDIDO = 100;
+    private static final long MAX_ID_PRODUCTO = 0xFFFF_FFFFL;
+
+    @Autowired
+    private DetallePedidoRepository detallePedidoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${pedidos.comprados-juntos.top-k:20}")
+    private int topK;
+
+    @Value("${pedidos.comprados-juntos.margen:1000}")
+    private long margen;
+
+    // Protegidos por this (un solo escritor a la vez)
+    private final MapaLongInt pares = new MapaLongInt(1 << 16);
+    private final PedidosContados contados = new PedidosContados();
+    private boolean cargado;
+
+    // Lectura sin locks: cada valor es inmutable y se reemplaza entero
+    private final Map<Long, Sugerencias> sugerencias = new ConcurrentHashMap<>();
+
+    // Productos ordenados por veces (desc) y, a igualdad, por id
+    record Sugerencias(long[] productos, int[] veces) { }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPedidoCreado(PedidoCreadoEvent evento) {
+        Pedido pedido = evento.getPedido();
+        if (pedido.getId() == null || pedido.getDetalles() == null) return;
+        long[] productos = new long[pedido.getDetalles().size()];
+        int n = 0;
+        for (DetallePedido d : pedido.getDetalles()) {
+            if (d.getProductoId() != null) productos[n++] = d.getProductoId();
+        }
+        registrar(pedido.getId(), Arrays.copyOf(productos, n));
+    }
+
+    @Scheduled(fixedDelayString = "${pedidos.comprados-juntos.sincronizacion-ms:60000}")
+    public void sincronizar() {
+        long desde;
+        boolean completa;
+        synchronized (this) {
+            completa = !cargado;
+            desde = completa ? 0 : Math.max(0, contados.ultimo() - margen);
+        }
+        long inicio = System.currentTimeMillis();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        int nuevos = tx.execute(status -> {
+            try (Stream<LineaPedidoDto> lineas = detallePedidoRepository.streamLineasDespuesDe(desde)) {
+                return recorrer(lineas);
+            }
+        });
+        synchronized (this) {
+            cargado = true;
+        }
+        if (completa) {
+            log.info("Índice comprados juntos cargado: {} pedidos, {} pares en {} ms",
+                    nuevos, paresContados(), System.currentTimeMillis() - inicio);
+        } else if (nuevos > 0) {
+            log.debug("Índice comprados juntos: {} pedidos nuevos desde el historial", nuevos);
+        }
+    }
+
+    // Agrupa las líneas consecutivas de cada pedido; devuelve cuántos pedidos sumaron
+    private int recorrer(Stream<LineaPedidoDto> lineas) {
+        int nuevos = 0;
+        long pedidoActual = -1;
+        long[] productos = new long[16];
+        int n = 0;
+        for (LineaPedidoDto linea : (Iterable<LineaPedidoDto>) lineas::iterator) {
+            if (linea.getPedidoId() != pedidoActual) {
+                if (pedidoActual >= 0 && registrar(pedidoActual, Arrays.copyOf(productos, n))) nuevos++;
+                pedidoActual = linea.getPedidoId();
+                n = 0;
+            }
+            if (linea.getProductoId() == null) continue;
+            if (n == productos.length) productos = Arrays.copyOf(productos, n * 2);
+            productos[n++] = linea.getProductoId();
+        }
+        if (pedidoActual >= 0 && registrar(pedidoActual, Arrays.copyOf(productos, n))) nuevos++;
+        return nuevos;
+    }
+
+    // false si el pedido ya estaba contado
+    synchronized boolean registrar(long pedidoId, long[] productos) {
+        if (!contados.marcar(pedidoId)) return false;
+
+        long[] distintos = Arrays.stream(productos)
+                .filter(id -> id > 0 && id <= MAX_ID_PRODUCTO)
+                .distinct()
+                .limit(MAX_PRODUCTOS_POR_PEDIDO)
+                .sorted()
+                .toArray();
+        for (int i = 0; i < distintos.length; i++) {
+            for (int j = i + 1; j < distintos.length; j++) {
+                long a = distintos[i];
+                long b = distintos[j];
+                int veces = pares.sumar(a << 32 | b, 1);
+                actualizar(a, b, veces);
+                actualizar(b, a, veces);
+            }
+        }
+        return true;
+    }
+
+    public List<CompradoJuntoDto> compradosJuntos(Long productoId, int limite) {
+        Sugerencias s = sugerencias.get(productoId);
+        if (s == null) return List.of();
+        int n = Math.min(limite, s.productos().length);
+        List<CompradoJuntoDto> resultado = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            resultado.add(new CompradoJuntoDto(s.productos()[i], s.veces()[i]));
+        }
+        return resultado;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    synchronized int paresContados() {
+        return pares.size();
+    }
+
+    private void actualizar(long producto, long otro, int veces) {
+        Sugerencias previas = sugerencias.get(producto);
+        Sugerencias nuevas = conPar(previas, otro, veces, topK);
+        if (nuevas != previas) sugerencias.put(producto, nuevas);
+    }
+
+    // Copia del top-K con 'otro' en 'veces'; la misma instancia si no entra
+    static Sugerencias conPar(Sugerencias s, long otro, int veces, int k) {
+        long[] productos = s != null ? s.productos() : new long[0];
+        int[] conteos = s != null ? s.veces() : new int[0];
+        int pos = -1;
+        for (int i = 0; i < productos.length; i++) {
+            if (productos[i] == otro) {
+                pos = i;
+                break;
+            }
+        }
+        if (pos >= 0) {
+            productos = productos.clone();
+            conteos = conteos.clone();
+        } else if (productos.length < k) {
+            pos = productos.length;
+            productos = Arrays.copyOf(productos, pos + 1);
+            conteos = Arrays.copyOf(conteos, pos + 1);
+        } else {
+            pos = k - 1;
+            if (!antes(otro, veces, productos[pos], conteos[pos])) return s;
+            productos = productos.clone();
+            conteos = conteos.clone();
+        }
+        productos[pos] = otro;
+        conteos[pos] = veces;
+        // Los conteos solo crecen: basta con subirlo hasta su lugar
+        while (pos > 0 && antes(productos[pos], conteos[pos], productos[pos - 1], conteos[pos - 1])) {
+            long p = productos[pos];
+            productos[pos] = productos[pos - 1];
+            productos[pos - 1] = p;
+            int c = conteos[pos];
+            conteos[pos] = conteos[pos - 1];
+            conteos[pos - 1] = c;
+            pos--;
+        }
+        return new Sugerencias(productos, conteos);
+    }
+
+    private static boolean antes(long producto, int veces, long otroProducto, int otrasVeces) {
+        return veces > otrasVeces || (veces == otrasVeces && producto < otroProducto);
+    }
+}
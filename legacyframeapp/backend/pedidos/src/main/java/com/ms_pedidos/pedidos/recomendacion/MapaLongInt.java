@@ -0,0 +1,108 @@
+package com.ms_pedidos.pedidos.recomendacion;
+
+/**
+ * Mapa long -> int de direccionamiento abierto (sondeo lineal) sobre dos arreglos primitivos:
+ * sin objetos Long/Integer por entrada, unos 20 bytes por par con el factor de carga usado.
+ * La clave 0 está reservada como "vacío". No es thread-safe.
+ */
+final class MapaLongInt {
+
+    private static final float CARGA_MAX = 0.6f;
+
+    private long[] claves;
+    private int[] valores;
+    private int tamano;
+    private int umbral;
+
+    MapaLongInt(int capacidadInicial) {
+        int capacidad = Integer.highestOneBit(Math.max(16, capacidadInicial) - 1) << 1;
+        claves = new long[capacidad];
+        valores = new int[capacidad];
+        umbral = (int) (capacidad * CARGA_MAX);
+    }
+
+    int get(long clave) {
+        int mascara = claves.length - 1;
+        for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+            long k = claves[i];
+            if (k == clave) return valores[i];
+            if (k == 0) return 0;
+        }
+    }
+
+    // Suma delta y devuelve el valor resultante
+    int sumar(long clave, int delta) {
+        if (clave == 0) throw new IllegalArgumentException("La clave 0 está reservada");
+        int mascara = claves.length - 1;
+        int i = indice(clave, mascara);
+        while (true) {
+            long k = claves[i];
+            if (k == clave) return valores[i] += delta;
+            if (k == 0) break;
+            i = (i + 1) & mascara;
+        }
+        claves[i] = clave;
+        valores[i] = delta;
+        if (++tamano > umbral) crecer();
+        return delta;
+    }
+
+    // Borrado con corrimiento hacia atrás: sin marcas de "borrado" que alarguen los sondeos
+    void quitar(long clave) {
+        int mascara = claves.length - 1;
+        int i = indice(clave, mascara);
+        while (claves[i] != clave) {
+            if (claves[i] == 0) return;
+            i = (i + 1) & mascara;
+        }
+        int j = i;
+        while (true) {
+            j = (j + 1) & mascara;
+            long k = claves[j];
+            if (k == 0) break;
+            int ideal = indice(k, mascara);
+            // Se mueve al hueco solo si su posición ideal no queda entre el hueco y donde está
+            boolean quedaEntre = i <= j ? (i < ideal && ideal <= j) : (i < ideal || ideal <= j);
+            if (!quedaEntre) {
+                claves[i] = k;
+                valores[i] = valores[j];
+                i = j;
+            }
+        }
+        claves[i] = 0;
+        valores[i] = 0;
+        tamano--;
+    }
+
+    int size() {
+        return tamano;
+    }
+
+    private void crecer() {
+        long[] clavesViejas = claves;
+        int[] valoresViejos = valores;
+        claves = new long[clavesViejas.length << 1];
+        valores = new int[claves.length];
+        umbral = (int) (claves.length * CARGA_MAX);
+        int mascara = claves.length - 1;
+        for (int j = 0; j < clavesViejas.length; j++) {
+            long k = clavesViejas[j];
+            if (k == 0) continue;
+            int i = indice(k, mascara);
+            while (claves[i] != 0) i = (i + 1) & mascara;
+            claves[i] = k;
+            valores[i] = valoresViejos[j];
+        }
+    }
+
+    // Mezcla de bits (finalizador de MurmurHash3): los ids consecutivos no caen en posiciones contiguas
+    private static int indice(long clave, int mascara) {
+        long h = clave;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mascara;
+    }
+}
@@ -0,0 +1,311 @@
+package com.ms_pedidos.pedidos.recomendacion;
+
+import com.ms_pedidos.pedidos.dto.CategoriaVendidaDto;
+import com.ms_pedidos.pedidos.dto.LineaPedidoDto;
+import com.ms_pedidos.pedidos.dto.MasVendidoDto;
+import com.ms_pedidos.pedidos.event.PedidoCreadoEvent;
+import com.ms_pedidos.pedidos.model.DetallePedido;
+import com.ms_pedidos.pedidos.model.Pedido;
+import com.ms_pedidos.pedidos.repository.DetallePedidoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+/**
+ * Ranking de más vendidos (global y por categoría) casi en tiempo real, sin GROUP BY sobre
+ * {@code detalle_pedidos}.
+ *
+ * Cada unidad vendida pesa e^(λ·(t - marca)), con λ = ln 2 / vida media ("forward decay"): las
+ * ventas viejas no se recorren para envejecerlas, son las nuevas las que pesan más. Dividir por
+ * e^(λ·(ahora - marca)) da las unidades con decaimiento al momento de publicar; cuando los pesos
+ * crecen demasiado se corre la marca y se reescalan las cuentas. Las cuentas por producto viven
+ * en un {@link ContadorFrecuentes} (memoria acotada) global y otro por categoría.
+ *
+ * Los pedidos nuevos solo se encolan; un único hilo programado los aplica cada
+ * {@code pedidos.mas-vendidos.intervalo-ms} y publica rankings inmutables, así que leer es tomar
+ * una referencia. Al arrancar se recorre el historial, y luego periódicamente desde el último
+ * pedido visto (pedidos de otras instancias), igual que en {@link IndiceCoocurrencia}.
+ *
+ * Las categorías se piden a productos por HTTP solo al cargar y al sincronizar, antes de tomar el
+ * lock y fuera de la transacción que recorre el historial: si productos tarda, el ranking se sigue
+ * aplicando y publicando. Lo vendido de un producto de categoría todavía desconocida queda aparte
+ * y pasa a su categoría cuando una sincronización la trae.
+ */
+@Component
+public class MasVendidos {
+
+    private static final Logger log = LoggerFactory.getLogger(MasVendidos.class);
+
+    // Pesos por debajo de esto (unas 20 vidas medias) no aportan y no se cuentan
+    private static final double PESO_MIN = 1e-6;
+    // Exponente a partir del cual se corre la marca para no desbordar los double
+    private static final double EXPONENTE_MAX = 30;
+
+    @Autowired
+    private DetallePedidoRepository detallePedidoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CategoriasProductos categorias;
+
+    @Value("${pedidos.mas-vendidos.capacidad:200}")
+    private int capacidad;
+
+    @Value("${pedidos.mas-vendidos.publicados:50}")
+    private int publicados;
+
+    @Value("${pedidos.mas-vendidos.vida-media-horas:72}")
+    private double vidaMediaHoras;
+
+    @Value("${pedidos.mas-vendidos.margen:1000}")
+    private long margen;
+
+    private record Venta(long pedidoId, long fechaMs, long[] productos, int[] cantidades) { }
+
+    record Ranking(List<MasVendidoDto> global,
+                   Map<Long, List<MasVendidoDto>> porCategoria,
+                   List<CategoriaVendidaDto> categorias) {
+        static final Ranking VACIO = new Ranking(List.of(), Map.of(), List.of());
+    }
+
+    private final Queue<Venta> entrantes = new ConcurrentLinkedQueue<>();
+    private volatile Ranking ranking = Ranking.VACIO;
+
+    // Protegidos por this (solo los toca el hilo que aplica las ventas)
+    private final PedidosContados contados = new PedidosContados();
+    private ContadorFrecuentes global;
+    private final Map<Long, ContadorFrecuentes> porCategoria = new HashMap<>();
+    private final Map<Long, Double> totalPorCategoria = new HashMap<>();
+    private final Map<Long, Long> categoriaContada = new HashMap<>(); // producto -> categoría en la que suma
+    private final Map<Long, Double> sinCategoria = new HashMap<>(); // peso de productos de categoría desconocida
+    private long marca;
+    private boolean cambios;
+    private volatile boolean cargado; // se lee antes de tomar el lock
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPedidoCreado(PedidoCreadoEvent evento) {
+        Pedido pedido = evento.getPedido();
+        if (pedido.getId() == null || pedido.getDetalles() == null) return;
+        List<DetallePedido> detalles = pedido.getDetalles();
+        long[] productos = new long[detalles.size()];
+        int[] cantidades = new int[detalles.size()];
+        int n = 0;
+        for (DetallePedido d : detalles) {
+            if (d.getProductoId() == null || d.getCantidad() == null) continue;
+            productos[n] = d.getProductoId();
+            cantidades[n++] = d.getCantidad();
+        }
+        entrantes.add(new Venta(pedido.getId(), epochMs(pedido.getFechaCreacion()),
+                Arrays.copyOf(productos, n), Arrays.copyOf(cantidades, n)));
+    }
+
+    @Scheduled(fixedDelayString = "${pedidos.mas-vendidos.intervalo-ms:1000}")
+    public void procesar() {
+        if (!cargado) {
+            long inicio = System.currentTimeMillis();
+            categorias.refrescar();
+            synchronized (this) {
+                int pedidos = leerHistorial(0);
+                cargado = true;
+                cambios = true;
+                log.info("Ranking de más vendidos cargado: {} pedidos en {} ms", pedidos, System.currentTimeMillis() - inicio);
+            }
+        }
+        synchronized (this) {
+            Venta venta;
+            while ((venta = entrantes.poll()) != null) {
+                aplicar(venta);
+            }
+            if (cambios) publicar();
+        }
+    }
+
+    // Pedidos tomados por otras instancias (o confirmados fuera de orden); también refresca las
+    // unidades publicadas, que decaen aunque no haya ventas
+    @Scheduled(initialDelayString = "${pedidos.mas-vendidos.sincronizacion-ms:60000}",
+               fixedDelayString = "${pedidos.mas-vendidos.sincronizacion-ms:60000}")
+    public void sincronizar() {
+        if (!cargado) return;
+        boolean refrescadas = categorias.refrescar();
+        synchronized (this) {
+            if (refrescadas) asignarCategorias();
+            leerHistorial(Math.max(0, contados.ultimo() - margen));
+            publicar();
+        }
+    }
+
+    public List<MasVendidoDto> masVendidos(Long categoriaId, int limite) {
+        Ranking r = ranking;
+        List<MasVendidoDto> lista = categoriaId == null ? r.global() : r.porCategoria().getOrDefault(categoriaId, List.of());
+        return lista.size() > limite ? lista.subList(0, limite) : lista;
+    }
+
+    public List<CategoriaVendidaDto> categoriasMasVendidas(int limite) {
+        List<CategoriaVendidaDto> lista = ranking.categorias();
+        return lista.size() > limite ? lista.subList(0, limite) : lista;
+    }
+
+    public int getPublicados() {
+        return publicados;
+    }
+
+    // Devuelve cuántos pedidos sumaron
+    private int leerHistorial(long despuesDe) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        return tx.execute(status -> {
+            try (Stream<LineaPedidoDto> lineas = detallePedidoRepository.streamVentasDespuesDe(despuesDe)) {
+                int nuevos = 0;
+                long pedidoActual = -1;
+                long fecha = 0;
+                long[] productos = new long[16];
+                int[] cantidades = new int[16];
+                int n = 0;
+                for (LineaPedidoDto linea : (Iterable<LineaPedidoDto>) lineas::iterator) {
+                    if (linea.getPedidoId() != pedidoActual) {
+                        if (pedidoActual >= 0 && aplicar(new Venta(pedidoActual, fecha,
+                                Arrays.copyOf(productos, n), Arrays.copyOf(cantidades, n)))) nuevos++;
+                        pedidoActual = linea.getPedidoId();
+                        fecha = epochMs(linea.getFechaCreacion());
+                        n = 0;
+                    }
+                    if (linea.getProductoId() == null || linea.getCantidad() == null) continue;
+                    if (n == productos.length) {
+                        productos = Arrays.copyOf(productos, n * 2);
+                        cantidades = Arrays.copyOf(cantidades, n * 2);
+                    }
+                    productos[n] = linea.getProductoId();
+                    cantidades[n++] = linea.getCantidad();
+                }
+                if (pedidoActual >= 0 && aplicar(new Venta(pedidoActual, fecha,
+                        Arrays.copyOf(productos, n), Arrays.copyOf(cantidades, n)))) nuevos++;
+                return nuevos;
+            }
+        });
+    }
+
+    // false si el pedido ya estaba contado
+    private boolean aplicar(Venta venta) {
+        if (!contados.marcar(venta.pedidoId())) return false;
+        if (global == null) {
+            global = new ContadorFrecuentes(capacidad);
+            marca = System.currentTimeMillis();
+        }
+        double exponente = lambda() * (venta.fechaMs() - marca);
+        if (exponente > EXPONENTE_MAX) {
+            correrMarca(venta.fechaMs());
+            exponente = 0;
+        }
+        double pesoUnidad = Math.exp(exponente);
+        if (pesoUnidad < PESO_MIN) return true;
+
+        for (int i = 0; i < venta.productos().length; i++) {
+            long producto = venta.productos()[i];
+            int cantidad = venta.cantidades()[i];
+            if (producto <= 0 || cantidad <= 0) continue;
+            double peso = cantidad * pesoUnidad;
+            global.sumar(producto, peso);
+            Long categoria = categoriaDe(producto);
+            if (categoria != null) sumarEnCategoria(categoria, producto, peso);
+            else sinCategoria.merge(producto, peso, Double::sum);
+        }
+        cambios = true;
+        return true;
+    }
+
+    // Un producto suma siempre en la misma categoría: si productos lo cambia de categoría, el ranking
+    // de la nueva lo toma recién tras un reinicio (evita que quede repartido en dos). Sin HTTP: solo
+    // lo último que trajo CategoriasProductos
+    private Long categoriaDe(long producto) {
+        Long contada = categoriaContada.get(producto);
+        if (contada != null) return contada;
+        Long categoria = categorias.categoria(producto);
+        if (categoria != null) categoriaContada.put(producto, categoria);
+        return categoria;
+    }
+
+    private void sumarEnCategoria(long categoria, long producto, double peso) {
+        porCategoria.computeIfAbsent(categoria, c -> new ContadorFrecuentes(capacidad)).sumar(producto, peso);
+        totalPorCategoria.merge(categoria, peso, Double::sum);
+    }
+
+    // Pasa a su categoría lo vendido de los productos que ahora la tienen
+    private void asignarCategorias() {
+        Iterator<Map.Entry<Long, Double>> it = sinCategoria.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Double> e = it.next();
+            Long categoria = categoriaDe(e.getKey());
+            if (categoria == null) continue;
+            sumarEnCategoria(categoria, e.getKey(), e.getValue());
+            it.remove();
+            cambios = true;
+        }
+    }
+
+    private void correrMarca(long nuevaMarca) {
+        double factor = Math.exp(-lambda() * (nuevaMarca - marca));
+        global.escalar(factor);
+        porCategoria.values().forEach(c -> c.escalar(factor));
+        totalPorCategoria.replaceAll((c, total) -> total * factor);
+        sinCategoria.replaceAll((p, peso) -> peso * factor);
+        // Productos que productos nunca informa (p. ej. borrados): se olvidan cuando ya no aportan
+        sinCategoria.values().removeIf(peso -> peso < PESO_MIN);
+        marca = nuevaMarca;
+    }
+
+    private void publicar() {
+        cambios = false;
+        if (global == null) return;
+        double factor = Math.exp(-lambda() * (System.currentTimeMillis() - marca));
+
+        Map<Long, List<MasVendidoDto>> categoriasPublicadas = new HashMap<>();
+        porCategoria.forEach((categoria, contador) -> categoriasPublicadas.put(categoria, lista(contador, factor)));
+
+        List<CategoriaVendidaDto> totales = new ArrayList<>(totalPorCategoria.size());
+        totalPorCategoria.forEach((categoria, total) -> totales.add(new CategoriaVendidaDto(categoria, redondear(total * factor))));
+        totales.sort(Comparator.comparing(CategoriaVendidaDto::getUnidades).reversed());
+
+        ranking = new Ranking(lista(global, factor), Map.copyOf(categoriasPublicadas), List.copyOf(totales));
+    }
+
+    private List<MasVendidoDto> lista(ContadorFrecuentes contador, double factor) {
+        List<MasVendidoDto> lista = new ArrayList<>();
+        for (ContadorFrecuentes.Estimacion e : contador.top(publicados)) {
+            lista.add(new MasVendidoDto(e.id(), categoriaContada.get(e.id()), redondear(e.cuenta() * factor)));
+        }
+        return List.copyOf(lista);
+    }
+
+    private double lambda() {
+        return Math.log(2) / (vidaMediaHoras * 3_600_000d);
+    }
+
+    private static double redondear(double unidades) {
+        return Math.round(unidades * 100) / 100d;
+    }
+
+    private static long epochMs(LocalDateTime fecha) {
+        return fecha != null ? fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : System.currentTimeMillis();
+    }
+}
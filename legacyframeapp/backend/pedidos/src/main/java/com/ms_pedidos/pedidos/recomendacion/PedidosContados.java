@@ -0,0 +1,29 @@
+package com.ms_pedidos.pedidos.recomendacion;
+
+import java.util.BitSet;
+
+/**
+ * Pedidos que un índice ya sumó (un bit por id), para que el mismo pedido pueda llegar por el evento
+ * y por la relectura del historial sin contarse dos veces. No es thread-safe.
+ */
+final class PedidosContados {
+
+    private final BitSet contados = new BitSet();
+    private long ultimo;
+
+    // false si ya estaba contado
+    boolean marcar(long pedidoId) {
+        // Ids fuera del rango del bitset no se pueden deduplicar (no se espera llegar a tanto)
+        if (pedidoId >= 0 && pedidoId <= Integer.MAX_VALUE) {
+            if (contados.get((int) pedidoId)) return false;
+            contados.set((int) pedidoId);
+        }
+        ultimo = Math.max(ultimo, pedidoId);
+        return true;
+    }
+
+    // Mayor id contado: la relectura retoma desde acá menos un margen
+    long ultimo() {
+        return ultimo;
+    }
+}
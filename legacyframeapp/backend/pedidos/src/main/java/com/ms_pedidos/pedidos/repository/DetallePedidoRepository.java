@@ -0,0 +1,35 @@
+package com.ms_pedidos.pedidos.repository;
+
+import com.ms_pedidos.pedidos.dto.LineaPedidoDto;
+import com.ms_pedidos.pedidos.model.DetallePedido;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.stream.Stream;
+
+public interface DetallePedidoRepository extends JpaRepository<DetallePedido, Long> {
+
+    // Líneas de los pedidos posteriores a 'despuesDe', agrupadas por pedido (ordenadas por pedido_id).
+    // El driver trae bloques de 1000 filas (en MySQL requiere useCursorFetch=true);
+    // debe consumirse dentro de una transacción y cerrarse.
+    @Query("select new com.ms_pedidos.pedidos.dto.LineaPedidoDto(d.pedido.id, d.productoId) " +
+           "from DetallePedido d where d.pedido.id > :despuesDe order by d.pedido.id")
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<LineaPedidoDto> streamLineasDespuesDe(@Param("despuesDe") Long despuesDe);
+
+    // Igual que la anterior pero con cantidad y fecha del pedido (ranking de más vendidos)
+    @Query("select new com.ms_pedidos.pedidos.dto.LineaPedidoDto(p.id, d.productoId, d.cantidad, p.fechaCreacion) " +
+           "from DetallePedido d join d.pedido p where p.id > :despuesDe order by p.id")
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<LineaPedidoDto> streamVentasDespuesDe(@Param("despuesDe") Long despuesDe);
+}
@@ -2,12 +2,16 @@ package com.ms_pedidos.pedidos.repository;
 
 import com.ms_pedidos.pedidos.model.Pedido;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
+// Las consultas de solo lectura (estas y findAll del listado admin) van a la réplica si está configurada
 public interface PedidoRepository extends JpaRepository<Pedido, Long> {
     // Para que el usuario vea SU historial
+    @Transactional(readOnly = true)
     List<Pedido> findByUsuarioEmail(String usuarioEmail);
     
     // Para obtener pedidos ordenados por fecha de creación descendente
+    @Transactional(readOnly = true)
     List<Pedido> findByUsuarioEmailOrderByFechaCreacionDesc(String usuarioEmail);
 }
\ No newline at end of file
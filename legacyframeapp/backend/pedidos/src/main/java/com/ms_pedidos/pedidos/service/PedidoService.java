@@ -2,10 +2,12 @@ package com.ms_pedidos.pedidos.service;
 
 import com.ms_pedidos.pedidos.dto.DetalleDto;
 import com.ms_pedidos.pedidos.dto.PedidoDto;
+import com.ms_pedidos.pedidos.event.PedidoCreadoEvent;
 import com.ms_pedidos.pedidos.model.DetallePedido;
 import com.ms_pedidos.pedidos.model.Pedido;
 import com.ms_pedidos.pedidos.repository.PedidoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -18,6 +20,9 @@ public class PedidoService {
     @Autowired
     private PedidoRepository pedidoRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public Pedido crearPedido(String email, PedidoDto dto) {
         
         // 1. Crear el Pedido Padre
@@ -53,6 +58,10 @@ public class PedidoService {
         pedido.setTotal(totalCalculado);
 
         // 4. Guardar en Base de Datos (El CascadeType.ALL guardará los detalles automáticamente)
-        return pedidoRepository.save(pedido);
+        Pedido guardado = pedidoRepository.save(pedido);
+
+        // 5. Avisar a los índices en memoria (comprados juntos)
+        eventPublisher.publishEvent(new PedidoCreadoEvent(guardado));
+        return guardado;
     }
 }
\ No newline at end of file
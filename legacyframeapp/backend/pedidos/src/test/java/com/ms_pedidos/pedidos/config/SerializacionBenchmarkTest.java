@@ -0,0 +1,110 @@
+package com.ms_pedidos.pedidos.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ms_pedidos.pedidos.model.DetallePedido;
+import com.ms_pedidos.pedidos.model.Pedido;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// JSON vs CBOR sobre un historial de pedidos grande. Los tamaños se verifican en cada build; los tiempos
+// de serialización son un micro-benchmark aparte (tag "benchmark", mvn test -Pbenchmark)
+class SerializacionBenchmarkTest {
+
+	private static final int PEDIDOS = 2000;
+	private static final int DETALLES_POR_PEDIDO = 8;
+	private static final int CALENTAMIENTO = 20;
+	private static final int MEDICIONES = 30;
+
+	private static List<Pedido> historial() {
+		LocalDateTime inicio = LocalDateTime.of(2024, 1, 1, 10, 0);
+		List<Pedido> pedidos = new ArrayList<>(PEDIDOS);
+		for (int i = 1; i <= PEDIDOS; i++) {
+			Pedido pedido = new Pedido();
+			pedido.setId((long) i);
+			pedido.setUsuarioEmail("cliente" + (i % 50) + "@duoc.cl");
+			pedido.setEstado("CONFIRMADO");
+			pedido.setFechaCreacion(inicio.plusHours(i));
+			List<DetallePedido> detalles = new ArrayList<>(DETALLES_POR_PEDIDO);
+			double total = 0;
+			for (int d = 0; d < DETALLES_POR_PEDIDO; d++) {
+				DetallePedido detalle = new DetallePedido();
+				detalle.setId((long) i * DETALLES_POR_PEDIDO + d);
+				detalle.setProductoId((long) (i * 7 + d) % 400 + 1);
+				detalle.setNombreProducto("Moldura " + detalle.getProductoId() + " madera");
+				detalle.setCantidad(1 + d % 3);
+				detalle.setPrecioUnitario(9990.0 + d * 500);
+				detalle.setPedido(pedido);
+				total += detalle.getCantidad() * detalle.getPrecioUnitario();
+				detalles.add(detalle);
+			}
+			pedido.setDetalles(detalles);
+			pedido.setTotal(total);
+			pedidos.add(pedido);
+		}
+		return pedidos;
+	}
+
+	// Igual que el ObjectMapper de Spring Boot: fechas ISO, no timestamps
+	private static Jackson2ObjectMapperBuilder builder() {
+		return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+	}
+
+	@Test
+	void cborEsMasChicoQueJsonParaElHistorial() throws IOException {
+		ObjectMapper json = builder().build();
+		ObjectMapper cbor = CborConfig.cborMapper(builder());
+		List<Pedido> pedidos = historial();
+
+		byte[] bytesJson = json.writeValueAsBytes(pedidos);
+		byte[] bytesCbor = cbor.writeValueAsBytes(pedidos);
+
+		// Con estos datos: ~1,95 MB JSON contra ~1,66 MB CBOR; con gzip la diferencia desaparece (~169 KB y ~171 KB)
+		assertTrue(bytesCbor.length < bytesJson.length * 0.9, bytesCbor.length + " vs " + bytesJson.length);
+		assertTrue(gzip(bytesCbor) < gzip(bytesJson) * 1.05);
+		// Mismo árbol en ambos formatos (Pedido no se puede leer de vuelta por su @JsonManagedReference)
+		assertEquals(json.readTree(bytesJson), cbor.readTree(bytesCbor));
+	}
+
+	@Test
+	@Tag("benchmark")
+	void tiempoDeSerializacion() throws IOException {
+		ObjectMapper json = builder().build();
+		ObjectMapper cbor = CborConfig.cborMapper(builder());
+		List<Pedido> pedidos = historial();
+
+		System.out.printf("Historial %d pedidos x %d detalles: JSON %.2f ms, CBOR %.2f ms%n", PEDIDOS, DETALLES_POR_PEDIDO,
+				medianaNs(json, pedidos) / 1e6, medianaNs(cbor, pedidos) / 1e6);
+	}
+
+	private static long medianaNs(ObjectMapper mapper, Object valor) throws IOException {
+		for (int i = 0; i < CALENTAMIENTO; i++) mapper.writeValueAsBytes(valor);
+		long[] tiempos = new long[MEDICIONES];
+		for (int i = 0; i < MEDICIONES; i++) {
+			long inicio = System.nanoTime();
+			mapper.writeValueAsBytes(valor);
+			tiempos[i] = System.nanoTime() - inicio;
+		}
+		Arrays.sort(tiempos);
+		return tiempos[MEDICIONES / 2];
+	}
+
+	private static int gzip(byte[] datos) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+			gz.write(datos);
+		}
+		return out.size();
+	}
+}
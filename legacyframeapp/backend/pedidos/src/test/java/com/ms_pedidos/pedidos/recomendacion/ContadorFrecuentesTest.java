@@ -0,0 +1,78 @@
+package com.ms_pedidos.pedidos.recomendacion;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContadorFrecuentesTest {
+
+	// Con una distribución sesgada los más vendidos reales deben estar, con cuenta dentro de [real, real + error]
+	@Test
+	void encuentraLosFrecuentesConMemoriaAcotada() {
+		int capacidad = 50;
+		ContadorFrecuentes contador = new ContadorFrecuentes(capacidad);
+		Map<Long, Integer> reales = new HashMap<>();
+		Random random = new Random(11);
+		int total = 200_000;
+		for (int i = 0; i < total; i++) {
+			long id = 1 + (long) (5000 * Math.pow(random.nextDouble(), 4));
+			contador.sumar(id, 1);
+			reales.merge(id, 1, Integer::sum);
+		}
+		assertEquals(capacidad, contador.size());
+
+		List<ContadorFrecuentes.Estimacion> top = contador.top(capacidad);
+		for (ContadorFrecuentes.Estimacion e : top) {
+			int real = reales.getOrDefault(e.id(), 0);
+			assertTrue(e.cuenta() >= real, "no subestima " + e.id());
+			assertTrue(e.cuenta() - e.error() <= real, "error acota la sobreestimación " + e.id());
+		}
+		// Todo id con más de total/capacidad ventas está presente
+		List<Long> presentes = top.stream().map(ContadorFrecuentes.Estimacion::id).toList();
+		reales.forEach((id, real) -> {
+			if (real > total / capacidad) assertTrue(presentes.contains(id), "falta " + id);
+		});
+		assertEquals(1L, top.get(0).id());
+	}
+
+	@Test
+	void escalarMantieneElOrden() {
+		ContadorFrecuentes contador = new ContadorFrecuentes(3);
+		contador.sumar(1, 5);
+		contador.sumar(2, 3);
+		contador.sumar(3, 1);
+		contador.escalar(0.5);
+		contador.sumar(4, 1); // reemplaza al 3 (0.5) y hereda su cuenta como error
+		List<ContadorFrecuentes.Estimacion> top = contador.top(3);
+		assertEquals(List.of(1L, 2L, 4L), top.stream().map(ContadorFrecuentes.Estimacion::id).toList());
+		assertEquals(2.5, top.get(0).cuenta(), 1e-9);
+		assertEquals(1.5, top.get(2).cuenta(), 1e-9);
+		assertEquals(0.5, top.get(2).error(), 1e-9);
+	}
+
+	@Test
+	void mapaQuitaSinRomperLosSondeos() {
+		MapaLongInt mapa = new MapaLongInt(16);
+		Map<Long, Integer> esperado = new HashMap<>();
+		Random random = new Random(3);
+		for (int i = 0; i < 50_000; i++) {
+			long clave = 1 + random.nextInt(2000);
+			if (random.nextInt(3) == 0) {
+				mapa.quitar(clave);
+				esperado.remove(clave);
+			} else {
+				mapa.sumar(clave, 1);
+				esperado.merge(clave, 1, Integer::sum);
+			}
+		}
+		assertEquals(esperado.size(), mapa.size());
+		for (long clave = 1; clave <= 2000; clave++) {
+			assertEquals(esperado.getOrDefault(clave, 0).intValue(), mapa.get(clave), "clave " + clave);
+		}
+	}
+}
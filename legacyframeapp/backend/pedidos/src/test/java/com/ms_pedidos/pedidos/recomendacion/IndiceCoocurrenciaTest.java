@@ -0,0 +1,90 @@
+package com.ms_pedidos.pedidos.recomendacion;
+
+import com.ms_pedidos.pedidos.dto.CompradoJuntoDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceCoocurrenciaTest {
+
+	private static IndiceCoocurrencia indice(int topK) {
+		IndiceCoocurrencia indice = new IndiceCoocurrencia();
+		ReflectionTestUtils.setField(indice, "topK", topK);
+		return indice;
+	}
+
+	@Test
+	void cuentaParesUnaVezPorPedido() {
+		IndiceCoocurrencia indice = indice(10);
+		indice.registrar(1, new long[]{1, 2, 3});
+		indice.registrar(2, new long[]{1, 2, 2}); // producto repetido en el pedido: cuenta una vez
+		indice.registrar(3, new long[]{1, 3, 4});
+		assertFalse(indice.registrar(2, new long[]{1, 2})); // pedido ya contado
+
+		List<CompradoJuntoDto> conUno = indice.compradosJuntos(1L, 10);
+		assertEquals(List.of(2L, 3L, 4L), conUno.stream().map(CompradoJuntoDto::getProductoId).toList());
+		assertEquals(List.of(2, 2, 1), conUno.stream().map(CompradoJuntoDto::getVeces).toList());
+		assertEquals(1, indice.compradosJuntos(4L, 10).get(1).getVeces());
+		assertTrue(indice.compradosJuntos(99L, 10).isEmpty());
+		assertEquals(1, indice.compradosJuntos(1L, 1).size());
+	}
+
+	// El top-K incremental debe coincidir con ordenar todos los conteos
+	@Test
+	void topKIncrementalCoincideConElExacto() {
+		int k = 5;
+		int productos = 40;
+		IndiceCoocurrencia indice = indice(k);
+		int[][] conteos = new int[productos + 1][productos + 1];
+		Random random = new Random(7);
+		for (int pedido = 1; pedido <= 3000; pedido++) {
+			int n = 1 + random.nextInt(6);
+			long[] ids = new long[n];
+			for (int i = 0; i < n; i++) {
+				// Sesgo hacia los ids bajos para que haya productos frecuentes
+				ids[i] = 1 + (long) (productos * Math.pow(random.nextDouble(), 2));
+			}
+			indice.registrar(pedido, ids);
+			long[] distintos = Arrays.stream(ids).distinct().toArray();
+			for (long a : distintos) {
+				for (long b : distintos) {
+					if (a != b) conteos[(int) a][(int) b]++;
+				}
+			}
+		}
+		for (int p = 1; p <= productos; p++) {
+			int actual = p;
+			List<Integer> esperados = IntStream.rangeClosed(1, productos)
+					.filter(o -> conteos[actual][o] > 0)
+					.boxed()
+					.sorted((a, b) -> conteos[actual][a] != conteos[actual][b]
+							? Integer.compare(conteos[actual][b], conteos[actual][a])
+							: Integer.compare(a, b))
+					.limit(k)
+					.toList();
+			List<Integer> obtenidos = indice.compradosJuntos((long) p, k).stream()
+					.map(c -> c.getProductoId().intValue())
+					.toList();
+			assertEquals(esperados, obtenidos, "producto " + p);
+		}
+	}
+
+	@Test
+	void mapaCreceSinPerderConteos() {
+		MapaLongInt mapa = new MapaLongInt(16);
+		for (long i = 1; i <= 100_000; i++) {
+			mapa.sumar(i << 32 | (i + 1), (int) (i % 7) + 1);
+		}
+		assertEquals(100_000, mapa.size());
+		for (long i = 1; i <= 100_000; i++) {
+			assertEquals((int) (i % 7) + 1, mapa.get(i << 32 | (i + 1)));
+		}
+		assertEquals(0, mapa.get(12345L));
+	}
+}
@@ -0,0 +1,152 @@
+package com.ms_pedidos.pedidos.recomendacion;
+
+import com.ms_pedidos.pedidos.dto.MasVendidoDto;
+import com.ms_pedidos.pedidos.event.PedidoCreadoEvent;
+import com.ms_pedidos.pedidos.model.DetallePedido;
+import com.ms_pedidos.pedidos.model.Pedido;
+import com.ms_pedidos.pedidos.repository.DetallePedidoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class MasVendidosTest {
+
+	private static final long HORA = 3_600_000L;
+
+	private MasVendidos masVendidos;
+	private CategoriasProductos categorias;
+	private long pedidos;
+
+	@BeforeEach
+	void setUp() {
+		DetallePedidoRepository detalles = mock(DetallePedidoRepository.class);
+		when(detalles.streamVentasDespuesDe(anyLong())).thenAnswer(i -> Stream.empty());
+		categorias = mock(CategoriasProductos.class);
+		// Mockito devolvería 0L: sin stub, ningún producto tiene categoría
+		when(categorias.categoria(anyLong())).thenReturn(null);
+
+		masVendidos = new MasVendidos();
+		ReflectionTestUtils.setField(masVendidos, "detallePedidoRepository", detalles);
+		ReflectionTestUtils.setField(masVendidos, "transactionManager", mock(PlatformTransactionManager.class));
+		ReflectionTestUtils.setField(masVendidos, "categorias", categorias);
+		ReflectionTestUtils.setField(masVendidos, "capacidad", 50);
+		ReflectionTestUtils.setField(masVendidos, "publicados", 10);
+		ReflectionTestUtils.setField(masVendidos, "vidaMediaHoras", 1.0);
+		ReflectionTestUtils.setField(masVendidos, "margen", 1000L);
+	}
+
+	private void vender(long productoId, int cantidad, long fechaMs) {
+		DetallePedido d = new DetallePedido();
+		d.setProductoId(productoId);
+		d.setCantidad(cantidad);
+		Pedido p = new Pedido();
+		p.setId(++pedidos);
+		p.setFechaCreacion(LocalDateTime.ofInstant(Instant.ofEpochMilli(fechaMs), ZoneId.systemDefault()));
+		p.setDetalles(List.of(d));
+		masVendidos.onPedidoCreado(new PedidoCreadoEvent(p));
+	}
+
+	private double unidades(Long categoriaId, long productoId) {
+		return masVendidos.masVendidos(categoriaId, 10).stream()
+				.filter(m -> m.getProductoId() == productoId)
+				.mapToDouble(MasVendidoDto::getUnidades)
+				.findFirst().orElse(0);
+	}
+
+	// Con vida media de una hora: lo vendido hace una hora vale la mitad, hace dos horas la cuarta parte
+	@Test
+	void alPublicarCadaVentaPesaSegunSuAntiguedad() {
+		long ahora = System.currentTimeMillis();
+		vender(1L, 8, ahora - HORA);
+		vender(2L, 8, ahora - 2 * HORA);
+		vender(3L, 3, ahora);
+		masVendidos.procesar();
+
+		assertEquals(4.0, unidades(null, 1L), 0.01);
+		assertEquals(2.0, unidades(null, 2L), 0.01);
+		assertEquals(3.0, unidades(null, 3L), 0.01);
+		assertEquals(List.of(1L, 3L, 2L), masVendidos.masVendidos(null, 10).stream().map(MasVendidoDto::getProductoId).toList());
+	}
+
+	// Cuando los pesos crecen demasiado se corre la marca: las unidades publicadas no cambian
+	@Test
+	void correrLaMarcaNoCambiaLoPublicado() {
+		long ahora = System.currentTimeMillis();
+		when(categorias.categoria(1L)).thenReturn(10L);
+		// Instancia arrancada hace 45 vidas medias: la venta de hace 4 horas pesa 2^41 (e^28,4, todavía bajo el máximo)
+		ReflectionTestUtils.setField(masVendidos, "global", new ContadorFrecuentes(50));
+		ReflectionTestUtils.setField(masVendidos, "marca", ahora - 45 * HORA);
+		ReflectionTestUtils.setField(masVendidos, "cargado", true);
+		vender(1L, 16, ahora - 4 * HORA);
+		masVendidos.procesar();
+		assertEquals(ahora - 45 * HORA, (long) ReflectionTestUtils.getField(masVendidos, "marca"));
+		assertEquals(1.0, unidades(null, 1L), 0.01);
+
+		// La de hace una hora pasa el máximo (e^30,5): la marca va a su fecha y todo se reescala
+		vender(2L, 4, ahora - HORA);
+		masVendidos.procesar();
+		assertEquals(ahora - HORA, (long) ReflectionTestUtils.getField(masVendidos, "marca"));
+		assertEquals(1.0, unidades(null, 1L), 0.01);
+		assertEquals(1.0, unidades(10L, 1L), 0.01);
+		assertEquals(2.0, unidades(null, 2L), 0.01);
+		assertEquals(1.0, masVendidos.categoriasMasVendidas(10).get(0).getUnidades(), 0.01);
+	}
+
+	// Un producto de categoría desconocida cuenta en el global y pasa a su categoría al sincronizar
+	@Test
+	void laCategoriaQueLlegaDespuesSumaLoYaVendido() {
+		long ahora = System.currentTimeMillis();
+		when(categorias.refrescar()).thenReturn(true);
+		masVendidos.procesar();
+		vender(7L, 5, ahora);
+		masVendidos.procesar();
+		assertEquals(5.0, unidades(null, 7L), 0.01);
+		assertTrue(masVendidos.categoriasMasVendidas(10).isEmpty());
+
+		when(categorias.categoria(7L)).thenReturn(3L);
+		masVendidos.sincronizar();
+		assertEquals(5.0, unidades(3L, 7L), 0.01);
+		assertEquals(3L, masVendidos.masVendidos(null, 10).get(0).getCategoriaId());
+		assertEquals(5.0, masVendidos.categoriasMasVendidas(10).get(0).getUnidades(), 0.01);
+	}
+
+	// Productos colgado durante una sincronización: las ventas nuevas se siguen aplicando y publicando
+	@Test
+	void productosLentoNoFrenaLaPublicacion() throws Exception {
+		masVendidos.procesar();
+		CountDownLatch llamado = new CountDownLatch(1);
+		CountDownLatch soltar = new CountDownLatch(1);
+		when(categorias.refrescar()).thenAnswer(i -> {
+			llamado.countDown();
+			soltar.await();
+			return false;
+		});
+		Thread sincronizacion = new Thread(masVendidos::sincronizar);
+		sincronizacion.start();
+		try {
+			assertTrue(llamado.await(5, TimeUnit.SECONDS));
+			vender(4L, 2, System.currentTimeMillis());
+			assertTimeoutPreemptively(Duration.ofSeconds(5), masVendidos::procesar);
+			assertEquals(2.0, unidades(null, 4L), 0.01);
+		} finally {
+			soltar.countDown();
+			sincronizacion.join();
+		}
+		// Solo la carga y la sincronización llamaron a productos, nunca la aplicación de ventas
+		verify(categorias, times(2)).refrescar();
+	}
+}
@@ -1,16 +1,23 @@
 package com.ms_productos.productos;
 
+import com.ms_productos.productos.config.ReporteArranque;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @SpringBootApplication
+@EnableScheduling
 public class ProductosApplication { // Asegúrate que el nombre de la clase coincida con tu archivo
 
 	public static void main(String[] args) {
-		SpringApplication.run(ProductosApplication.class, args);
+		SpringApplication app = new SpringApplication(ProductosApplication.class);
+		// Registra cuánto tarda cada paso del arranque (ver ReporteArranque)
+		app.setApplicationStartup(new BufferingApplicationStartup(ReporteArranque.CAPACIDAD));
+		app.run(args);
 	}
 
 	// CONFIGURACIÓN CORS GLOBAL
@@ -0,0 +1,120 @@
+package com.ms_productos.productos.ajuste;
+
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.dto.AjusteMasivoDto;
+import com.ms_productos.productos.dto.ResultadoAjusteDto;
+import com.ms_productos.productos.model.CambioCatalogo;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.repository.ProductoRepository;
+import com.ms_productos.productos.stock.StockCaliente;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ajuste masivo de precio o stock ("+8 % a todas las rusticas") sin pasar producto por producto.
+ *
+ * Todo va en una transacción: primero se leen (y bloquean) los ids que cumplen el filtro, después
+ * se aplica un UPDATE por lote de ids, que MySQL resuelve sobre las filas sin leer ni escribir
+ * entidades desde Java, y cada lote queda en el registro de cambios. Al confirmar se recarga el
+ * catálogo en memoria una sola vez (una versión nueva para todo el ajuste).
+ */
+@Service
+public class AjusteMasivoService {
+
+    private static final Logger log = LoggerFactory.getLogger(AjusteMasivoService.class);
+
+    // Ids por UPDATE: acota el tamaño de la lista IN (y de cada inserción en el registro)
+    static final int LOTE = 1000;
+    public static final int IDS_MAX = 10_000;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CatalogoEnMemoria catalogo;
+
+    @Autowired
+    private RegistroCambios registroCambios;
+
+    @Autowired
+    private StockCaliente stockCaliente;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public ResultadoAjusteDto ajustar(AjusteMasivoDto ajuste) {
+        Long categoriaId = validar(ajuste);
+        long inicio = System.nanoTime();
+
+        ResultadoAjusteDto resultado = new TransactionTemplate(transactionManager).execute(status -> {
+            ResultadoAjusteDto r = new ResultadoAjusteDto();
+            List<Long> ids = productoRepository.findIdsParaAjustar(categoriaId, ajuste.getIds(), ajuste.getPrecioMin(), ajuste.getPrecioMax());
+            if (ajuste.getCampo() == AjusteMasivoDto.Campo.STOCK) {
+                // El stock de un sku caliente vive en memoria: un UPDATE lo pisaría en el próximo volcado
+                List<Long> normales = new ArrayList<>(ids.size());
+                for (Long id : ids) {
+                    if (stockCaliente.esCaliente(id)) r.getOmitidos().add(id);
+                    else normales.add(id);
+                }
+                ids = normales;
+            }
+            for (int i = 0; i < ids.size(); i += LOTE) {
+                List<Long> lote = ids.subList(i, Math.min(i + LOTE, ids.size()));
+                r.setActualizados(r.getActualizados()
+                        + productoRepository.ajustar(lote, ajuste.getCampo(), ajuste.getOperacion(), ajuste.getValor()));
+                registroCambios.registrar(lote, CambioCatalogo.Tipo.GUARDADO);
+            }
+            return r;
+        });
+
+        resultado.setVersion(resultado.getActualizados() > 0 ? catalogo.recargar().getVersion() : catalogo.snapshot().getVersion());
+        resultado.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
+        log.info("Ajuste masivo de {} ({} {}): {} productos, {} omitidos, en {} ms", ajuste.getCampo(),
+                ajuste.getOperacion(), ajuste.getValor(), resultado.getActualizados(), resultado.getOmitidos().size(),
+                resultado.getDuracionMs());
+        return resultado;
+    }
+
+    // Devuelve el id de la categoría del filtro (o null); IllegalArgumentException si el pedido no sirve
+    private Long validar(AjusteMasivoDto ajuste) {
+        if (ajuste.getCampo() == null || ajuste.getOperacion() == null || ajuste.getValor() == null
+                || !Double.isFinite(ajuste.getValor())) {
+            throw new IllegalArgumentException("Debe indicar campo (PRECIO o STOCK), operacion (PORCENTAJE o ABSOLUTO) y valor");
+        }
+        if (ajuste.getOperacion() == AjusteMasivoDto.Operacion.PORCENTAJE && ajuste.getValor() <= -100) {
+            throw new IllegalArgumentException("Un porcentaje no puede bajar el valor en 100 % o más");
+        }
+        if (ajuste.getCampo() == AjusteMasivoDto.Campo.STOCK && ajuste.getOperacion() == AjusteMasivoDto.Operacion.ABSOLUTO
+                && ajuste.getValor() != Math.rint(ajuste.getValor())) {
+            throw new IllegalArgumentException("El ajuste absoluto de stock debe ser un número entero");
+        }
+        if (ajuste.getCategoria() == null && ajuste.getCategoriaId() == null && ajuste.getIds() == null
+                && ajuste.getPrecioMin() == null && ajuste.getPrecioMax() == null) {
+            // Un ajuste de todo el catálogo se pide a propósito (por ejemplo con precioMin 0), no por olvido
+            throw new IllegalArgumentException("Debe indicar al menos un filtro: categoria, categoriaId, ids, precioMin o precioMax");
+        }
+        if (ajuste.getIds() != null && (ajuste.getIds().isEmpty() || ajuste.getIds().size() > IDS_MAX)) {
+            throw new IllegalArgumentException("ids debe tener entre 1 y " + IDS_MAX + " elementos");
+        }
+
+        Long categoriaId = ajuste.getCategoriaId();
+        if (ajuste.getCategoria() != null) {
+            // Se resuelve contra el catálogo en memoria, sin ir a la base
+            Categoria c = catalogo.snapshot().getCategoriaPorNombre(ajuste.getCategoria().trim());
+            if (c == null) throw new IllegalArgumentException("Categoría desconocida: " + ajuste.getCategoria());
+            if (categoriaId != null && !categoriaId.equals(c.getId())) {
+                throw new IllegalArgumentException("categoria y categoriaId no coinciden");
+            }
+            categoriaId = c.getId();
+        }
+        return categoriaId;
+    }
+}
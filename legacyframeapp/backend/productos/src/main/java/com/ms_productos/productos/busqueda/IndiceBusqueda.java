@@ -0,0 +1,165 @@
+package com.ms_productos.productos.busqueda;
+
+import com.ms_productos.productos.event.CatalogoRecargadoEvent;
+import com.ms_productos.productos.event.ProductoCambiadoEvent;
+import com.ms_productos.productos.event.ProductoPublicadoEvent;
+import com.ms_productos.productos.model.Producto;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria sobre nombre y descripción de los productos.
+ *
+ * Cada término normalizado (sin tildes, minúsculas) apunta a los productos que lo contienen
+ * con un peso (las coincidencias en el nombre valen más que en la descripción). Los términos
+ * se guardan ordenados para resolver búsquedas por prefijo con un subMap, sin recorrer el catálogo.
+ */
+@Component
+public class IndiceBusqueda {
+
+    private static final int PESO_NOMBRE = 3;
+    private static final int PESO_DESCRIPCION = 1;
+    private static final double FACTOR_PREFIJO = 0.5; // "marc" encuentra "marco", pero puntúa menos que exacto
+
+    public record Resultado(List<Long> ids, int total) { }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Map<Long, Integer>> indice = new TreeMap<>();
+    private final Map<Long, Set<String>> terminosPorProducto = new HashMap<>();
+
+    @EventListener
+    public void onCatalogoRecargado(CatalogoRecargadoEvent evento) {
+        reconstruir(evento.getSnapshot().getProductos());
+    }
+
+    // Desde CatalogoEnMemoria, ya confirmado y en orden (un estado viejo que llega tarde no pasa)
+    @EventListener
+    public void onProductoPublicado(ProductoPublicadoEvent evento) {
+        if (evento.getTipo() == ProductoCambiadoEvent.Tipo.ELIMINADO) {
+            eliminar(evento.getProductoId());
+        } else {
+            indexar(evento.getProducto());
+        }
+    }
+
+    public void reconstruir(Collection<Producto> productos) {
+        lock.writeLock().lock();
+        try {
+            indice.clear();
+            terminosPorProducto.clear();
+            for (Producto p : productos) agregar(p);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexar(Producto producto) {
+        lock.writeLock().lock();
+        try {
+            quitar(producto.getId());
+            agregar(producto);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Long id) {
+        lock.writeLock().lock();
+        try {
+            quitar(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Todos los términos de la consulta deben aparecer (AND); cada uno se compara como prefijo.
+     * Devuelve los ids de la página pedida ordenados por puntaje y el total de coincidencias.
+     */
+    public Resultado buscar(String consulta, int desde, int cantidad) {
+        List<String> terminos = Tokenizador.tokens(consulta);
+        if (terminos.isEmpty()) return new Resultado(List.of(), 0);
+
+        Map<Long, Double> puntajes = null;
+        lock.readLock().lock();
+        try {
+            for (String termino : terminos) {
+                Map<Long, Double> coincidencias = puntajesDe(termino);
+                if (puntajes == null) {
+                    puntajes = coincidencias;
+                } else {
+                    Map<Long, Double> interseccion = new HashMap<>();
+                    for (Map.Entry<Long, Double> e : puntajes.entrySet()) {
+                        Double extra = coincidencias.get(e.getKey());
+                        if (extra != null) interseccion.put(e.getKey(), e.getValue() + extra);
+                    }
+                    puntajes = interseccion;
+                }
+                if (puntajes.isEmpty()) break;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Long, Double>> ordenados = new ArrayList<>(puntajes.entrySet());
+        ordenados.sort((a, b) -> {
+            int c = Double.compare(b.getValue(), a.getValue());
+            return c != 0 ? c : Long.compare(a.getKey(), b.getKey());
+        });
+
+        int total = ordenados.size();
+        List<Long> pagina = new ArrayList<>();
+        for (int i = desde; i < total && pagina.size() < cantidad; i++) {
+            pagina.add(ordenados.get(i).getKey());
+        }
+        return new Resultado(pagina, total);
+    }
+
+    // Debe llamarse con el lock de lectura tomado
+    private Map<Long, Double> puntajesDe(String prefijo) {
+        Map<Long, Double> puntajes = new HashMap<>();
+        SortedMap<String, Map<Long, Integer>> rango = indice.subMap(prefijo, prefijo + Character.MAX_VALUE);
+        for (Map.Entry<String, Map<Long, Integer>> termino : rango.entrySet()) {
+            double factor = termino.getKey().length() == prefijo.length() ? 1.0 : FACTOR_PREFIJO;
+            for (Map.Entry<Long, Integer> posting : termino.getValue().entrySet()) {
+                // Un producto puede coincidir con varias expansiones del prefijo: nos quedamos con la mejor
+                puntajes.merge(posting.getKey(), posting.getValue() * factor, Math::max);
+            }
+        }
+        return puntajes;
+    }
+
+    // Deben llamarse con el lock de escritura tomado
+    private void agregar(Producto p) {
+        Map<String, Integer> pesos = new HashMap<>();
+        for (String t : Tokenizador.tokens(p.getNombre())) pesos.merge(t, PESO_NOMBRE, Integer::sum);
+        for (String t : Tokenizador.tokens(p.getDescripcion())) pesos.merge(t, PESO_DESCRIPCION, Integer::sum);
+
+        for (Map.Entry<String, Integer> e : pesos.entrySet()) {
+            indice.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(p.getId(), e.getValue());
+        }
+        terminosPorProducto.put(p.getId(), new HashSet<>(pesos.keySet()));
+    }
+
+    private void quitar(Long id) {
+        Set<String> terminos = terminosPorProducto.remove(id);
+        if (terminos == null) return;
+        for (String t : terminos) {
+            Map<Long, Integer> postings = indice.get(t);
+            if (postings == null) continue;
+            postings.remove(id);
+            if (postings.isEmpty()) indice.remove(t);
+        }
+    }
+}
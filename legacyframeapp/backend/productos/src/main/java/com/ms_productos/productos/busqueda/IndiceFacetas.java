@@ -0,0 +1,275 @@
+package com.ms_productos.productos.busqueda;
+
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.catalogo.CatalogoSnapshot;
+import com.ms_productos.productos.dto.FacetaDto;
+import com.ms_productos.productos.dto.FiltroProductosDto;
+import com.ms_productos.productos.event.CatalogoRecargadoEvent;
+import com.ms_productos.productos.event.ProductoCambiadoEvent;
+import com.ms_productos.productos.event.ProductoPublicadoEvent;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Facetas del catálogo (categoría, tramo de precio, stock) como bitsets por valor.
+ *
+ * Cada producto ocupa un "slot" (posición de bit). Al crear/actualizar/eliminar solo se prenden
+ * o apagan los bits de ese slot, y los conteos de cada faceta se obtienen intersectando bitsets
+ * (AND + popcount por palabras de 64 bits), sin recorrer filas por cada consulta.
+ */
+@Component
+public class IndiceFacetas {
+
+    // Límites inferiores de cada tramo de precio, en centavos de peso; el último tramo es abierto
+    private static final long[] INICIO_TRAMOS = {0L, 10_000_00L, 25_000_00L, 50_000_00L, 100_000_00L};
+    private static final long SIN_CATEGORIA = Long.MIN_VALUE;
+
+    @Autowired
+    private CatalogoEnMemoria catalogo;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> slotPorId = new HashMap<>();
+    private long[] idPorSlot = new long[64];
+    private long[] precioPorSlot = new long[64];
+    private long[] categoriaPorSlot = new long[64];
+
+    private final BitSet activos = new BitSet();
+    private final BitSet conStock = new BitSet();
+    private final Map<Long, BitSet> porCategoria = new HashMap<>();
+    private final BitSet[] porTramo = new BitSet[INICIO_TRAMOS.length];
+
+    public IndiceFacetas() {
+        for (int i = 0; i < porTramo.length; i++) porTramo[i] = new BitSet();
+    }
+
+    @EventListener
+    public void onCatalogoRecargado(CatalogoRecargadoEvent evento) {
+        reconstruir(evento.getSnapshot().getProductos());
+    }
+
+    // Cambios ya aplicados a la foto, en el orden de CatalogoEnMemoria
+    @EventListener
+    public void onProductoPublicado(ProductoPublicadoEvent evento) {
+        if (evento.getTipo() == ProductoCambiadoEvent.Tipo.ELIMINADO) {
+            eliminar(evento.getProductoId());
+        } else {
+            indexar(evento.getProducto());
+        }
+    }
+
+    public void reconstruir(Collection<Producto> productos) {
+        lock.writeLock().lock();
+        try {
+            slotPorId.clear();
+            activos.clear();
+            conStock.clear();
+            porCategoria.clear();
+            for (BitSet b : porTramo) b.clear();
+            for (Producto p : productos) agregar(p);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexar(Producto producto) {
+        lock.writeLock().lock();
+        try {
+            quitar(producto.getId());
+            agregar(producto);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Long id) {
+        lock.writeLock().lock();
+        try {
+            quitar(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Filtra por cualquier combinación de categoría, rango de precio (inclusive) y stock.
+     * Los conteos de cada faceta aplican los demás filtros pero no el propio, para que el
+     * cliente pueda mostrar cuántos productos obtendría al cambiar esa selección.
+     */
+    public FiltroProductosDto filtrar(Long categoriaId, Double precioMin, Double precioMax, Boolean enStock,
+                                      int pagina, int tamano) {
+        CatalogoSnapshot snapshot = catalogo.snapshot();
+        long[] ids;
+        int total;
+        List<FacetaDto> facetasCategoria = new ArrayList<>();
+        List<FacetaDto> facetasPrecio = new ArrayList<>();
+        List<FacetaDto> facetasStock = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            BitSet filtroCategoria = categoriaId == null ? null : porCategoria.getOrDefault(categoriaId, new BitSet());
+            BitSet filtroPrecio = mascaraPrecio(aCentavos(precioMin), aCentavos(precioMax));
+            BitSet filtroStock = mascaraStock(enStock);
+
+            BitSet resultado = interseccion(filtroCategoria, filtroPrecio, filtroStock);
+            total = resultado.cardinality();
+            ids = new long[total];
+            int n = 0;
+            for (int slot = resultado.nextSetBit(0); slot >= 0; slot = resultado.nextSetBit(slot + 1)) {
+                ids[n++] = idPorSlot[slot];
+            }
+
+            BitSet sinCategoria = interseccion(null, filtroPrecio, filtroStock);
+            for (Categoria c : snapshot.getCategorias()) {
+                BitSet bits = porCategoria.get(c.getId());
+                facetasCategoria.add(new FacetaDto(c.getNombre(), c.getDescripcion(), cantidadComun(bits, sinCategoria)));
+            }
+
+            BitSet sinPrecio = interseccion(filtroCategoria, null, filtroStock);
+            for (int t = 0; t < porTramo.length; t++) {
+                facetasPrecio.add(new FacetaDto(valorTramo(t), etiquetaTramo(t), cantidadComun(porTramo[t], sinPrecio)));
+            }
+
+            BitSet sinStock = interseccion(filtroCategoria, filtroPrecio, null);
+            int disponibles = cantidadComun(conStock, sinStock);
+            facetasStock.add(new FacetaDto("true", "Con stock", disponibles));
+            facetasStock.add(new FacetaDto("false", "Sin stock", sinStock.cardinality() - disponibles));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Arrays.sort(ids);
+        List<Producto> items = new ArrayList<>();
+        long desde = (long) pagina * tamano;
+        for (long i = desde; i < ids.length && items.size() < tamano; i++) {
+            Producto p = snapshot.getProducto(ids[(int) i]);
+            if (p != null) items.add(p);
+        }
+        return new FiltroProductosDto(items, total, pagina, tamano, facetasCategoria, facetasPrecio, facetasStock);
+    }
+
+    // ---- Mantenimiento incremental (con el lock de escritura tomado) ----
+
+    private void agregar(Producto p) {
+        int slot = activos.nextClearBit(0);
+        asegurarCapacidad(slot);
+        slotPorId.put(p.getId(), slot);
+        activos.set(slot);
+
+        long precio = p.getPrecio() != null ? aCentavos(p.getPrecio()) : 0L;
+        long categoria = p.getCategoria() != null && p.getCategoria().getId() != null
+                ? p.getCategoria().getId() : SIN_CATEGORIA;
+        idPorSlot[slot] = p.getId();
+        precioPorSlot[slot] = precio;
+        categoriaPorSlot[slot] = categoria;
+
+        porTramo[tramoDe(precio)].set(slot);
+        if (categoria != SIN_CATEGORIA) porCategoria.computeIfAbsent(categoria, k -> new BitSet()).set(slot);
+        if (p.getStock() != null && p.getStock() > 0) conStock.set(slot);
+    }
+
+    private void quitar(Long id) {
+        Integer slot = slotPorId.remove(id);
+        if (slot == null) return;
+        activos.clear(slot);
+        conStock.clear(slot);
+        porTramo[tramoDe(precioPorSlot[slot])].clear(slot);
+        BitSet cat = porCategoria.get(categoriaPorSlot[slot]);
+        if (cat != null) cat.clear(slot);
+    }
+
+    private void asegurarCapacidad(int slot) {
+        if (slot < idPorSlot.length) return;
+        int nueva = Math.max(slot + 1, idPorSlot.length * 2);
+        idPorSlot = Arrays.copyOf(idPorSlot, nueva);
+        precioPorSlot = Arrays.copyOf(precioPorSlot, nueva);
+        categoriaPorSlot = Arrays.copyOf(categoriaPorSlot, nueva);
+    }
+
+    // ---- Consultas (con el lock de lectura tomado) ----
+
+    private BitSet interseccion(BitSet categoria, BitSet precio, BitSet stock) {
+        BitSet r = (BitSet) activos.clone();
+        if (categoria != null) r.and(categoria);
+        if (precio != null) r.and(precio);
+        if (stock != null) r.and(stock);
+        return r;
+    }
+
+    private static int cantidadComun(BitSet a, BitSet b) {
+        if (a == null) return 0;
+        BitSet r = (BitSet) a.clone();
+        r.and(b);
+        return r.cardinality();
+    }
+
+    private BitSet mascaraStock(Boolean enStock) {
+        if (enStock == null) return null;
+        if (enStock) return conStock;
+        BitSet sin = (BitSet) activos.clone();
+        sin.andNot(conStock);
+        return sin;
+    }
+
+    // Los tramos completamente dentro del rango se suman enteros; solo los de los bordes se revisan slot a slot
+    private BitSet mascaraPrecio(Long min, Long max) {
+        if (min == null && max == null) return null;
+        BitSet mascara = new BitSet();
+        for (int t = 0; t < porTramo.length; t++) {
+            long desde = INICIO_TRAMOS[t];
+            long hasta = finTramo(t); // inclusive
+            if ((max != null && desde > max) || (min != null && hasta < min)) continue;
+
+            boolean completo = (min == null || desde >= min) && (max == null || hasta <= max);
+            if (completo) {
+                mascara.or(porTramo[t]);
+                continue;
+            }
+            BitSet tramo = porTramo[t];
+            for (int slot = tramo.nextSetBit(0); slot >= 0; slot = tramo.nextSetBit(slot + 1)) {
+                long precio = precioPorSlot[slot];
+                if ((min == null || precio >= min) && (max == null || precio <= max)) mascara.set(slot);
+            }
+        }
+        return mascara;
+    }
+
+    private static int tramoDe(long precio) {
+        for (int t = INICIO_TRAMOS.length - 1; t > 0; t--) {
+            if (precio >= INICIO_TRAMOS[t]) return t;
+        }
+        return 0;
+    }
+
+    private static long finTramo(int t) {
+        return t + 1 < INICIO_TRAMOS.length ? INICIO_TRAMOS[t + 1] - 1 : Long.MAX_VALUE;
+    }
+
+    private static String valorTramo(int t) {
+        long desde = INICIO_TRAMOS[t] / 100;
+        return t + 1 < INICIO_TRAMOS.length ? desde + "-" + (INICIO_TRAMOS[t + 1] / 100) : desde + "-";
+    }
+
+    private static String etiquetaTramo(int t) {
+        long desde = INICIO_TRAMOS[t] / 100;
+        return t + 1 < INICIO_TRAMOS.length
+                ? "$" + desde + " a $" + (INICIO_TRAMOS[t + 1] / 100 - 1)
+                : "Desde $" + desde;
+    }
+
+    private static Long aCentavos(Double precio) {
+        return precio == null ? null : Math.round(precio * 100);
+    }
+}
@@ -0,0 +1,204 @@
+package com.ms_productos.productos.busqueda;
+
+import com.ms_productos.productos.event.CatalogoRecargadoEvent;
+import com.ms_productos.productos.event.ProductoCambiadoEvent;
+import com.ms_productos.productos.event.ProductoPublicadoEvent;
+import com.ms_productos.productos.model.Producto;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Productos ordenados por precio para rangos y páginas por precio sin recorrer el catálogo.
+ *
+ * Son dos arreglos paralelos de long: precio en centavos (ordenado, a igual precio por id) e id.
+ * Una consulta son dos búsquedas binarias (primer y último precio del rango) y la copia de la
+ * página pedida: sin Double ni Long por elemento y sin lock, porque los arreglos publicados no se
+ * modifican. Cada cambio de producto arma arreglos nuevos con System.arraycopy (copy-on-write) y
+ * una recarga del catálogo los reconstruye enteros. Los productos sin precio no están.
+ */
+@Component
+public class IndicePrecios {
+
+    public record Pagina(long[] ids, int total) { }
+
+    // Arreglos inmutables una vez publicados
+    private record Orden(long[] precios, long[] ids) {
+        static final Orden VACIO = new Orden(new long[0], new long[0]);
+    }
+
+    private volatile Orden orden = Orden.VACIO;
+
+    // Precio indexado de cada producto, para ubicarlo al cambiarlo o quitarlo (solo lo usan las escrituras)
+    private final Map<Long, Long> precioPorId = new HashMap<>();
+
+    @EventListener
+    public void onCatalogoRecargado(CatalogoRecargadoEvent evento) {
+        reconstruir(evento.getSnapshot().getProductos());
+    }
+
+    @EventListener
+    public void onProductoPublicado(ProductoPublicadoEvent evento) {
+        if (evento.getTipo() == ProductoCambiadoEvent.Tipo.ELIMINADO) {
+            eliminar(evento.getProductoId());
+        } else {
+            indexar(evento.getProducto());
+        }
+    }
+
+    public synchronized void reconstruir(Collection<Producto> productos) {
+        precioPorId.clear();
+        long[] precios = new long[productos.size()];
+        long[] ids = new long[productos.size()];
+        int n = 0;
+        for (Producto p : productos) {
+            if (p.getId() == null || p.getPrecio() == null) continue;
+            precios[n] = aCentavos(p.getPrecio());
+            ids[n] = p.getId();
+            precioPorId.put(p.getId(), precios[n]);
+            n++;
+        }
+        precios = Arrays.copyOf(precios, n);
+        ids = Arrays.copyOf(ids, n);
+        ordenar(precios, ids);
+        orden = new Orden(precios, ids);
+    }
+
+    public synchronized void indexar(Producto producto) {
+        Long previo = precioPorId.get(producto.getId());
+        Long nuevo = producto.getPrecio() != null ? aCentavos(producto.getPrecio()) : null;
+        if (previo != null && previo.equals(nuevo)) return; // p. ej. un cambio de stock: nada que mover
+        Orden o = orden;
+        if (previo != null) o = sin(o, previo, producto.getId());
+        if (nuevo != null) {
+            o = con(o, nuevo, producto.getId());
+            precioPorId.put(producto.getId(), nuevo);
+        } else {
+            precioPorId.remove(producto.getId());
+        }
+        orden = o;
+    }
+
+    public synchronized void eliminar(Long id) {
+        Long previo = precioPorId.remove(id);
+        if (previo != null) orden = sin(orden, previo, id);
+    }
+
+    /**
+     * Página de ids con precio entre min y max (inclusive; null = sin límite), de menor a mayor
+     * precio o al revés. total es cuántos productos hay en el rango.
+     */
+    public Pagina rango(Double min, Double max, boolean descendente, int pagina, int tamano) {
+        Orden o = orden;
+        int desde = min == null ? 0 : primero(o.precios(), aCentavos(min), false);
+        int hasta = max == null ? o.precios().length : primero(o.precios(), aCentavos(max), true);
+        int total = Math.max(0, hasta - desde);
+
+        long salto = (long) Math.max(0, pagina) * tamano;
+        int cantidad = (int) Math.max(0, Math.min(tamano, total - salto));
+        if (cantidad == 0) return new Pagina(new long[0], total);
+        long[] ids = new long[cantidad];
+        if (!descendente) {
+            System.arraycopy(o.ids(), desde + (int) salto, ids, 0, cantidad);
+        } else {
+            int inicio = hasta - 1 - (int) salto;
+            for (int i = 0; i < cantidad; i++) ids[i] = o.ids()[inicio - i];
+        }
+        return new Pagina(ids, total);
+    }
+
+    public int size() {
+        return orden.ids().length;
+    }
+
+    // ---- Arreglos ordenados por (precio, id) ----
+
+    // Primera posición con precio >= precio (con estricto, > precio)
+    private static int primero(long[] precios, long precio, boolean estricto) {
+        int bajo = 0;
+        int alto = precios.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (precios[medio] < precio || (estricto && precios[medio] == precio)) bajo = medio + 1;
+            else alto = medio;
+        }
+        return bajo;
+    }
+
+    // Posición de (precio, id), o donde iría si no está
+    private static int posicion(Orden o, long precio, long id) {
+        long[] precios = o.precios();
+        long[] ids = o.ids();
+        int bajo = primero(precios, precio, false);
+        int alto = primero(precios, precio, true);
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (ids[medio] < id) bajo = medio + 1;
+            else alto = medio;
+        }
+        return bajo;
+    }
+
+    private static Orden con(Orden o, long precio, long id) {
+        int n = o.precios().length;
+        int i = posicion(o, precio, id);
+        long[] precios = new long[n + 1];
+        long[] ids = new long[n + 1];
+        System.arraycopy(o.precios(), 0, precios, 0, i);
+        System.arraycopy(o.ids(), 0, ids, 0, i);
+        precios[i] = precio;
+        ids[i] = id;
+        System.arraycopy(o.precios(), i, precios, i + 1, n - i);
+        System.arraycopy(o.ids(), i, ids, i + 1, n - i);
+        return new Orden(precios, ids);
+    }
+
+    private static Orden sin(Orden o, long precio, long id) {
+        int n = o.precios().length;
+        int i = posicion(o, precio, id);
+        if (i == n || o.ids()[i] != id) return o;
+        long[] precios = new long[n - 1];
+        long[] ids = new long[n - 1];
+        System.arraycopy(o.precios(), 0, precios, 0, i);
+        System.arraycopy(o.ids(), 0, ids, 0, i);
+        System.arraycopy(o.precios(), i + 1, precios, i, n - i - 1);
+        System.arraycopy(o.ids(), i + 1, ids, i, n - i - 1);
+        return new Orden(precios, ids);
+    }
+
+    // Merge sort de abajo hacia arriba sobre los dos arreglos a la vez (sin comparadores ni boxing)
+    static void ordenar(long[] precios, long[] ids) {
+        int n = precios.length;
+        long[] p = precios, q = ids;
+        long[] pAux = new long[n], qAux = new long[n];
+        for (int ancho = 1; ancho < n; ancho *= 2) {
+            for (int izq = 0; izq < n; izq += 2 * ancho) {
+                int medio = Math.min(izq + ancho, n);
+                int fin = Math.min(izq + 2 * ancho, n);
+                int a = izq, b = medio, k = izq;
+                while (a < medio && b < fin) {
+                    boolean tomarA = p[a] < p[b] || (p[a] == p[b] && q[a] <= q[b]);
+                    int j = tomarA ? a++ : b++;
+                    pAux[k] = p[j];
+                    qAux[k++] = q[j];
+                }
+                while (a < medio) { pAux[k] = p[a]; qAux[k++] = q[a++]; }
+                while (b < fin) { pAux[k] = p[b]; qAux[k++] = q[b++]; }
+            }
+            long[] t = p; p = pAux; pAux = t;
+            t = q; q = qAux; qAux = t;
+        }
+        if (p != precios) {
+            System.arraycopy(p, 0, precios, 0, n);
+            System.arraycopy(q, 0, ids, 0, n);
+        }
+    }
+
+    private static long aCentavos(double precio) {
+        return Math.round(precio * 100);
+    }
+}
@@ -0,0 +1,30 @@
+package com.ms_productos.productos.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Normaliza texto en español: minúsculas y sin tildes ("Clásico" -> "clasico", "Ñandú" -> "nandu")
+final class Tokenizador {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private Tokenizador() { }
+
+    static String normalizar(String texto) {
+        if (texto == null) return "";
+        String sinTildes = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinTildes.toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokens(String texto) {
+        List<String> tokens = new ArrayList<>();
+        for (String t : SEPARADORES.split(normalizar(texto))) {
+            if (!t.isEmpty()) tokens.add(t);
+        }
+        return tokens;
+    }
+}
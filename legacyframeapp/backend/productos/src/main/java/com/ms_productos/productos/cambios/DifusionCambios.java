@@ -0,0 +1,317 @@
+package com.ms_productos.productos.cambios;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms_productos.productos.dto.CambioCatalogoDto;
+import com.ms_productos.productos.dto.CambiosCatalogoDto;
+import com.ms_productos.productos.model.CambioCatalogo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Difusión de cambios del catálogo por Server-Sent Events.
+ *
+ * Un único despachador lee el {@link RegistroCambios} cada {@code catalogo.sse.intervalo-ms}
+ * (una consulta para todos los suscriptores) y deja cada cambio, ya serializado, en el buffer de
+ * cada suscriptor. El buffer guarda un evento por producto: si un producto cambia varias veces
+ * antes de enviarse, solo viaja el último (coalescencia). El {@code id} de cada evento es su seq,
+ * así que el navegador reconecta con Last-Event-ID y se retoma desde el registro.
+ *
+ * Los suscriptores inactivos no ocupan hilos (SseEmitter usa servlet async). Los envíos los hace
+ * un pool de {@code catalogo.sse.hilos-envio} hilos, como mucho uno en curso por suscriptor; si un
+ * cliente no lee y su buffer supera {@code catalogo.sse.buffer} eventos se le cierra la conexión y
+ * al reconectar retoma desde su último id (o recibe {@code reiniciar} si quedó muy atrás).
+ *
+ * El envío es una escritura bloqueante: a un cliente que no lee (ventana TCP llena) el hilo queda
+ * esperando. Cerrar el emitter desde otro hilo no la destraba; lo que la corta es el timeout de
+ * escritura del conector ({@code server.tomcat.connection-timeout}), que la hace fallar y libera el
+ * hilo. Así un cliente trabado retiene un hilo del pool como mucho ese tiempo, y hacen falta tantos
+ * trabados a la vez como hilos para demorar al resto.
+ */
+@Component
+public class DifusionCambios {
+
+    private static final Logger log = LoggerFactory.getLogger(DifusionCambios.class);
+
+    @Autowired
+    private RegistroCambios registroCambios;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${catalogo.sse.buffer:1000}")
+    private int capacidad;
+
+    @Value("${catalogo.sse.max-suscriptores:10000}")
+    private int maxSuscriptores;
+
+    @Value("${catalogo.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${catalogo.sse.hilos-envio:32}")
+    private int hilosEnvio;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private Executor envios;
+    private static final AtomicInteger CONTADOR_HILOS = new AtomicInteger();
+
+    private long despachado = -1; // último seq repartido a los buffers (protegido por this)
+
+    private record Evento(long seq, String nombre, String json) { }
+
+    private final class Suscriptor {
+        final SseEmitter emitter;
+        final Map<Long, Evento> pendientes = new HashMap<>(); // productoId -> último evento
+        final AtomicBoolean enviando = new AtomicBoolean();
+
+        Suscriptor(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // false si el buffer se llenó (cliente lento)
+        synchronized boolean encolar(Long productoId, Evento evento) {
+            Evento previo = pendientes.get(productoId);
+            if (previo == null || previo.seq() < evento.seq()) {
+                pendientes.put(productoId, evento);
+            }
+            return pendientes.size() <= capacidad;
+        }
+
+        // En orden de seq, para que el último id recibido sirva de Last-Event-ID
+        synchronized List<Evento> tomar() {
+            List<Evento> lote = new ArrayList<>(pendientes.values());
+            pendientes.clear();
+            lote.sort(Comparator.comparingLong(Evento::seq));
+            return lote;
+        }
+
+        synchronized void descartarHasta(long seq) {
+            pendientes.values().removeIf(e -> e.seq() <= seq);
+        }
+
+        synchronized boolean hayPendientes() {
+            return !pendientes.isEmpty();
+        }
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (envios != null) return; // los tests pueden poner el suyo
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(hilosEnvio, hilosEnvio, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "sse-envio-" + CONTADOR_HILOS.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        envios = pool;
+    }
+
+    public SseEmitter suscribir(Long ultimoId) throws IOException {
+        if (suscriptores.size() >= maxSuscriptores) {
+            throw new IllegalStateException("Demasiados suscriptores");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Suscriptor s = new Suscriptor(emitter);
+        emitter.onCompletion(() -> suscriptores.remove(s));
+        emitter.onTimeout(() -> suscriptores.remove(s));
+        emitter.onError(e -> suscriptores.remove(s));
+
+        // Mientras se arma la conexión nadie más le envía (el despachador solo encola)
+        s.enviando.set(true);
+        long desde;
+        synchronized (this) {
+            if (despachado < 0) despachado = registroCambios.ultimoConfirmado();
+            desde = despachado;
+            suscriptores.add(s); // desde acá recibe todo lo posterior a 'desde'
+        }
+        try {
+            emitter.send(SseEmitter.event().reconnectTime(3000).comment("conectado"));
+            if (ultimoId == null) {
+                // Conexión nueva: el cliente ya tiene (o va a cargar) el catálogo; le damos el punto de partida
+                emitter.send(SseEmitter.event().id(String.valueOf(desde)).name("inicio").data("{\"seq\":" + desde + "}", MediaType.APPLICATION_JSON));
+            } else if (ultimoId < desde) {
+                recuperar(s, ultimoId, desde);
+            } else if (ultimoId > desde) {
+                // Id que este servidor no emitió (p. ej. base recreada): que recargue
+                reiniciar(s, desde);
+            }
+        } catch (IOException | RuntimeException e) {
+            suscriptores.remove(s);
+            throw e;
+        } finally {
+            s.enviando.set(false);
+        }
+        programar(s);
+        return emitter;
+    }
+
+    // Lo que el cliente se perdió entre su Last-Event-ID y el momento de suscribirse
+    private void recuperar(Suscriptor s, long ultimoId, long hasta) throws IOException {
+        long cursor = ultimoId;
+        while (cursor < hasta) {
+            CambiosCatalogoDto pagina = registroCambios.leer(cursor, RegistroCambios.LIMITE_MAX);
+            if (pagina.isReiniciar()) {
+                reiniciar(s, hasta);
+                return;
+            }
+            for (CambioCatalogoDto c : pagina.getCambios()) {
+                if (c.getSeq() > hasta) continue; // eso llega por el despachador
+                if (!s.encolar(c.getProductoId(), evento(c))) {
+                    reiniciar(s, hasta);
+                    return;
+                }
+            }
+            if (pagina.getCambios().isEmpty() && !pagina.isHayMas()) break;
+            cursor = pagina.getHasta();
+        }
+    }
+
+    // Demasiado atrás para reenviar cambio por cambio: que recargue todo y siga desde 'hasta'
+    private void reiniciar(Suscriptor s, long hasta) throws IOException {
+        s.descartarHasta(hasta);
+        s.emitter.send(SseEmitter.event().id(String.valueOf(hasta)).name("reiniciar").data("{\"seq\":" + hasta + "}", MediaType.APPLICATION_JSON));
+    }
+
+    @Scheduled(fixedDelayString = "${catalogo.sse.intervalo-ms:250}")
+    public void despachar() {
+        if (suscriptores.isEmpty()) {
+            // Sin nadie escuchando no se lee el registro; el próximo suscriptor arranca desde lo último confirmado
+            synchronized (this) {
+                despachado = -1;
+            }
+            return;
+        }
+        List<Evento> nuevos = new ArrayList<>();
+        List<Long> productos = new ArrayList<>();
+        synchronized (this) {
+            if (despachado < 0) despachado = registroCambios.ultimoConfirmado();
+            if (registroCambios.ultimoConfirmado() <= despachado) return;
+            CambiosCatalogoDto pagina;
+            do {
+                pagina = registroCambios.leer(despachado, RegistroCambios.LIMITE_MAX);
+                if (pagina.isReiniciar()) {
+                    // Se compactó lo que faltaba repartir: todos reconectan y reciben 'reiniciar'
+                    despachado = pagina.getHasta();
+                    nuevos.clear();
+                    productos.clear();
+                    suscriptores.forEach(s -> desalojar(s, "registro compactado"));
+                    break;
+                }
+                for (CambioCatalogoDto c : pagina.getCambios()) {
+                    nuevos.add(evento(c));
+                    productos.add(c.getProductoId());
+                }
+                despachado = pagina.getHasta();
+            } while (pagina.isHayMas());
+
+            for (Suscriptor s : suscriptores) {
+                for (int i = 0; i < nuevos.size(); i++) {
+                    if (!s.encolar(productos.get(i), nuevos.get(i))) {
+                        desalojar(s, "buffer lleno");
+                        break;
+                    }
+                }
+            }
+        }
+        for (Suscriptor s : suscriptores) {
+            programar(s);
+        }
+    }
+
+    // Mantiene viva la conexión a través de proxies y detecta clientes caídos. Con un envío en curso
+    // no se agrega nada: si está trabado, el timeout de escritura del conector lo hace fallar
+    @Scheduled(fixedDelayString = "${catalogo.sse.heartbeat-ms:15000}")
+    public void latido() {
+        for (Suscriptor s : suscriptores) {
+            if (s.enviando.compareAndSet(false, true)) {
+                envios.execute(() -> {
+                    try {
+                        s.emitter.send(SseEmitter.event().comment("latido"));
+                    } catch (IOException | IllegalStateException e) {
+                        suscriptores.remove(s);
+                    } finally {
+                        s.enviando.set(false);
+                    }
+                    programar(s);
+                });
+            }
+        }
+    }
+
+    public int getSuscriptores() {
+        return suscriptores.size();
+    }
+
+    private void programar(Suscriptor s) {
+        if (s.hayPendientes() && s.enviando.compareAndSet(false, true)) {
+            envios.execute(() -> drenar(s));
+        }
+    }
+
+    private void drenar(Suscriptor s) {
+        try {
+            List<Evento> lote;
+            while (!(lote = s.tomar()).isEmpty()) {
+                for (Evento e : lote) {
+                    s.emitter.send(SseEmitter.event().id(String.valueOf(e.seq())).name(e.nombre()).data(e.json(), MediaType.APPLICATION_JSON));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado o escritura vencida: el contenedor completa el emitter y se quita en onError/onCompletion
+            suscriptores.remove(s);
+        } finally {
+            s.enviando.set(false);
+        }
+        // Pudo llegar algo entre el último tomar() y soltar el flag
+        if (suscriptores.contains(s)) programar(s);
+    }
+
+    private void desalojar(Suscriptor s, String motivo) {
+        if (suscriptores.remove(s)) {
+            log.debug("Suscriptor SSE desalojado: {}", motivo);
+            s.emitter.complete(); // el cliente reconecta con Last-Event-ID
+        }
+    }
+
+    private Evento evento(CambioCatalogoDto c) {
+        try {
+            String nombre = c.getTipo() == CambioCatalogo.Tipo.ELIMINADO ? "eliminado" : "producto";
+            return new Evento(c.getSeq(), nombre, objectMapper.writeValueAsString(c));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        for (Suscriptor s : suscriptores) {
+            s.emitter.complete();
+        }
+        suscriptores.clear();
+        if (envios instanceof ExecutorService pool) pool.shutdownNow();
+    }
+}
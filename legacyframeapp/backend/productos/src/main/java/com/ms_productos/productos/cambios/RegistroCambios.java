@@ -0,0 +1,240 @@
+package com.ms_productos.productos.cambios;
+
+import com.ms_productos.productos.config.RecursosVersionados;
+import com.ms_productos.productos.dto.CambioCatalogoDto;
+import com.ms_productos.productos.dto.CambiosCatalogoDto;
+import com.ms_productos.productos.event.ProductoCambiadoEvent;
+import com.ms_productos.productos.model.CambioCatalogo;
+import com.ms_productos.productos.model.CompactacionCambios;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.CambioCatalogoRepository;
+import com.ms_productos.productos.repository.CompactacionCambiosRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro persistente y secuenciado de cambios del catálogo, para sincronizar por diferencias.
+ *
+ * Cada transacción que cambia productos agrega sus filas antes de confirmar. El seq es la clave
+ * AUTO_INCREMENT de la fila: no hay un contador compartido que bloquear, así que dos transacciones
+ * (de esta u otra instancia) registran a la vez. Para un mismo producto los seq siguen el orden de
+ * commit: la fila del producto se escribe (y queda bloqueada) antes de pedir el seq.
+ *
+ * Entre productos distintos el seq N puede confirmarse antes que el N-1. Para que un lector nunca
+ * avance por encima de un cambio que todavía no ve, {@link #ultimoConfirmado()} devuelve una marca:
+ * el mayor seq sin huecos por debajo. Un hueco es una transacción en curso o una que se deshizo
+ * (MySQL no reutiliza los valores); pasados {@code catalogo.cambios.espera-hueco-ms} desde la fila
+ * siguiente se da por deshecho. {@code /cambios} y el stream SSE leen solo hasta esa marca.
+ *
+ * Las filas más viejas que {@code catalogo.cambios.retencion-dias} se borran; quien pida cambios
+ * desde antes de lo borrado recibe {@code reiniciar = true}.
+ */
+@Component
+public class RegistroCambios {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroCambios.class);
+
+    public static final int LIMITE_MAX = 1000;
+    public static final int LIMITE_DEFECTO = 500;
+
+    @Autowired
+    private CambioCatalogoRepository cambioRepository;
+
+    @Autowired
+    private CompactacionCambiosRepository compactacionRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    private RecursosVersionados recursos;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${catalogo.cambios.retencion-dias:7}")
+    private int retencionDias;
+
+    @Value("${catalogo.cambios.espera-hueco-ms:10000}")
+    private long esperaHuecoMs;
+
+    // Protegida por el monitor: seq hasta el que todo está confirmado (o deshecho); -1 = sin calcular
+    private long marca = -1;
+
+    // Cambios hechos por ProductoService / StockService (solo dentro de una transacción).
+    // El seq queda en el evento para los listeners que corren después del commit
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onProductoCambiado(ProductoCambiadoEvent evento) {
+        evento.setSeq(registrar(List.of(evento.getProductoId()), evento.getTipo() == ProductoCambiadoEvent.Tipo.ELIMINADO
+                ? CambioCatalogo.Tipo.ELIMINADO
+                : CambioCatalogo.Tipo.GUARDADO));
+    }
+
+    // Para cambios masivos (importación, volcado de stock): llamar dentro de la transacción del cambio.
+    // Devuelve el mayor seq asignado (-1 si no había nada que registrar)
+    public long registrar(Collection<Long> productoIds, CambioCatalogo.Tipo tipo) {
+        if (productoIds.isEmpty()) return -1;
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("El registro de cambios debe escribirse en la transacción del cambio");
+        }
+        // Primero las filas de productos: su lock ordena los seq de un mismo producto como sus commits
+        entityManager.flush();
+
+        long seq = -1;
+        Instant ahora = Instant.now();
+        for (Long id : productoIds) {
+            CambioCatalogo c = new CambioCatalogo();
+            c.setProductoId(id);
+            c.setTipo(tipo);
+            c.setFecha(ahora);
+            entityManager.persist(c); // IDENTITY: el INSERT sale ya y trae el seq
+            seq = Math.max(seq, c.getSeq());
+        }
+        return seq;
+    }
+
+    // Marca de lo confirmado, avanzada leyendo la primaria (incluye lo que confirmaron otras instancias).
+    // La usan DifusionCambios para saber si hay algo nuevo y CatalogoEnMemoria al recargar.
+    public synchronized long ultimoConfirmado() {
+        Long nueva = new TransactionTemplate(transactionManager).execute(status -> avanzar(marca));
+        marca = nueva != null ? nueva : Math.max(marca, 0);
+        return marca;
+    }
+
+    // Recorre las filas posteriores a la marca mientras no haya un hueco reciente
+    private long avanzar(long desde) {
+        long m = desde >= 0 ? desde : marcaInicial();
+        Instant limite = Instant.now().minusMillis(esperaHuecoMs);
+        List<CambioCatalogo> filas;
+        do {
+            filas = cambioRepository.findBySeqGreaterThanOrderBySeq(m, PageRequest.of(0, LIMITE_MAX));
+            for (CambioCatalogo c : filas) {
+                if (c.getSeq() != m + 1 && c.getFecha().isAfter(limite)) return m; // puede estar en curso
+                m = c.getSeq();
+            }
+        } while (filas.size() == LIMITE_MAX);
+        return m;
+    }
+
+    // Al arrancar: lo anterior a la espera ya no puede tener huecos en curso (evita recorrer toda la retención)
+    private long marcaInicial() {
+        long compactado = compactacionRepository.findById(CompactacionCambios.ID).map(CompactacionCambios::getHastaSeq).orElse(0L);
+        Long viejo = cambioRepository.findMaxSeqAntesDe(Instant.now().minusMillis(esperaHuecoMs));
+        return viejo != null ? Math.max(viejo, compactado) : compactado;
+    }
+
+    // Cambios confirmados con seq > desde. Si un producto aparece varias veces en la página
+    // se informa una sola vez, con su estado actual.
+    public CambiosCatalogoDto leer(long desde, Integer limite) {
+        int tamano = limite == null || limite <= 0 ? LIMITE_DEFECTO : Math.min(limite, LIMITE_MAX);
+        long compactado = compactacionRepository.findById(CompactacionCambios.ID).map(CompactacionCambios::getHastaSeq).orElse(0L);
+        long confirmado = ultimoConfirmado();
+
+        CambiosCatalogoDto dto = new CambiosCatalogoDto();
+        if (desde > confirmado) {
+            // Un seq que la base nunca entregó (base recreada): recargar. Si existe, la marca de esta
+            // instancia todavía no llegó ahí (lo vio en otra) y no hay nada nuevo que darle
+            Long max = new TransactionTemplate(transactionManager).execute(status -> cambioRepository.findMaxSeq());
+            if (desde > Math.max(max != null ? max : 0L, compactado)) {
+                dto.setReiniciar(true);
+                dto.setHasta(confirmado);
+            } else {
+                dto.setHasta(desde);
+            }
+            return dto;
+        }
+        if (desde < compactado) {
+            dto.setReiniciar(true);
+            dto.setHasta(confirmado);
+            return dto;
+        }
+
+        List<CambioCatalogo> filas = cambioRepository.findBySeqGreaterThanAndSeqLessThanEqualOrderBySeq(
+                desde, confirmado, PageRequest.of(0, tamano + 1));
+        // Con réplica, una fila bajo la marca puede no haber llegado todavía: se corta antes del hueco.
+        // Un hueco que la primaria tampoco tiene es una transacción deshecha y se saltea
+        long previo = desde;
+        int contiguas = 0;
+        for (CambioCatalogo c : filas) {
+            if (c.getSeq() != previo + 1 && hayFilasEntre(previo, c.getSeq())) break;
+            previo = c.getSeq();
+            contiguas++;
+        }
+        if (contiguas > tamano) {
+            filas = filas.subList(0, tamano);
+            dto.setHayMas(true);
+        } else {
+            filas = filas.subList(0, contiguas);
+        }
+        dto.setHasta(filas.isEmpty() ? desde : filas.get(filas.size() - 1).getSeq());
+
+        Map<Long, CambioCatalogo> ultimoPorProducto = new LinkedHashMap<>();
+        for (CambioCatalogo c : filas) {
+            ultimoPorProducto.remove(c.getProductoId());
+            ultimoPorProducto.put(c.getProductoId(), c);
+        }
+        // Estado desde la base (no del catálogo en memoria, que se actualiza un instante después del commit)
+        Map<Long, Producto> productos = new HashMap<>();
+        for (Producto p : productoRepository.findConCategoriaPorIds(ultimoPorProducto.keySet())) {
+            if (recursos != null) p.setImagenUrl(recursos.versionar(p.getImagenUrl()));
+            productos.put(p.getId(), p);
+        }
+        for (CambioCatalogo c : ultimoPorProducto.values()) {
+            Producto p = productos.get(c.getProductoId());
+            // Guardado y borrado después: se informa ya como tombstone
+            CambioCatalogo.Tipo tipo = p == null ? CambioCatalogo.Tipo.ELIMINADO : c.getTipo();
+            dto.getCambios().add(new CambioCatalogoDto(c.getSeq(), c.getProductoId(), tipo,
+                    tipo == CambioCatalogo.Tipo.ELIMINADO ? null : p));
+        }
+        return dto;
+    }
+
+    // En la primaria: ¿hay filas con seq entre desde y hasta (exclusivos)?
+    private boolean hayFilasEntre(long desde, long hasta) {
+        return Boolean.TRUE.equals(new TransactionTemplate(transactionManager)
+                .execute(status -> cambioRepository.existsBySeqBetween(desde + 1, hasta - 1)));
+    }
+
+    // Borra lo más viejo que la retención y avanza la marca de compactación
+    @Scheduled(cron = "${catalogo.cambios.compactacion-cron:0 30 3 * * *}")
+    public void compactar() {
+        Instant antes = Instant.now().minus(Duration.ofDays(retencionDias));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Long hasta = cambioRepository.findMaxSeqAntesDe(antes);
+            if (hasta == null) return;
+            int borrados = cambioRepository.borrarHasta(hasta);
+            CompactacionCambios marca = compactacionRepository.findById(CompactacionCambios.ID).orElseGet(() -> {
+                CompactacionCambios m = new CompactacionCambios();
+                m.setId(CompactacionCambios.ID);
+                return m;
+            });
+            marca.setHastaSeq(Math.max(marca.getHastaSeq(), hasta));
+            compactacionRepository.save(marca);
+            log.info("Registro de cambios compactado: {} filas borradas (hasta seq {})", borrados, hasta);
+        });
+    }
+}
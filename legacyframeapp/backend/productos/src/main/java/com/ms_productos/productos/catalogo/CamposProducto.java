@@ -0,0 +1,109 @@
+package com.ms_productos.productos.catalogo;
+
+import com.ms_productos.productos.imagenes.ImagenService;
+import com.ms_productos.productos.model.Producto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Campos de producto pedidos con {@code ?fields=} (lista blanca). Cada respuesta se arma como un
+ * mapa plano con solo esas claves, así que lo que no se pidió no se serializa; en las consultas a
+ * MySQL tampoco se selecciona (y la categoría solo se une si se pidió alguno de sus campos).
+ *
+ * {@code miniatura} es la variante thumb cuando el producto tiene imagen subida (basta el hash) y
+ * la imagenUrl original cuando no.
+ */
+public final class CamposProducto {
+
+    public enum Campo {
+        ID("id"),
+        NOMBRE("nombre"),
+        DESCRIPCION("descripcion"),
+        PRECIO("precio"),
+        STOCK("stock"),
+        IMAGEN_URL("imagenUrl"),
+        MINIATURA("miniatura"),
+        CATEGORIA_ID("categoriaId"),
+        CATEGORIA_NOMBRE("categoriaNombre");
+
+        private final String nombre;
+
+        Campo(String nombre) {
+            this.nombre = nombre;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+    }
+
+    private static final Map<String, Campo> POR_NOMBRE = Arrays.stream(Campo.values())
+            .collect(Collectors.toUnmodifiableMap(Campo::getNombre, c -> c));
+
+    // Constante para poder usarla en la documentación de los endpoints; debe coincidir con Campo (CamposProductoTest)
+    public static final String PERMITIDOS = "id,nombre,descripcion,precio,stock,imagenUrl,miniatura,categoriaId,categoriaNombre";
+
+    private final Set<Campo> campos;
+
+    private CamposProducto(Set<Campo> campos) {
+        this.campos = Collections.unmodifiableSet(campos);
+    }
+
+    // "nombre,precio,miniatura" -> campos pedidos (el id va siempre). null si no se pidió proyección.
+    public static CamposProducto parse(String fields) {
+        if (fields == null || fields.isBlank()) return null;
+        EnumSet<Campo> campos = EnumSet.of(Campo.ID);
+        for (String nombre : fields.split(",")) {
+            String limpio = nombre.trim();
+            if (limpio.isEmpty()) continue;
+            Campo campo = POR_NOMBRE.get(limpio);
+            if (campo == null) {
+                throw new IllegalArgumentException("Campo desconocido: " + limpio + " (permitidos: " + PERMITIDOS + ")");
+            }
+            campos.add(campo);
+        }
+        return new CamposProducto(campos);
+    }
+
+    public Set<Campo> getCampos() {
+        return campos;
+    }
+
+    public boolean incluye(Campo campo) {
+        return campos.contains(campo);
+    }
+
+    public boolean requiereCategoria() {
+        return campos.contains(Campo.CATEGORIA_ID) || campos.contains(Campo.CATEGORIA_NOMBRE);
+    }
+
+    // Proyección de un producto del catálogo en memoria (ya trae la categoría)
+    public Map<String, Object> proyectar(Producto p) {
+        Map<String, Object> fila = new LinkedHashMap<>();
+        for (Campo campo : campos) {
+            Object valor = switch (campo) {
+                case ID -> p.getId();
+                case NOMBRE -> p.getNombre();
+                case DESCRIPCION -> p.getDescripcion();
+                case PRECIO -> p.getPrecio();
+                case STOCK -> p.getStock();
+                case IMAGEN_URL -> p.getImagenUrl();
+                case MINIATURA -> miniatura(p.getImagenHash(), p.getImagenUrl());
+                case CATEGORIA_ID -> p.getCategoria() != null ? p.getCategoria().getId() : null;
+                case CATEGORIA_NOMBRE -> p.getCategoria() != null ? p.getCategoria().getNombre() : null;
+            };
+            fila.put(campo.getNombre(), valor);
+        }
+        return fila;
+    }
+
+    public static String miniatura(String imagenHash, String imagenUrl) {
+        return imagenHash != null ? ImagenService.urlVariante(imagenHash, "thumb") : imagenUrl;
+    }
+}
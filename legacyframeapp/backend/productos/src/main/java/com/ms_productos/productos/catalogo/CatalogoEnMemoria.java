@@ -0,0 +1,230 @@
+package com.ms_productos.productos.catalogo;
+
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.config.RecursosVersionados;
+import com.ms_productos.productos.event.CatalogoRecargadoEvent;
+import com.ms_productos.productos.event.ProductoCambiadoEvent;
+import com.ms_productos.productos.event.ProductoPublicadoEvent;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.CategoriaRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Catálogo en memoria para las lecturas (listados, detalle, categorías).
+ *
+ * Los lectores solo leen una referencia volatile a un {@link CatalogoSnapshot} inmutable:
+ * no toman locks ni van a MySQL. Las escrituras (serializadas entre sí) construyen una
+ * copia con el cambio aplicado y la publican de forma atómica con una versión nueva.
+ *
+ * Copiar la foto cuesta lo que el catálogo, así que los cambios se agrupan: cada evento entra a una
+ * cola y quien tiene el lock de escritura aplica todo lo acumulado en una sola foto nueva. Un hilo
+ * que confirma mientras otro está copiando deja su cambio en la cola y sigue (una ráfaga de reservas
+ * no hace fila detrás de las copias).
+ *
+ * Los cambios llegan después del commit desde hilos distintos y pueden llegar desordenados (dos
+ * reservas del mismo producto). Cada uno trae el seq del registro de cambios, que para un mismo
+ * producto sigue el orden de commit: se descarta el que es más viejo que lo ya aplicado para ese
+ * producto o que la última recarga. Los índices derivados reciben {@link ProductoPublicadoEvent} desde acá, en ese orden.
+ */
+@Component
+public class CatalogoEnMemoria {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogoEnMemoria.class);
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RegistroCambios registroCambios;
+
+    // Ausente en los tests de JPA: ahí las URLs se publican sin huella
+    @Autowired(required = false)
+    private RecursosVersionados recursos;
+
+    private volatile CatalogoSnapshot actual;
+
+    // Serializa recargas y tandas de cambios; los eventos esperan en la cola hasta la próxima tanda
+    private final ReentrantLock escritura = new ReentrantLock();
+    private final ConcurrentLinkedQueue<ProductoCambiadoEvent> pendientes = new ConcurrentLinkedQueue<>();
+
+    // Protegidos por el lock de escritura: seq confirmado antes de la última recarga (lo anterior ya está
+    // en la foto) y último seq aplicado de cada producto cambiado después
+    private long seqRecarga = -1;
+    private final Map<Long, Long> seqPorProducto = new HashMap<>();
+
+    // Punto de lectura: siempre devuelve una foto consistente
+    public CatalogoSnapshot snapshot() {
+        CatalogoSnapshot s = actual;
+        if (s == null) {
+            // Primera lectura antes de ApplicationReadyEvent (por ejemplo, en tests)
+            s = recargar();
+        }
+        return s;
+    }
+
+    // La carga inicial espera a que DataLoader haya poblado la base
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarInicial() {
+        recargar();
+    }
+
+    // Reconstruye la foto completa desde MySQL (arranque o cambios masivos)
+    // y avisa a los índices derivados para que se reconstruyan desde ella
+    public CatalogoSnapshot recargar() {
+        CatalogoSnapshot nuevo;
+        escritura.lock();
+        try {
+            nuevo = recargarConLock();
+        } finally {
+            escritura.unlock();
+        }
+        aplicarPendientes(); // los que llegaron durante la recarga
+        return nuevo;
+    }
+
+    private CatalogoSnapshot recargarConLock() {
+        List<Categoria> categorias = new ArrayList<>();
+        TreeMap<Long, Producto> productos = new TreeMap<>();
+        // Antes de leer: todo cambio con seq hasta acá queda incluido en la foto
+        long seq = registroCambios.ultimoConfirmado();
+        // Transacción de escritura: con réplica configurada la foto se arma desde la primaria,
+        // si no, una recarga justo después de un import podría salir sin sus cambios
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (Categoria c : categoriaRepository.findAll()) {
+                categorias.add(copiar(c));
+            }
+            CatalogoSnapshot base = new CatalogoSnapshot(0L, new TreeMap<>(), categorias);
+            for (Producto p : productoRepository.findAllConCategoria()) {
+                productos.put(p.getId(), copiar(p, base));
+            }
+        });
+        CatalogoSnapshot nuevo = new CatalogoSnapshot(siguienteVersion(), productos, categorias);
+        actual = nuevo;
+        seqRecarga = Math.max(seqRecarga, seq);
+        // Los posteriores se conservan: la foto pudo leer un cambio cuyo evento ya pasó y uno más viejo sigue en camino
+        seqPorProducto.values().removeIf(s -> s <= seqRecarga);
+        log.info("Catálogo en memoria recargado: {} productos, {} categorías (versión {})",
+                nuevo.getProductos().size(), categorias.size(), nuevo.getVersion());
+        eventos.publishEvent(new CatalogoRecargadoEvent(nuevo));
+        return nuevo;
+    }
+
+    // Se aplica después del commit para no publicar cambios que luego se revierten
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductoCambiado(ProductoCambiadoEvent evento) {
+        pendientes.add(evento);
+        aplicarPendientes();
+    }
+
+    // Si otro hilo tiene el lock, al soltarlo vuelve a mirar la cola y aplica también este cambio
+    private void aplicarPendientes() {
+        do {
+            if (!escritura.tryLock()) return;
+            try {
+                aplicarTanda();
+            } finally {
+                escritura.unlock();
+            }
+        } while (!pendientes.isEmpty());
+    }
+
+    private void aplicarTanda() {
+        List<ProductoCambiadoEvent> tanda = new ArrayList<>();
+        for (ProductoCambiadoEvent e = pendientes.poll(); e != null; e = pendientes.poll()) tanda.add(e);
+        if (tanda.isEmpty()) return;
+        CatalogoSnapshot previo = actual;
+        if (previo == null) {
+            recargarConLock();
+            return;
+        }
+
+        TreeMap<Long, Producto> productos = null;
+        List<ProductoPublicadoEvent> publicados = new ArrayList<>();
+        for (ProductoCambiadoEvent evento : tanda) {
+            if (evento.getSeq() >= 0) {
+                Long aplicado = seqPorProducto.get(evento.getProductoId());
+                if (evento.getSeq() <= seqRecarga || (aplicado != null && evento.getSeq() <= aplicado)) continue;
+                seqPorProducto.put(evento.getProductoId(), evento.getSeq());
+            }
+            if (productos == null) productos = previo.copiarProductos();
+            Producto publicado = null;
+            if (evento.getTipo() == ProductoCambiadoEvent.Tipo.ELIMINADO) {
+                if (productos.remove(evento.getProductoId()) == null) continue;
+            } else {
+                Producto p = evento.getProducto();
+                Long categoriaId = p.getCategoria() != null ? p.getCategoria().getId() : null;
+                if (categoriaId != null && previo.getCategoria(categoriaId) == null) {
+                    // Categoría que aún no conocemos: lo más simple y seguro es recargar todo
+                    // (la tanda ya está confirmada, así que la recarga la incluye entera)
+                    recargarConLock();
+                    return;
+                }
+                publicado = copiar(p, previo);
+                productos.put(p.getId(), publicado);
+            }
+            publicados.add(new ProductoPublicadoEvent(evento.getTipo(), evento.getProductoId(), publicado));
+        }
+        if (publicados.isEmpty()) return;
+        actual = new CatalogoSnapshot(siguienteVersion(), productos, previo.getCategorias());
+        publicados.forEach(eventos::publishEvent);
+    }
+
+    private long siguienteVersion() {
+        CatalogoSnapshot s = actual;
+        return s == null ? 1L : s.getVersion() + 1;
+    }
+
+    // Copias desacopladas de JPA: lo que se publica en la foto nadie lo vuelve a modificar.
+    // Las imágenes de /assets se publican con huella para que los clientes las cacheen como inmutables
+    private Producto copiar(Producto origen, CatalogoSnapshot catalogo) {
+        Producto p = new Producto();
+        p.setId(origen.getId());
+        p.setNombre(origen.getNombre());
+        p.setDescripcion(origen.getDescripcion());
+        p.setPrecio(origen.getPrecio());
+        p.setStock(origen.getStock());
+        p.setImagenUrl(recursos != null ? recursos.versionar(origen.getImagenUrl()) : origen.getImagenUrl());
+        p.setImagenHash(origen.getImagenHash());
+        if (origen.getCategoria() != null) {
+            Categoria c = catalogo.getCategoria(origen.getCategoria().getId());
+            p.setCategoria(c != null ? c : copiar(origen.getCategoria()));
+        }
+        return p;
+    }
+
+    private static Categoria copiar(Categoria origen) {
+        Categoria c = new Categoria();
+        c.setId(origen.getId());
+        c.setNombre(origen.getNombre());
+        c.setDescripcion(origen.getDescripcion());
+        return c;
+    }
+}
@@ -0,0 +1,206 @@
+package com.ms_productos.productos.catalogo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respuestas del catálogo ya serializadas (JSON y JSON+gzip) para la versión vigente
+ * del {@link CatalogoSnapshot}. Mientras la versión no cambie, un GET no serializa,
+ * no comprime ni toca la base; si el cliente ya tiene la versión (If-None-Match) recibe un 304.
+ * Si el cliente pide CBOR (Accept: application/cbor) se arma y guarda también esa variante.
+ */
+@Component
+public class CatalogoSerializado implements InitializingBean {
+
+    public static final String HEADER_VERSION = "X-Catalogo-Version";
+
+    public enum Recurso { PRODUCTOS, CATEGORIAS }
+
+    private enum Formato { JSON, CBOR }
+
+    // Bytes listos para una versión concreta del catálogo. Cada codificación tiene su ETag fuerte
+    // (son bytes distintos); cualquiera de los dos sirve para revalidar
+    private record Entrada(long version, byte[] cuerpo, byte[] gzip, String etag, String etagGzip) { }
+
+    @Autowired
+    private CatalogoEnMemoria catalogo;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter conversorCbor;
+
+    private final Map<Formato, ObjectMapper> mappers = new EnumMap<>(Formato.class);
+    private final Map<Recurso, Map<Formato, AtomicReference<Entrada>>> cache = new EnumMap<>(Recurso.class);
+
+    public CatalogoSerializado() {
+        for (Recurso r : Recurso.values()) {
+            Map<Formato, AtomicReference<Entrada>> porFormato = new EnumMap<>(Formato.class);
+            for (Formato f : Formato.values()) porFormato.put(f, new AtomicReference<>());
+            cache.put(r, porFormato);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        mappers.put(Formato.JSON, objectMapper);
+        mappers.put(Formato.CBOR, conversorCbor.getObjectMapper());
+    }
+
+    public ResponseEntity<byte[]> responder(Recurso recurso, String ifNoneMatch, String acceptEncoding, String accept) {
+        Formato formato = prefiereCbor(accept) ? Formato.CBOR : Formato.JSON;
+        Entrada entrada = obtener(recurso, formato);
+
+        boolean gzip = aceptaGzip(acceptEncoding);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(gzip ? entrada.etagGzip() : entrada.etag());
+        headers.setCacheControl(CacheControl.noCache()); // siempre revalidar, pero barato
+        headers.setVary(List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING));
+        headers.set(HEADER_VERSION, Long.toString(entrada.version()));
+
+        if (coincideEtag(ifNoneMatch, entrada.etag(), entrada.etagGzip())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.setContentType(formato == Formato.CBOR ? MediaType.APPLICATION_CBOR : MediaType.APPLICATION_JSON);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new ResponseEntity<>(entrada.gzip(), headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(entrada.cuerpo(), headers, HttpStatus.OK);
+    }
+
+    private Entrada obtener(Recurso recurso, Formato formato) {
+        CatalogoSnapshot snapshot = catalogo.snapshot();
+        AtomicReference<Entrada> ref = cache.get(recurso).get(formato);
+        Entrada entrada = ref.get();
+        if (entrada != null && entrada.version() >= snapshot.getVersion()) {
+            return entrada;
+        }
+        // Un solo hilo serializa cada versión; el resto espera y reutiliza el resultado
+        synchronized (ref) {
+            entrada = ref.get();
+            if (entrada == null || entrada.version() < snapshot.getVersion()) {
+                entrada = construir(recurso, formato, snapshot);
+                ref.set(entrada);
+            }
+            return entrada;
+        }
+    }
+
+    private Entrada construir(Recurso recurso, Formato formato, CatalogoSnapshot snapshot) {
+        Object cuerpo = recurso == Recurso.PRODUCTOS ? snapshot.getProductos() : snapshot.getCategorias();
+        try {
+            byte[] bytes = mappers.get(formato).writeValueAsBytes(cuerpo);
+            String etag = etag(bytes);
+            return new Entrada(snapshot.getVersion(), bytes, gzip(bytes), etag, etag.substring(0, etag.length() - 1) + "-gz\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el catálogo", e);
+        }
+    }
+
+    // ETag fuerte basado en el contenido: es estable entre instancias del servicio
+    private static String etag(byte[] contenido) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(contenido);
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] datos) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, datos.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out) {
+            { def.setLevel(Deflater.BEST_COMPRESSION); } // se comprime una vez por versión
+        }) {
+            gz.write(datos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static boolean coincideEtag(String ifNoneMatch, String... etags) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+        for (String candidato : ifNoneMatch.split(",")) {
+            String c = candidato.trim();
+            if (c.equals("*")) return true;
+            if (c.startsWith("W/")) c = c.substring(2); // If-None-Match usa comparación débil
+            for (String etag : etags) {
+                if (c.equals(etag)) return true;
+            }
+        }
+        return false;
+    }
+
+    // CBOR solo si el cliente lo nombra y no prefiere JSON (*/* o sin Accept sigue siendo JSON).
+    // A igual calidad gana el que aparece primero, como en la negociación de Spring MVC.
+    static boolean prefiereCbor(String accept) {
+        if (accept == null || accept.isBlank()) return false;
+        double qCbor = 0;
+        double qJson = 0;
+        boolean cborPrimero = false;
+        try {
+            for (MediaType tipo : MediaType.parseMediaTypes(accept)) {
+                double q = tipo.getQualityValue();
+                if (tipo.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) {
+                    if (q > qCbor) {
+                        qCbor = q;
+                        cborPrimero = q > qJson;
+                    }
+                } else if (tipo.includes(MediaType.APPLICATION_JSON) && q > qJson) {
+                    qJson = q;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return qCbor > 0 && (qCbor > qJson || (qCbor == qJson && cborPrimero));
+    }
+
+    private static boolean esCero(String q) {
+        try {
+            return Double.parseDouble(q.trim()) == 0.0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static boolean aceptaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String parte : acceptEncoding.split(",")) {
+            String[] tokens = parte.trim().split(";");
+            if (!tokens[0].trim().equalsIgnoreCase("gzip")) continue;
+            for (int i = 1; i < tokens.length; i++) {
+                String t = tokens[i].trim();
+                if (t.startsWith("q=") && esCero(t.substring(2))) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package com.ms_productos.productos.catalogo;
+
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Foto inmutable del catálogo. Nunca se modifica después de publicarse:
+ * cada cambio construye una instancia nueva (copy-on-write) en {@link CatalogoEnMemoria}.
+ */
+public final class CatalogoSnapshot {
+
+    private final long version;
+    private final List<Producto> productos;                  // ordenados por id
+    private final Map<Long, Producto> productosPorId;
+    private final Map<Long, List<Producto>> productosPorCategoria;
+    private final List<Categoria> categorias;
+    private final Map<Long, Categoria> categoriasPorId;
+    private final Map<String, Categoria> categoriasPorNombre;
+
+    CatalogoSnapshot(long version, TreeMap<Long, Producto> productosOrdenados, List<Categoria> categorias) {
+        this.version = version;
+        this.productos = Collections.unmodifiableList(new ArrayList<>(productosOrdenados.values()));
+        this.productosPorId = Collections.unmodifiableMap(new HashMap<>(productosOrdenados));
+
+        Map<Long, List<Producto>> porCategoria = new HashMap<>();
+        for (Producto p : this.productos) {
+            if (p.getCategoria() != null) {
+                porCategoria.computeIfAbsent(p.getCategoria().getId(), k -> new ArrayList<>()).add(p);
+            }
+        }
+        porCategoria.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        this.productosPorCategoria = Collections.unmodifiableMap(porCategoria);
+
+        this.categorias = Collections.unmodifiableList(new ArrayList<>(categorias));
+        Map<Long, Categoria> porId = new LinkedHashMap<>();
+        Map<String, Categoria> porNombre = new HashMap<>();
+        for (Categoria c : categorias) {
+            porId.put(c.getId(), c);
+            if (c.getNombre() != null) porNombre.put(c.getNombre().toLowerCase(), c);
+        }
+        this.categoriasPorId = Collections.unmodifiableMap(porId);
+        this.categoriasPorNombre = Collections.unmodifiableMap(porNombre);
+    }
+
+    static CatalogoSnapshot vacio() {
+        return new CatalogoSnapshot(0L, new TreeMap<>(), List.of());
+    }
+
+    public long getVersion() { return version; }
+
+    public List<Producto> getProductos() { return productos; }
+
+    public Producto getProducto(Long id) { return productosPorId.get(id); }
+
+    public List<Producto> getProductosPorCategoria(Long categoriaId) {
+        return productosPorCategoria.getOrDefault(categoriaId, List.of());
+    }
+
+    public List<Categoria> getCategorias() { return categorias; }
+
+    public Categoria getCategoria(Long id) { return categoriasPorId.get(id); }
+
+    public Categoria getCategoriaPorNombre(String nombre) {
+        return nombre == null ? null : categoriasPorNombre.get(nombre.toLowerCase());
+    }
+
+    // Vista ordenada de los productos para construir la siguiente versión
+    TreeMap<Long, Producto> copiarProductos() {
+        TreeMap<Long, Producto> copia = new TreeMap<>();
+        for (Producto p : productos) copia.put(p.getId(), p);
+        return copia;
+    }
+}
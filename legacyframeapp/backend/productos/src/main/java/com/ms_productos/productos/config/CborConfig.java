@@ -0,0 +1,25 @@
+package com.ms_productos.productos.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// CBOR como alternativa binaria a JSON: solo se usa si el cliente la pide con Accept: application/cbor.
+// Mismo builder que el ObjectMapper de Spring Boot (módulos, fechas ISO, etc.), así ambos formatos
+// llevan los mismos campos. Reemplaza al conversor CBOR por defecto y queda después del de JSON,
+// por lo que Accept: */* (o sin Accept) sigue respondiendo JSON.
+@Configuration
+public class CborConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter conversorCbor(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(cborMapper(builder));
+    }
+
+    public static ObjectMapper cborMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new CBORFactory()).build();
+    }
+}
@@ -1,12 +1,22 @@
 package com.ms_productos.productos.config; // Ajusta el paquete si es necesario
 
+import com.ms_productos.productos.imagenes.ImagenService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class MvcConfig implements WebMvcConfigurer {
+
+    static final CacheControl REVALIDAR = CacheControl.maxAge(10, TimeUnit.MINUTES).cachePublic().mustRevalidate();
+
+    @Autowired
+    private ImagenService imagenService;
     
     @Override
     public void addCorsMappings(CorsRegistry registry) {
@@ -20,7 +30,22 @@ public class MvcConfig implements WebMvcConfigurer {
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Mapea la URL "/images/**" a la carpeta física "uploads" en la raíz del proyecto
+        // (configurable con catalogo.imagenes.directorio; es donde ImagenService guarda originales y variantes)
+        String uploads = imagenService.getRaiz().toUri().toString();
+
+        // Lo que guarda ImagenService se llama <sha-256>.<ext>: la URL nunca cambia de contenido y el hash sirve tal cual como ETag
+        registry.addResourceHandler("/images/{carpeta:\\w+}/{archivo:[0-9a-f]{64}\\.\\w+}")
+                .addResourceLocations(uploads)
+                .setCacheControl(WebConfig.INMUTABLE)
+                .setEtagGenerator(resource -> {
+                    String nombre = resource.getFilename();
+                    int punto = nombre != null ? nombre.lastIndexOf('.') : -1;
+                    return punto > 0 ? nombre.substring(0, punto) : null;
+                });
+        // Cualquier otro archivo (subidas anteriores, nombres a mano) puede reemplazarse bajo la misma URL:
+        // caché corta y después se revalida con Last-Modified
         registry.addResourceHandler("/images/**")
-                .addResourceLocations("file:uploads/");
+                .addResourceLocations(uploads)
+                .setCacheControl(REVALIDAR);
     }
 }
\ No newline at end of file
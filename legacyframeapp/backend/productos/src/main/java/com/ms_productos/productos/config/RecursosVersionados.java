@@ -0,0 +1,48 @@
+package com.ms_productos.productos.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Traduce las URLs de /assets/** guardadas en los productos a su versión con huella
+ * ({@code /assets/marcoRustico-<md5>.png}) y viceversa.
+ *
+ * En la base se guarda siempre la URL simple; el catálogo en memoria publica la versionada
+ * para que los clientes puedan cachearla como inmutable. Si el archivo cambia en un despliegue
+ * cambia la huella, y con ella la URL.
+ */
+@Component
+public class RecursosVersionados {
+
+    private static final String PREFIJO_ASSETS = "/assets/";
+
+    // Huella que agrega VersionResourceResolver con ContentVersionStrategy: "-" + md5 en hex antes de la extensión
+    private static final Pattern HUELLA = Pattern.compile("-[0-9a-f]{32}(?=\\.[^./]+$)");
+
+    @Autowired
+    private ResourceUrlProvider resourceUrlProvider;
+
+    // Los assets vienen del classpath: la huella no cambia mientras la app está arriba
+    private final Map<String, String> versionadas = new ConcurrentHashMap<>();
+
+    public String versionar(String url) {
+        if (url == null || !url.startsWith(PREFIJO_ASSETS) || tieneHuella(url)) return url;
+        // Si el asset no existe (o MVC aún no arrancó) no se guarda nada y se devuelve la URL simple
+        String conHuella = versionadas.computeIfAbsent(url, resourceUrlProvider::getForLookupPath);
+        return conHuella != null ? conHuella : url;
+    }
+
+    public static String sinHuella(String url) {
+        if (url == null || !url.startsWith(PREFIJO_ASSETS)) return url;
+        return HUELLA.matcher(url).replaceFirst("");
+    }
+
+    private static boolean tieneHuella(String ruta) {
+        return HUELLA.matcher(ruta).find();
+    }
+}
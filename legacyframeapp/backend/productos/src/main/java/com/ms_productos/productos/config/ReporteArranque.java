@@ -0,0 +1,78 @@
+package com.ms_productos.productos.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Informe de arranque (perfil rapido / {@code arranque.reporte=true}): tiempo desde que arrancó la JVM
+ * hasta que el servicio acepta solicitudes y hasta que atiende la primera, más las inicializaciones de
+ * beans más lentas según el {@link BufferingApplicationStartup} que instala el main.
+ * <p>
+ * Copia idéntica en productos, pedidos y auth_movil (salvo el package): un cambio va en las tres.
+ */
+@Component
+public class ReporteArranque {
+
+    private static final Logger log = LoggerFactory.getLogger(ReporteArranque.class);
+
+    // Capacidad del buffer de pasos de arranque (un paso por bean y por fase del contexto)
+    public static final int CAPACIDAD = 10_000;
+
+    @Value("${arranque.reporte:false}")
+    private boolean reporte;
+
+    @Value("${arranque.reporte.beans:10}")
+    private int beans;
+
+    private final AtomicBoolean primeraSolicitud = new AtomicBoolean();
+
+    @EventListener
+    public void listo(ApplicationReadyEvent evento) {
+        if (!(evento.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup buffer)) {
+            return;
+        }
+        // Se vacía siempre: el buffer no debe quedar ocupando memoria
+        StartupTimeline timeline = buffer.drainBufferedTimeline();
+        if (!reporte) return;
+
+        log.info("Arranque: listo para recibir solicitudes a los {} ms de iniciada la JVM (contexto en {} ms)",
+                ManagementFactory.getRuntimeMXBean().getUptime(), evento.getTimeTaken().toMillis());
+        List<StartupTimeline.TimelineEvent> lentos = timeline.getEvents().stream()
+                .filter(e -> e.getStartupStep().getName().equals("spring.beans.instantiate"))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(beans)
+                .toList();
+        for (StartupTimeline.TimelineEvent e : lentos) {
+            log.info("Arranque: {} ms  {}", e.getDuration().toMillis(), nombreBean(e.getStartupStep()));
+        }
+    }
+
+    @EventListener
+    public void solicitudAtendida(ServletRequestHandledEvent evento) {
+        if (reporte && primeraSolicitud.compareAndSet(false, true)) {
+            log.info("Arranque: primera solicitud ({}) atendida a los {} ms de iniciada la JVM",
+                    evento.getRequestUrl(), ManagementFactory.getRuntimeMXBean().getUptime());
+        }
+    }
+
+    // El tiempo de cada bean incluye el de las dependencias que se crearon dentro de él
+    private static String nombreBean(StartupStep paso) {
+        for (StartupStep.Tag tag : paso.getTags()) {
+            if (tag.getKey().equals("beanName")) return tag.getValue();
+        }
+        return paso.getName();
+    }
+}
@@ -1,16 +1,77 @@
 package com.ms_productos.productos.config;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.CachingResourceResolver;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    // Contenido que no puede cambiar bajo la misma URL: el cliente no vuelve a preguntar en un año
+    static final CacheControl INMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         
-        registry.addResourceHandler("/assets/**")
-                .addResourceLocations("classpath:/static/assets/");
+        // Los assets se piden con huella de contenido (ver RecursosVersionados) y se sirven
+        // precomprimidos (.gz/.br) o en WebP cuando existe el archivo hermano y el cliente lo acepta.
+        // Con huella son inmutables; sin huella se revalidan con ETag/Last-Modified (304 sin cuerpo).
+        // Los rangos (Range: bytes=...) los resuelve ResourceHttpRequestHandler.
+        ResourceResolver cache = new CachingResourceResolver(new ConcurrentMapCache("assets"));
+        ResourceResolver versiones = new VersionResourceResolver().addContentVersionStrategy("/**");
+
+        cadenaAssets(registry.addResourceHandler("/assets/{archivo:.+-[0-9a-f]{32}\\.\\w+}")
+                .setCacheControl(INMUTABLE), cache, versiones);
+        cadenaAssets(registry.addResourceHandler("/assets/**")
+                .setCacheControl(CacheControl.noCache().cachePublic()), cache, versiones);
+    }
+
+    private static void cadenaAssets(ResourceHandlerRegistration registration, ResourceResolver cache, ResourceResolver versiones) {
+        registration.addResourceLocations("classpath:/static/assets/")
+                .setEtagGenerator(WebConfig::etagPorFecha)
+                .resourceChain(false)
+                .addResolver(new WebpResourceResolver())
+                .addResolver(cache)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(versiones);
+    }
+
+    // Igual que nginx: fecha de modificación y tamaño, sin leer el archivo
+    private static String etagPorFecha(Resource resource) {
+        try {
+            return Long.toHexString(resource.lastModified()) + "-" + Long.toHexString(resource.contentLength());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // La misma URL de una imagen puede responder WebP o el original según Accept
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (WebpResourceResolver.admiteWebp(request.getRequestURI())) {
+                    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                }
+                return true;
+            }
+        }).addPathPatterns("/assets/**");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,68 @@
+package com.ms_productos.productos.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Si el cliente acepta image/webp y junto a un JPG/PNG existe el mismo archivo con extensión
+ * .webp (por ejemplo {@code marcoRustico.webp}), responde ese en lugar del original.
+ *
+ * Va antes del CachingResourceResolver porque su resultado depende de Accept, y resuelve primero
+ * el original por la cadena para que la validación de huellas se haga sobre el archivo original.
+ * El Content-Type sale del nombre .webp y el interceptor de WebConfig agrega Vary: Accept.
+ */
+public class WebpResourceResolver extends AbstractResourceResolver {
+
+    // Recurso original -> variante WebP (o el mismo original si no hay)
+    private final Map<String, Resource> variantes = new ConcurrentHashMap<>();
+
+    @Override
+    protected Resource resolveResourceInternal(@Nullable HttpServletRequest request, String requestPath,
+            List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource original = chain.resolveResource(request, requestPath, locations);
+        if (original == null || request == null || !aceptaWebp(request) || !admiteWebp(requestPath)) {
+            return original;
+        }
+        try {
+            return variantes.computeIfAbsent(original.getURL().toString(), k -> buscarWebp(original));
+        } catch (IOException e) {
+            return original;
+        }
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations,
+            ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourceUrlPath, locations);
+    }
+
+    static boolean admiteWebp(String ruta) {
+        String r = ruta.toLowerCase();
+        return r.endsWith(".jpg") || r.endsWith(".jpeg") || r.endsWith(".png");
+    }
+
+    private static boolean aceptaWebp(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains("image/webp");
+    }
+
+    private static Resource buscarWebp(Resource original) {
+        String nombre = original.getFilename();
+        if (nombre == null) return original;
+        try {
+            Resource webp = original.createRelative(nombre.substring(0, nombre.lastIndexOf('.')) + ".webp");
+            return webp.isReadable() ? webp : original;
+        } catch (IOException e) {
+            return original;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ms_productos.productos.controller;
+
+import com.ms_productos.productos.dto.EstadisticasCacheDto;
+import com.ms_productos.productos.dto.RegionCacheDto;
+import com.ms_productos.productos.model.Categoria;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/catalog/cache")
+@CrossOrigin(origins = "http://localhost:5173")
+@Tag(name = "Caché", description = "Estadísticas de la caché de segundo nivel de Hibernate")
+public class CacheController {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @GetMapping("/estadisticas")
+    @Operation(
+            summary = "Estadísticas de caché",
+            description = "Aciertos, fallos y guardados por región (categorías y la lista de categorías en la caché de consultas) "
+                    + "y cuántas filas de categorías se leyeron de la base desde el último reinicio."
+    )
+    public EstadisticasCacheDto estadisticas() {
+        Statistics stats = estadisticasHibernate();
+        List<RegionCacheDto> regiones = new ArrayList<>();
+        String[] nombres = stats.getSecondLevelCacheRegionNames();
+        Arrays.sort(nombres);
+        for (String nombre : nombres) {
+            CacheRegionStatistics region = stats.getCacheRegionStatistics(nombre);
+            if (region == null) continue;
+            regiones.add(new RegionCacheDto(nombre, region.getHitCount(), region.getMissCount(), region.getPutCount()));
+        }
+        return new EstadisticasCacheDto(
+                stats.getStart(),
+                regiones,
+                stats.getQueryCacheHitCount(),
+                stats.getQueryCacheMissCount(),
+                stats.getQueryCachePutCount(),
+                stats.getEntityStatistics(Categoria.class.getName()).getLoadCount(),
+                stats.getPrepareStatementCount()
+        );
+    }
+
+    // Pone los contadores en cero (por ejemplo antes de medir un escenario)
+    @DeleteMapping("/estadisticas")
+    @Operation(summary = "Reiniciar estadísticas de caché", description = "Pone en cero los contadores; no vacía la caché.")
+    public ResponseEntity<Void> reiniciar() {
+        estadisticasHibernate().clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    private Statistics estadisticasHibernate() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -1,14 +1,18 @@
 package com.ms_productos.productos.controller;
 
+import com.ms_productos.productos.catalogo.CatalogoSerializado;
 import com.ms_productos.productos.model.Categoria;
-import com.ms_productos.productos.repository.CategoriaRepository;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/catalog/categorias") // <--- Esta es la ruta que daba 404
 @CrossOrigin(origins = "http://localhost:5173") // <--- Permiso para el Frontend
@@ -16,15 +20,20 @@ import java.util.List;
 public class CategoriaController {
 
     @Autowired
-    private CategoriaRepository categoriaRepository;
+    private CatalogoSerializado catalogoSerializado;
 
     // Listar todas las categorías
     @GetMapping
     @Operation(
             summary = "Listar categorías",
-            description = "Devuelve todas las categorías disponibles para clasificar productos."
+            description = "Devuelve todas las categorías disponibles para clasificar productos. Soporta ETag / If-None-Match."
     )
-    public List<Categoria> listarCategorias() {
-        return categoriaRepository.findAll();
+    @ApiResponse(responseCode = "200", content = @Content(array = @ArraySchema(schema = @Schema(implementation = Categoria.class))))
+    public ResponseEntity<byte[]> listarCategorias(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+        return catalogoSerializado.responder(CatalogoSerializado.Recurso.CATEGORIAS, ifNoneMatch, acceptEncoding, accept);
     }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.ms_productos.productos.controller;
+
+import com.ms_productos.productos.dto.ImagenSubidaDto;
+import com.ms_productos.productos.imagenes.ImagenService;
+import com.ms_productos.productos.imagenes.ImagenesEnLinea;
+import com.ms_productos.productos.model.ProductoImagen;
+import com.ms_productos.productos.service.ProductoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/api/catalog")
+@CrossOrigin(origins = "http://localhost:5173")
+@Tag(name = "Imágenes", description = "Subida de imágenes de productos con miniaturas")
+public class ImagenController {
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ImagenesEnLinea imagenesEnLinea;
+
+    // Subir imagen (y opcionalmente asignarla a un producto)
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(
+            summary = "Subir imagen",
+            description = "Guarda la imagen por hash de contenido y genera las variantes thumb, list y detail. "
+                    + "Si se indica productoId, el producto queda apuntando a la variante detail."
+    )
+    public ResponseEntity<?> subirImagen(
+            @Parameter(description = "Archivo de imagen (JPEG, PNG, GIF o BMP)")
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "ID del producto al que se asigna la imagen")
+            @RequestParam(required = false) Long productoId
+    ) throws IOException {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body("El archivo está vacío");
+        }
+
+        ImagenSubidaDto imagen;
+        try (InputStream contenido = file.getInputStream()) {
+            imagen = imagenService.guardar(contenido, file.getOriginalFilename());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        if (productoId != null) {
+            String url = imagen.getVariantes().get("detail");
+            if (productoService.asignarImagen(productoId, imagen.getHash(), url) == null) {
+                return ResponseEntity.notFound().build();
+            }
+            imagen.setProductoId(productoId);
+        }
+        return ResponseEntity.ok(imagen);
+    }
+
+    // Imagen guardada aparte (data URI o URL larga); el producto la referencia con ?v=<huella>
+    @GetMapping("/productos/{id}/imagen")
+    @Operation(
+            summary = "Imagen en línea de un producto",
+            description = "Devuelve la imagen que el producto trajo como data URI, o redirige a su URL si era demasiado larga "
+                    + "para guardarla en el producto. La URL con ?v= cambia si cambia la imagen, así que se cachea como inmutable."
+    )
+    public ResponseEntity<byte[]> imagenEnLinea(
+            @Parameter(description = "ID del producto")
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        ProductoImagen imagen = imagenesEnLinea.buscar(id).orElse(null);
+        if (imagen == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (imagen.getUrl() != null) {
+            return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(imagen.getUrl())).build();
+        }
+        String etag = "\"" + imagen.getHuella() + "\"";
+        CacheControl cache = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cache).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(imagen.getTipo()))
+                .eTag(etag)
+                .cacheControl(cache)
+                // Los bytes vienen del cliente: que el navegador no los interprete como otra cosa (p. ej. un SVG con scripts)
+                .header("X-Content-Type-Options", "nosniff")
+                .header("Content-Security-Policy", "default-src 'none'; style-src 'unsafe-inline'; sandbox")
+                .body(imagen.getDatos());
+    }
+}
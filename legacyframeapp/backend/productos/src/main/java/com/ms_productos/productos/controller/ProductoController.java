@@ -1,16 +1,51 @@
 package com.ms_productos.productos.controller;
 
+import com.ms_productos.productos.ajuste.AjusteMasivoService;
+import com.ms_productos.productos.busqueda.IndiceBusqueda;
+import com.ms_productos.productos.cambios.DifusionCambios;
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.busqueda.IndiceFacetas;
+import com.ms_productos.productos.busqueda.IndicePrecios;
+import com.ms_productos.productos.catalogo.CamposProducto;
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.catalogo.CatalogoSerializado;
+import com.ms_productos.productos.catalogo.CatalogoSnapshot;
+import com.ms_productos.productos.dto.AjusteMasivoDto;
+import com.ms_productos.productos.dto.CambiosCatalogoDto;
+import com.ms_productos.productos.dto.FiltroProductosDto;
+import com.ms_productos.productos.dto.LoteProductosDto;
+import com.ms_productos.productos.dto.ProductosPorPrecioDto;
+import com.ms_productos.productos.dto.ResultadoBusquedaDto;
+import com.ms_productos.productos.dto.ResultadoImportacionDto;
+import com.ms_productos.productos.exportacion.ExportacionService;
+import com.ms_productos.productos.importacion.ImportacionService;
+import com.ms_productos.productos.model.Categoria;
 import com.ms_productos.productos.model.Producto;
 import com.ms_productos.productos.service.ProductoService;
-import com.ms_productos.productos.repository.ProductoRepository; // Si lo usas para listar
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/catalog/productos")
@@ -23,41 +58,373 @@ public class ProductoController {
     private ProductoService productoService;
 
     @Autowired
-    private ProductoRepository productoRepository;
+    private CatalogoEnMemoria catalogo;
 
-    // Listar todos
+    @Autowired
+    private CatalogoSerializado catalogoSerializado;
+
+    @Autowired
+    private IndiceBusqueda indiceBusqueda;
+
+    @Autowired
+    private IndiceFacetas indiceFacetas;
+
+    @Autowired
+    private IndicePrecios indicePrecios;
+
+    @Autowired
+    private ImportacionService importacionService;
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    @Autowired
+    private AjusteMasivoService ajusteMasivoService;
+
+    @Autowired
+    private RegistroCambios registroCambios;
+
+    @Autowired
+    private DifusionCambios difusionCambios;
+
+    // Listar todos (desde el catálogo en memoria)
+    // Sin filtro se responde con el JSON ya serializado de la versión vigente (ETag / 304)
     @GetMapping
         @Operation(
             summary = "Listar productos",
-            description = "Devuelve todos los productos del catálogo."
+            description = "Devuelve todos los productos del catálogo, opcionalmente filtrados por nombre de categoría. "
+                    + "Sin filtro la respuesta trae ETag: reenviarlo en If-None-Match devuelve 304 si el catálogo no cambió. "
+                    + "Con 'fields' cada producto trae solo esos campos."
+        )
+        @ApiResponse(responseCode = "200", content = @Content(array = @ArraySchema(schema = @Schema(implementation = Producto.class))))
+        public ResponseEntity<?> listarProductos(
+            @Parameter(description = "Nombre de la categoría (ej: cuadros, grecas)")
+            @RequestParam(required = false) String categoria,
+            @Parameter(description = "Campos a devolver, separados por coma (" + CamposProducto.PERMITIDOS + ")")
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
+        ) {
+        CamposProducto campos;
+        try {
+            campos = CamposProducto.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if ((categoria == null || categoria.isBlank()) && campos == null) {
+            return catalogoSerializado.responder(CatalogoSerializado.Recurso.PRODUCTOS, ifNoneMatch, acceptEncoding, accept);
+        }
+        CatalogoSnapshot snapshot = catalogo.snapshot();
+        List<Producto> productos;
+        if (categoria == null || categoria.isBlank()) {
+            productos = snapshot.getProductos();
+        } else {
+            Categoria cat = snapshot.getCategoriaPorNombre(categoria.trim());
+            productos = cat == null ? List.of() : snapshot.getProductosPorCategoria(cat.getId());
+        }
+        if (campos == null) {
+            return ResponseEntity.ok(productos);
+        }
+        List<Map<String, Object>> filas = new ArrayList<>(productos.size());
+        for (Producto p : productos) {
+            filas.add(campos.proyectar(p));
+        }
+        return ResponseEntity.ok()
+                .header(CatalogoSerializado.HEADER_VERSION, Long.toString(snapshot.getVersion()))
+                .body(filas);
+    }
+
+    // Listado paginado (keyset) y liviano para pantallas de lista
+    @GetMapping("/pagina")
+        @Operation(
+            summary = "Listar productos paginados",
+            description = "Devuelve una página de productos (sin descripción ni imagen) con id mayor al cursor indicado. "
+                    + "Usar 'siguienteCursor' de la respuesta como 'despuesDe' para pedir la siguiente página. "
+                    + "Con 'fields' la consulta a la base selecciona solo esas columnas."
+        )
+        public ResponseEntity<?> listarProductosPaginados(
+            @Parameter(description = "Cursor: id del último producto recibido (0 o vacío para la primera página)")
+            @RequestParam(required = false) Long despuesDe,
+            @Parameter(description = "Cantidad de productos por página (máximo " + ProductoService.LIMITE_PAGINA_MAX + ")")
+            @RequestParam(required = false) Integer limite,
+            @Parameter(description = "Campos a devolver, separados por coma (" + CamposProducto.PERMITIDOS + ")")
+            @RequestParam(required = false) String fields
+        ) {
+        CamposProducto campos;
+        try {
+            campos = CamposProducto.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (campos == null) {
+            return ResponseEntity.ok(productoService.listarPagina(despuesDe, limite));
+        }
+        return ResponseEntity.ok(productoService.listarPagina(despuesDe, limite, campos));
+    }
+
+    // Búsqueda de texto sobre nombre y descripción (índice en memoria, sin ir a MySQL)
+    @GetMapping("/search")
+        @Operation(
+            summary = "Buscar productos",
+            description = "Busca por nombre y descripción. Ignora tildes y mayúsculas y acepta prefijos "
+                    + "(\"marc dor\" encuentra \"Marco Dorado\"). Resultados ordenados por relevancia."
+        )
+        public ResultadoBusquedaDto<Producto> buscarProductos(
+            @Parameter(description = "Texto a buscar")
+            @RequestParam String q,
+            @Parameter(description = "Número de página, desde 0")
+            @RequestParam(defaultValue = "0") int pagina,
+            @Parameter(description = "Resultados por página (máximo " + ProductoService.LIMITE_PAGINA_MAX + ")")
+            @RequestParam(defaultValue = "20") int tamano
+        ) {
+        int tam = Math.max(1, Math.min(tamano, ProductoService.LIMITE_PAGINA_MAX));
+        int pag = Math.max(0, pagina);
+        int desde = (int) Math.min((long) pag * tam, Integer.MAX_VALUE);
+        IndiceBusqueda.Resultado resultado = indiceBusqueda.buscar(q, desde, tam);
+
+        CatalogoSnapshot snapshot = catalogo.snapshot();
+        List<Producto> items = new ArrayList<>(resultado.ids().size());
+        for (Long id : resultado.ids()) {
+            Producto p = snapshot.getProducto(id);
+            if (p != null) items.add(p);
+        }
+        return new ResultadoBusquedaDto<>(items, resultado.total(), pag, tam);
+    }
+
+    // Filtro combinado con conteos por faceta (bitsets en memoria)
+    @GetMapping("/filtro")
+        @Operation(
+            summary = "Filtrar productos con facetas",
+            description = "Combina categoría, rango de precio y disponibilidad. Además de los productos devuelve "
+                    + "cuántos hay por categoría, por tramo de precio y con/sin stock."
+        )
+        public FiltroProductosDto filtrarProductos(
+            @Parameter(description = "Nombre de la categoría (ej: grecas, rusticas, nativas)")
+            @RequestParam(required = false) String categoria,
+            @Parameter(description = "Precio mínimo (inclusive)")
+            @RequestParam(required = false) Double precioMin,
+            @Parameter(description = "Precio máximo (inclusive)")
+            @RequestParam(required = false) Double precioMax,
+            @Parameter(description = "true: solo con stock, false: solo agotados")
+            @RequestParam(required = false) Boolean enStock,
+            @Parameter(description = "Número de página, desde 0")
+            @RequestParam(defaultValue = "0") int pagina,
+            @Parameter(description = "Resultados por página (máximo " + ProductoService.LIMITE_PAGINA_MAX + ")")
+            @RequestParam(defaultValue = "20") int tamano
+        ) {
+        Long categoriaId = null;
+        if (categoria != null && !categoria.isBlank()) {
+            Categoria cat = catalogo.snapshot().getCategoriaPorNombre(categoria.trim());
+            categoriaId = cat != null ? cat.getId() : -1L; // categoría inexistente: sin resultados
+        }
+        int tam = Math.max(1, Math.min(tamano, ProductoService.LIMITE_PAGINA_MAX));
+        return indiceFacetas.filtrar(categoriaId, precioMin, precioMax, enStock, Math.max(0, pagina), tam);
+    }
+
+    // Rango y orden por precio: búsqueda binaria sobre el índice de precios en memoria
+    @GetMapping("/precio")
+        @Operation(
+            summary = "Productos por precio",
+            description = "Productos con precio entre precioMin y precioMax (inclusive, ambos opcionales), ordenados por precio "
+                    + "ascendente o descendente y paginados. Para combinar con categoría o stock usar /filtro."
+        )
+        public ProductosPorPrecioDto productosPorPrecio(
+            @Parameter(description = "Precio mínimo (inclusive)")
+            @RequestParam(required = false) Double precioMin,
+            @Parameter(description = "Precio máximo (inclusive)")
+            @RequestParam(required = false) Double precioMax,
+            @Parameter(description = "asc (menor precio primero) o desc")
+            @RequestParam(defaultValue = "asc") String orden,
+            @Parameter(description = "Número de página, desde 0")
+            @RequestParam(defaultValue = "0") int pagina,
+            @Parameter(description = "Resultados por página (máximo " + ProductoService.LIMITE_PAGINA_MAX + ")")
+            @RequestParam(defaultValue = "20") int tamano
+        ) {
+        int pag = Math.max(0, pagina);
+        int tam = Math.max(1, Math.min(tamano, ProductoService.LIMITE_PAGINA_MAX));
+        IndicePrecios.Pagina resultado = indicePrecios.rango(precioMin, precioMax, "desc".equalsIgnoreCase(orden), pag, tam);
+        CatalogoSnapshot snapshot = catalogo.snapshot();
+        List<Producto> items = new ArrayList<>(resultado.ids().length);
+        for (long id : resultado.ids()) {
+            Producto p = snapshot.getProducto(id);
+            if (p != null) items.add(p);
+        }
+        return new ProductosPorPrecioDto(items, resultado.total(), pag, tam);
+    }
+
+    // Varios productos por id en una sola llamada (carrito, validación de pedidos), desde el catálogo en memoria
+    @GetMapping("/lote")
+        @Operation(
+            summary = "Obtener productos por lote de ids",
+            description = "Devuelve los productos en el orden de los ids pedidos (sin repetidos) y lista aparte los ids que no existen. "
+                    + "Máximo " + ProductoService.LIMITE_PAGINA_MAX + " ids por llamada."
         )
-    public List<Producto> listarProductos() {
-        return productoRepository.findAll();
+        public ResponseEntity<LoteProductosDto> obtenerLote(
+            @Parameter(description = "Ids separados por coma (ej: 3,9,12)")
+            @RequestParam List<Long> ids
+        ) {
+        LinkedHashSet<Long> pedidos = new LinkedHashSet<>(ids);
+        pedidos.remove(null);
+        if (pedidos.size() > ProductoService.LIMITE_PAGINA_MAX) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Una sola foto para todo el lote: todos los productos salen de la misma versión del catálogo
+        CatalogoSnapshot snapshot = catalogo.snapshot();
+        List<Producto> productos = new ArrayList<>(pedidos.size());
+        List<Long> faltantes = new ArrayList<>();
+        for (Long id : pedidos) {
+            Producto p = snapshot.getProducto(id);
+            if (p != null) productos.add(p);
+            else faltantes.add(id);
+        }
+        return ResponseEntity.ok()
+                .header(CatalogoSerializado.HEADER_VERSION, String.valueOf(snapshot.getVersion()))
+                .body(new LoteProductosDto(productos, faltantes));
+    }
+
+    // Sincronización por diferencias: solo lo que cambió desde el último seq que vio el cliente
+    @GetMapping("/cambios")
+        @Operation(
+            summary = "Cambios del catálogo desde un seq",
+            description = "Devuelve los productos creados/actualizados (con su estado actual) y eliminados después de 'desde'. "
+                    + "Guardar 'hasta' y usarlo como 'desde' en la siguiente llamada; si 'hayMas' es true, pedir de nuevo enseguida. "
+                    + "Si 'reiniciar' es true hay que recargar el catálogo completo y seguir desde 'hasta'."
+        )
+        public CambiosCatalogoDto listarCambios(
+            @Parameter(description = "Último seq recibido (0 la primera vez)")
+            @RequestParam(defaultValue = "0") long desde,
+            @Parameter(description = "Máximo de cambios por página (máximo " + RegistroCambios.LIMITE_MAX + ")")
+            @RequestParam(required = false) Integer limite
+        ) {
+        return registroCambios.leer(desde, limite);
+    }
+
+    // Los mismos cambios, empujados en vivo por Server-Sent Events
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        @Operation(
+            summary = "Stream de cambios del catálogo (SSE)",
+            description = "Eventos 'producto' (creado/actualizado, con stock y estado actual) y 'eliminado'; el id de cada evento es su seq. "
+                    + "Al conectar sin Last-Event-ID llega 'inicio' con el seq actual; al reconectar se reenvía lo perdido. "
+                    + "Si llega 'reiniciar' hay que recargar el catálogo completo."
+        )
+        public SseEmitter streamCambios(
+            @Parameter(description = "Seq del último evento recibido (el navegador lo envía solo al reconectar)")
+            @RequestHeader(value = "Last-Event-ID", required = false) Long ultimoId
+        ) throws IOException {
+        try {
+            return difusionCambios.suscribir(ultimoId);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
     }
 
     // Obtener por ID
     @GetMapping("/{id}")
         @Operation(
             summary = "Obtener producto por id",
-            description = "Devuelve un producto específico por su identificador."
+            description = "Devuelve un producto específico por su identificador. Con 'fields' trae solo esos campos."
         )
-        public ResponseEntity<Producto> obtenerProducto(
+        public ResponseEntity<?> obtenerProducto(
             @Parameter(description = "ID del producto")
-            @PathVariable Long id
+            @PathVariable Long id,
+            @Parameter(description = "Campos a devolver, separados por coma (" + CamposProducto.PERMITIDOS + ")")
+            @RequestParam(required = false) String fields
         ) {
-        return productoRepository.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        CamposProducto campos;
+        try {
+            campos = CamposProducto.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        Producto producto = catalogo.snapshot().getProducto(id);
+        if (producto == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(campos != null ? campos.proyectar(producto) : producto);
     }
 
     // Crear
     @PostMapping
         @Operation(
             summary = "Crear producto",
-            description = "Crea un producto nuevo en el catálogo."
+            description = "Crea un producto nuevo en el catálogo. imagenUrl acepta una URL, una ruta o un data URI de imagen "
+                    + "(los data URI y las URLs largas se guardan aparte y el producto queda con una URL corta)."
+        )
+    public ResponseEntity<?> crearProducto(@RequestBody Producto producto) {
+        try {
+            return ResponseEntity.ok(productoService.guardarProducto(producto));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Importación masiva: el cuerpo se procesa en streaming, sin cargarlo completo en memoria
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+        @Operation(
+            summary = "Importar productos (CSV o NDJSON)",
+            description = "Crea productos (filas sin id) o actualiza existentes (filas con id) en lotes. Un id que no existe "
+                    + "es error de esa fila (los ids los asigna la secuencia de productos). "
+                    + "Columnas/campos: id, nombre, descripcion, precio, stock, imagenUrl, categoria (nombre) o categoriaId. "
+                    + "Devuelve conteos, errores por fila y filas por segundo. Un CSV que se corta (comillas sin cerrar) "
+                    + "responde 400 con el mismo resultado: lo anterior queda guardado y el campo error indica la línea."
+        )
+        public ResponseEntity<?> importarProductos(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @Parameter(description = "Filas por lote/transacción (por defecto catalogo.importacion.tamano-lote)")
+            @RequestParam(required = false) Integer tamanoLote,
+            InputStream cuerpo
+        ) throws IOException {
+        ImportacionService.Formato formato = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? ImportacionService.Formato.NDJSON
+                : ImportacionService.Formato.CSV;
+        try {
+            ResultadoImportacionDto resultado = importacionService.importar(cuerpo, formato, tamanoLote);
+            // Formato roto a mitad de archivo: 400 con lo que ya se guardó
+            return resultado.getError() == null ? ResponseEntity.ok(resultado) : ResponseEntity.badRequest().body(resultado);
+        } catch (IllegalArgumentException e) {
+            // Archivo que no se puede leer como tal (p. ej. CSV sin columna nombre); los errores de fila van en el resultado
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Ajuste masivo (administración): un UPDATE por lote de ids en una sola transacción
+    @PostMapping("/ajuste")
+        @Operation(
+            summary = "Ajuste masivo de precio o stock",
+            description = "Aplica un cambio porcentual o absoluto a precio o stock de todos los productos que cumplen el filtro "
+                    + "(categoria o categoriaId, ids, precioMin/precioMax; al menos uno). Una transacción, una versión nueva "
+                    + "del catálogo y un cambio registrado por producto. El stock de los sku calientes no se toca."
         )
-    public Producto crearProducto(@RequestBody Producto producto) {
-        return productoRepository.save(producto);
+        public ResponseEntity<?> ajustarProductos(@RequestBody AjusteMasivoDto ajuste) {
+        try {
+            return ResponseEntity.ok(ajusteMasivoService.ajustar(ajuste));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Exportación completa en streaming (contabilidad)
+    @GetMapping("/export")
+        @Operation(
+            summary = "Exportar catálogo (NDJSON o CSV)",
+            description = "Descarga todos los productos en streaming, con memoria constante en el servidor. "
+                    + "El archivo se puede volver a cargar con POST /import."
+        )
+        public ResponseEntity<StreamingResponseBody> exportarProductos(
+            @Parameter(description = "ndjson (por defecto) o csv")
+            @RequestParam(defaultValue = "ndjson") String formato
+        ) {
+        boolean csv = formato.equalsIgnoreCase("csv");
+        if (!csv && !formato.equalsIgnoreCase("ndjson")) {
+            return ResponseEntity.badRequest().build();
+        }
+        ExportacionService.Formato f = csv ? ExportacionService.Formato.CSV : ExportacionService.Formato.NDJSON;
+        StreamingResponseBody cuerpo = out -> exportacionService.exportar(f, out);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"productos." + (csv ? "csv" : "ndjson") + "\"")
+                .body(cuerpo);
     }
 
     // Editar
@@ -66,22 +433,19 @@ public class ProductoController {
             summary = "Actualizar producto",
             description = "Actualiza los datos de un producto existente por id."
         )
-        public ResponseEntity<Producto> actualizarProducto(
+        public ResponseEntity<?> actualizarProducto(
             @Parameter(description = "ID del producto")
             @PathVariable Long id,
             @RequestBody Producto detalles
         ) {
-        return productoRepository.findById(id)
-                .map(prod -> {
-                    prod.setNombre(detalles.getNombre());
-                    prod.setDescripcion(detalles.getDescripcion());
-                    prod.setPrecio(detalles.getPrecio());
-                    prod.setStock(detalles.getStock());
-                    prod.setImagenUrl(detalles.getImagenUrl());
-                    prod.setCategoria(detalles.getCategoria());
-                    return ResponseEntity.ok(productoRepository.save(prod));
-                })
-                .orElse(ResponseEntity.notFound().build());
+        // El servicio publica el cambio para que el catálogo en memoria se actualice
+        Producto actualizado;
+        try {
+            actualizado = productoService.actualizarProducto(id, detalles);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return actualizado != null ? ResponseEntity.ok(actualizado) : ResponseEntity.notFound().build();
     }
 
     // --- BORRAR (El que daba error 405) ---
@@ -0,0 +1,56 @@
+package com.ms_productos.productos.controller;
+
+import com.ms_productos.productos.dto.ReservaStockDto;
+import com.ms_productos.productos.dto.ResultadoStockDto;
+import com.ms_productos.productos.service.StockService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/catalog/stock")
+@CrossOrigin(origins = "http://localhost:5173")
+@Tag(name = "Stock", description = "Reserva y liberación atómica de stock")
+public class StockController {
+
+    @Autowired
+    private StockService stockService;
+
+    // Reservar (checkout): descuenta todas las líneas o ninguna
+    @PostMapping("/reservar")
+        @Operation(
+            summary = "Reservar stock",
+            description = "Descuenta el stock de varias líneas en una sola transacción. "
+                    + "Si alguna no alcanza no se descuenta nada y se responde 409 con los faltantes."
+        )
+        public ResponseEntity<?> reservar(@RequestBody ReservaStockDto reserva) {
+        try {
+            return responder(stockService.reservar(reserva.getLineas()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Liberar (pedido cancelado o reserva vencida): devuelve las cantidades al stock
+    @PostMapping("/liberar")
+        @Operation(
+            summary = "Liberar stock",
+            description = "Devuelve al stock las cantidades de una reserva. Responde 409 si algún producto ya no existe."
+        )
+        public ResponseEntity<?> liberar(@RequestBody ReservaStockDto reserva) {
+        try {
+            return responder(stockService.liberar(reserva.getLineas()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<ResultadoStockDto> responder(ResultadoStockDto resultado) {
+        return resultado.isAplicada()
+                ? ResponseEntity.ok(resultado)
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(resultado);
+    }
+}
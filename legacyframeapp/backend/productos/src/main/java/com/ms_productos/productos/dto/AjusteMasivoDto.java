@@ -0,0 +1,26 @@
+package com.ms_productos.productos.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Ajuste masivo de precio o stock: los filtros que vienen se combinan (AND) y tiene que venir al menos uno
+@Data
+public class AjusteMasivoDto {
+
+    public enum Campo { PRECIO, STOCK }
+
+    public enum Operacion { PORCENTAJE, ABSOLUTO }
+
+    // Filtro
+    private String categoria;   // nombre, como en ?categoria=
+    private Long categoriaId;
+    private List<Long> ids;
+    private Double precioMin;   // inclusive
+    private Double precioMax;   // inclusive
+
+    // Cambio: PORCENTAJE 8 = +8 %, ABSOLUTO -500 = resta 500. Nunca deja valores negativos
+    private Campo campo;
+    private Operacion operacion;
+    private Double valor;
+}
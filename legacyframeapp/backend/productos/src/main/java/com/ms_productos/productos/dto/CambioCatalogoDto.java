@@ -0,0 +1,17 @@
+package com.ms_productos.productos.dto;
+
+import com.ms_productos.productos.model.CambioCatalogo;
+import com.ms_productos.productos.model.Producto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambioCatalogoDto {
+    private long seq;
+    private Long productoId;
+    private CambioCatalogo.Tipo tipo;
+    private Producto producto; // estado actual; null en los ELIMINADO
+}
@@ -0,0 +1,17 @@
+package com.ms_productos.productos.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Página de /productos/cambios. El cliente guarda 'hasta' y lo manda como 'desde' en la próxima llamada.
+@Data
+public class CambiosCatalogoDto {
+    private List<CambioCatalogoDto> cambios = new ArrayList<>();
+    private long hasta;
+    private boolean hayMas;
+    // true: el registro ya no tiene los cambios pedidos (compactado o base nueva); recargar el catálogo
+    // completo y seguir desde 'hasta'
+    private boolean reiniciar;
+}
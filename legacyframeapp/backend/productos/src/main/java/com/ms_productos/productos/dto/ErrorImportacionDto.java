@@ -0,0 +1,13 @@
+package com.ms_productos.productos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErrorImportacionDto {
+    private long fila; // número de línea de datos (1 = primera fila después del encabezado)
+    private String mensaje;
+}
@@ -0,0 +1,23 @@
+package com.ms_productos.productos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+// Aciertos y fallos de la caché de Hibernate: con categoriasLeidasDeBase y los fallos quietos,
+// los datos de categorías ya no salen de MySQL
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticasCacheDto {
+    private Instant desde;
+    private List<RegionCacheDto> regiones;      // entidades y resultados de consultas
+    private long consultasAciertos;             // todas las consultas cacheables
+    private long consultasFallos;
+    private long consultasGuardadas;
+    private long categoriasLeidasDeBase;        // filas de categorias leídas con un SELECT
+    private long sentenciasEjecutadas;          // todas las sentencias JDBC del servicio
+}
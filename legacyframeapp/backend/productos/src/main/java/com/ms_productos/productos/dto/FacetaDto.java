@@ -0,0 +1,15 @@
+package com.ms_productos.productos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Un valor de faceta con la cantidad de productos que quedarían al elegirlo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetaDto {
+    private String valor;     // lo que se envía de vuelta como filtro (nombre de categoría, rango, true/false)
+    private String etiqueta;  // texto para mostrar
+    private int cantidad;
+}
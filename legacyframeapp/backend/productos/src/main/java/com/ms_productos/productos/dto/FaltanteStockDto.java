@@ -0,0 +1,14 @@
+package com.ms_productos.productos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaltanteStockDto {
+    private Long productoId;
+    private int solicitado;
+    private Integer disponible; // null si el producto no existe
+}
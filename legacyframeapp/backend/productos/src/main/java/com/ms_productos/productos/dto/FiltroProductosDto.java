@@ -0,0 +1,22 @@
+package com.ms_productos.productos.dto;
+
+import com.ms_productos.productos.model.Producto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Resultado del filtro combinado (categoría + precio + stock) con los conteos por faceta
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroProductosDto {
+    private List<Producto> items;
+    private int total;
+    private int pagina;
+    private int tamano;
+    private List<FacetaDto> categorias;
+    private List<FacetaDto> rangosPrecio;
+    private List<FacetaDto> stock;
+}
@@ -0,0 +1,19 @@
+package com.ms_productos.productos.dto;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Resultado de subir una imagen: hash de contenido y URLs públicas de cada variante
+@Data
+public class ImagenSubidaDto {
+    private String hash;
+    private String original;
+    private Map<String, String> variantes = new LinkedHashMap<>(); // thumb, list, detail
+    private long bytes;
+    private int ancho;
+    private int alto;
+    private boolean duplicada; // ya existía una imagen idéntica: no se volvió a procesar
+    private Long productoId;
+}
@@ -0,0 +1,13 @@
+package com.ms_productos.productos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LineaStockDto {
+    private Long productoId;
+    private Integer cantidad;
+}
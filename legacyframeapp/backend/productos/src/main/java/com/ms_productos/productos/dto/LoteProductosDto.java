@@ -0,0 +1,17 @@
+package com.ms_productos.productos.dto;
+
+import com.ms_productos.productos.model.Producto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Respuesta de /productos/lote: productos en el orden pedido y los ids que no existen
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoteProductosDto {
+    private List<Producto> productos;
+    private List<Long> faltantes;
+}
@@ -0,0 +1,17 @@
+package com.ms_productos.productos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Página por cursor (keyset): el cliente pide la siguiente con ?despuesDe=siguienteCursor
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDto<T> {
+    private List<T> items;
+    private Long siguienteCursor; // null cuando no hay más resultados
+    private int limite;
+}
@@ -0,0 +1,18 @@
+package com.ms_productos.productos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Vista liviana para listados: deja fuera descripcion e imagenUrl
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoResumenDto {
+    private Long id;
+    private String nombre;
+    private Double precio;
+    private Integer stock;
+    private Long categoriaId;
+    private String categoriaNombre;
+}
@@ -0,0 +1,19 @@
+package com.ms_productos.productos.dto;
+
+import com.ms_productos.productos.model.Producto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Página de productos ordenados por precio dentro de un rango (índice de precios en memoria)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductosPorPrecioDto {
+    private List<Producto> items;
+    private int total;   // productos en el rango
+    private int pagina;
+    private int tamano;
+}
@@ -0,0 +1,16 @@
+package com.ms_productos.productos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Contadores de una región de la caché de segundo nivel desde el último reinicio de estadísticas
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegionCacheDto {
+    private String nombre;
+    private long aciertos;
+    private long fallos;     // cada fallo es una lectura que fue a la base
+    private long guardados;
+}
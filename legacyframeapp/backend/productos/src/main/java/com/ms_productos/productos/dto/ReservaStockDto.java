@@ -0,0 +1,12 @@
+package com.ms_productos.productos.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Cuerpo de /api/catalog/stock/reservar y /liberar: todas las líneas se aplican o ninguna
+@Data
+public class ReservaStockDto {
+    private List<LineaStockDto> lineas = new ArrayList<>();
+}
@@ -0,0 +1,15 @@
+package com.ms_productos.productos.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resultado de un ajuste masivo (una sola transacción)
+@Data
+public class ResultadoAjusteDto {
+    private int actualizados;
+    private List<Long> omitidos = new ArrayList<>(); // sku calientes: su stock solo cambia con reservar/liberar
+    private long version;                            // versión del catálogo que ya incluye el ajuste
+    private long duracionMs;
+}
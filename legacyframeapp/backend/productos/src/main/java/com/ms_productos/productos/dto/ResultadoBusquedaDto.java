@@ -0,0 +1,18 @@
+package com.ms_productos.productos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Página de resultados ordenados por relevancia
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoBusquedaDto<T> {
+    private List<T> items;
+    private int total;
+    private int pagina;
+    private int tamano;
+}
@@ -0,0 +1,20 @@
+package com.ms_productos.productos.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resumen de una importación masiva: conteos, errores por fila y rendimiento
+@Data
+public class ResultadoImportacionDto {
+    private long procesadas;
+    private long insertadas;
+    private long actualizadas;
+    private long conError;
+    private List<ErrorImportacionDto> errores = new ArrayList<>(); // se guardan como máximo los primeros 1000
+    private String error; // archivo cortado a la mitad: lo leído antes quedó guardado
+    private int tamanoLote;
+    private long duracionMs;
+    private double filasPorSegundo;
+}
@@ -0,0 +1,15 @@
+package com.ms_productos.productos.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class ResultadoStockDto {
+    private boolean aplicada;
+    private Map<Long, Integer> stock = new LinkedHashMap<>(); // stock que quedó por producto (solo si aplicada)
+    private List<FaltanteStockDto> faltantes = new ArrayList<>();
+}
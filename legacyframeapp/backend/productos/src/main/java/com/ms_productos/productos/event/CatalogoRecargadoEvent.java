@@ -0,0 +1,12 @@
+package com.ms_productos.productos.event;
+
+import com.ms_productos.productos.catalogo.CatalogoSnapshot;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Se publica cuando el catálogo en memoria se reconstruye completo (arranque o cambios masivos)
+@Getter
+@AllArgsConstructor
+public class CatalogoRecargadoEvent {
+    private final CatalogoSnapshot snapshot;
+}
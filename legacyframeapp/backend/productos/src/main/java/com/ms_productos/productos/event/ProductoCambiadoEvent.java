@@ -0,0 +1,38 @@
+package com.ms_productos.productos.event;
+
+import com.ms_productos.productos.model.Producto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+// Se publica desde ProductoService cada vez que un producto se crea, actualiza o elimina
+@Getter
+@RequiredArgsConstructor
+public class ProductoCambiadoEvent {
+
+    public enum Tipo { GUARDADO, ELIMINADO }
+
+    private final Tipo tipo;
+    private final Long productoId;
+    private final Producto producto; // null cuando tipo == ELIMINADO
+
+    // Seq del registro de cambios de este cambio (lo pone RegistroCambios antes del commit, o quien
+    // publica después de confirmar). Para un mismo producto los seq siguen el orden de commit: con él, el catálogo en memoria
+    // descarta un estado más viejo que llega tarde. -1 = sin seq, se aplica siempre.
+    @Setter
+    private volatile long seq = -1;
+
+    public static ProductoCambiadoEvent guardado(Producto producto) {
+        return new ProductoCambiadoEvent(Tipo.GUARDADO, producto.getId(), producto);
+    }
+
+    public static ProductoCambiadoEvent guardado(Producto producto, long seq) {
+        ProductoCambiadoEvent evento = guardado(producto);
+        evento.setSeq(seq);
+        return evento;
+    }
+
+    public static ProductoCambiadoEvent eliminado(Long id) {
+        return new ProductoCambiadoEvent(Tipo.ELIMINADO, id, null);
+    }
+}
@@ -0,0 +1,15 @@
+package com.ms_productos.productos.event;
+
+import com.ms_productos.productos.model.Producto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Se publica desde CatalogoEnMemoria cuando un cambio de producto entra en la foto, en el mismo
+// orden en que se aplican (los índices derivados lo siguen a él y no a ProductoCambiadoEvent)
+@Getter
+@AllArgsConstructor
+public class ProductoPublicadoEvent {
+    private final ProductoCambiadoEvent.Tipo tipo;
+    private final Long productoId;
+    private final Producto producto; // la copia publicada en la foto; null cuando tipo == ELIMINADO
+}
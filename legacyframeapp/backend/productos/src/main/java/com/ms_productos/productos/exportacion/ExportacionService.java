@@ -0,0 +1,101 @@
+package com.ms_productos.productos.exportacion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Exportación del catálogo completo (contabilidad) en CSV o NDJSON.
+ *
+ * Lee de un Stream del repositorio y escribe cada fila apenas llega, separando la entidad del
+ * contexto de persistencia después de escribirla: la memoria no crece con el tamaño del catálogo.
+ * El formato es el mismo que acepta {@code POST /productos/import}.
+ */
+@Service
+public class ExportacionService {
+
+    public enum Formato { CSV, NDJSON }
+
+    private static final String ENCABEZADO_CSV = "id,nombre,descripcion,precio,stock,imagenUrl,categoriaId,categoria\n";
+    private static final int FILAS_POR_FLUSH = 1000;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public void exportar(Formato formato, OutputStream destino) throws IOException {
+        BufferedOutputStream out = new BufferedOutputStream(destino, 16 * 1024);
+        if (formato == Formato.CSV) {
+            out.write(ENCABEZADO_CSV.getBytes(StandardCharsets.UTF_8));
+        }
+        out.flush(); // los primeros bytes salen antes de ejecutar la consulta
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        try {
+            tx.executeWithoutResult(status -> {
+                long filas = 0;
+                try (Stream<Producto> productos = productoRepository.streamAllConCategoria()) {
+                    for (Producto p : (Iterable<Producto>) productos::iterator) {
+                        escribir(formato, p, out);
+                        entityManager.detach(p);
+                        if (++filas % FILAS_POR_FLUSH == 0) out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // el cliente cortó la descarga
+        }
+        out.flush();
+    }
+
+    private void escribir(Formato formato, Producto p, OutputStream out) throws IOException {
+        if (formato == Formato.NDJSON) {
+            out.write(objectMapper.writeValueAsBytes(p));
+            out.write('\n');
+            return;
+        }
+        StringBuilder linea = new StringBuilder(128);
+        linea.append(p.getId()).append(',');
+        campo(linea, p.getNombre()).append(',');
+        campo(linea, p.getDescripcion()).append(',');
+        linea.append(p.getPrecio() != null ? p.getPrecio() : "").append(',');
+        linea.append(p.getStock() != null ? p.getStock() : "").append(',');
+        campo(linea, p.getImagenUrl()).append(',');
+        linea.append(p.getCategoria() != null ? p.getCategoria().getId() : "").append(',');
+        campo(linea, p.getCategoria() != null ? p.getCategoria().getNombre() : null).append('\n');
+        out.write(linea.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Comillas solo cuando hacen falta (RFC 4180)
+    private static StringBuilder campo(StringBuilder linea, String valor) {
+        if (valor == null) return linea;
+        boolean comillas = valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0;
+        if (!comillas) return linea.append(valor);
+        return linea.append('"').append(valor.replace("\"", "\"\"")).append('"');
+    }
+}
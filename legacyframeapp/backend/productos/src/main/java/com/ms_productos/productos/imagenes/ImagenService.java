@@ -0,0 +1,240 @@
+package com.ms_productos.productos.imagenes;
+
+import com.ms_productos.productos.dto.ImagenSubidaDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Ingesta de imágenes de productos con almacenamiento direccionado por contenido.
+ *
+ * El original se copia por canales NIO a un archivo temporal mientras se calcula su SHA-256 y luego
+ * se mueve a {@code originales/<hash>.<ext>}; subir dos veces la misma imagen no duplica nada.
+ * De cada original se generan variantes JPEG redimensionadas ({@code thumb}, {@code list}, {@code detail})
+ * que se sirven en {@code /images/<variante>/<hash>.jpg}. Como el nombre depende del contenido,
+ * esas URLs nunca cambian de contenido.
+ */
+@Service
+public class ImagenService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImagenService.class);
+
+    // Lado mayor en píxeles de cada variante
+    public static final Map<String, Integer> VARIANTES = variantes();
+    private static final int LADO_MAYOR_VARIANTE = Collections.max(VARIANTES.values());
+    // Ancho x alto declarado máximo que se acepta decodificar (unos 160 MB como ARGB)
+    public static final long MAX_PIXELES = 40_000_000L;
+    private static final float CALIDAD_JPEG = 0.85f;
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path raiz;
+
+    public ImagenService(@Value("${catalogo.imagenes.directorio:uploads}") String directorio) {
+        this.raiz = Path.of(directorio).toAbsolutePath().normalize();
+    }
+
+    private static Map<String, Integer> variantes() {
+        Map<String, Integer> v = new LinkedHashMap<>();
+        v.put("thumb", 160);
+        v.put("list", 480);
+        v.put("detail", 1200);
+        return Collections.unmodifiableMap(v);
+    }
+
+    public static String urlVariante(String hash, String variante) {
+        return "/images/" + variante + "/" + hash + ".jpg";
+    }
+
+    public Path getRaiz() {
+        return raiz;
+    }
+
+    public static boolean esHash(String valor) {
+        return valor != null && HASH.matcher(valor).matches();
+    }
+
+    public ImagenSubidaDto guardar(InputStream contenido, String nombreOriginal) throws IOException {
+        Path originales = Files.createDirectories(raiz.resolve("originales"));
+        Path temporal = Files.createTempFile(originales, "subida-", ".tmp");
+        try {
+            long bytes;
+            String hash;
+            try (ReadableByteChannel entrada = Channels.newChannel(contenido);
+                 FileChannel salida = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                MessageDigest sha = MessageDigest.getInstance("SHA-256");
+                ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+                bytes = 0;
+                while (entrada.read(buffer) != -1) {
+                    buffer.flip();
+                    sha.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) bytes += salida.write(buffer);
+                    buffer.clear();
+                }
+                salida.force(true);
+                hash = HexFormat.of().formatHex(sha.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+
+            Decodificada decodificada = decodificar(temporal);
+            BufferedImage imagen = decodificada.imagen();
+
+            Path original = originales.resolve(hash + extension(nombreOriginal));
+            boolean duplicada = mover(temporal, original);
+
+            ImagenSubidaDto dto = new ImagenSubidaDto();
+            dto.setHash(hash);
+            dto.setOriginal("/images/originales/" + original.getFileName());
+            dto.setBytes(bytes);
+            dto.setAncho(decodificada.ancho());
+            dto.setAlto(decodificada.alto());
+            dto.setDuplicada(duplicada);
+            for (Map.Entry<String, Integer> v : VARIANTES.entrySet()) {
+                Path destino = Files.createDirectories(raiz.resolve(v.getKey())).resolve(hash + ".jpg");
+                if (!Files.exists(destino)) {
+                    escribirVariante(imagen, v.getValue(), destino);
+                }
+                dto.getVariantes().put(v.getKey(), urlVariante(hash, v.getKey()));
+            }
+            log.info("Imagen {} guardada ({} bytes, {}x{}, duplicada={})", hash, bytes, decodificada.ancho(), decodificada.alto(), duplicada);
+            return dto;
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    private record Decodificada(BufferedImage imagen, int ancho, int alto) {}
+
+    // Primero solo el encabezado: un archivo de pocos KB puede declarar 100000x100000 y agotar la
+    // memoria al decodificarse. Dentro del tope, las imágenes grandes se leen submuestreadas (las
+    // variantes no pasan de LADO_MAYOR_VARIANTE, basta con el doble para reducir por pasos)
+    private static Decodificada decodificar(Path archivo) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(archivo.toFile())) {
+            Iterator<ImageReader> readers = entrada != null ? ImageIO.getImageReaders(entrada) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("El archivo no es una imagen soportada (JPEG, PNG, GIF o BMP)");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(entrada, true, true);
+                int ancho = reader.getWidth(0);
+                int alto = reader.getHeight(0);
+                if ((long) ancho * alto > MAX_PIXELES) {
+                    throw new IllegalArgumentException("La imagen mide " + ancho + "x" + alto
+                            + " píxeles; el máximo es " + MAX_PIXELES / 1_000_000 + " megapíxeles");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int paso = Math.max(1, Math.max(ancho, alto) / (2 * LADO_MAYOR_VARIANTE));
+                param.setSourceSubsampling(paso, paso, 0, 0);
+                return new Decodificada(reader.read(0, param), ancho, alto);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // true si el contenido ya estaba guardado
+    private static boolean mover(Path temporal, Path destino) throws IOException {
+        if (Files.exists(destino)) return true;
+        try {
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            return true; // otra subida idéntica terminó primero
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return false;
+    }
+
+    private static void escribirVariante(BufferedImage origen, int ladoMayor, Path destino) throws IOException {
+        BufferedImage redimensionada = redimensionar(origen, ladoMayor);
+        // Se escribe en un temporal y se renombra para que nadie sirva una variante a medio escribir
+        Path temporal = Files.createTempFile(destino.getParent(), "variante-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (OutputStream out = Files.newOutputStream(temporal);
+                 ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+                writer.setOutput(ios);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(CALIDAD_JPEG);
+                writer.write(null, new IIOImage(redimensionada, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            mover(temporal, destino);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    // Reduce a la mitad por pasos (mejor calidad que un único escalado bilineal) y nunca agranda
+    private static BufferedImage redimensionar(BufferedImage origen, int ladoMayor) {
+        int ancho = origen.getWidth();
+        int alto = origen.getHeight();
+        double escala = Math.min(1.0, (double) ladoMayor / Math.max(ancho, alto));
+        int anchoFinal = Math.max(1, (int) Math.round(ancho * escala));
+        int altoFinal = Math.max(1, (int) Math.round(alto * escala));
+
+        BufferedImage actual = origen;
+        int w = ancho;
+        int h = alto;
+        do {
+            w = Math.max(anchoFinal, w / 2);
+            h = Math.max(altoFinal, h / 2);
+            BufferedImage paso = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = paso.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE); // JPEG no tiene transparencia: fondo blanco para PNG
+            g.fillRect(0, 0, w, h);
+            g.drawImage(actual, 0, 0, w, h, null);
+            g.dispose();
+            actual = paso;
+        } while (w != anchoFinal || h != altoFinal);
+        return actual;
+    }
+
+    private static String extension(String nombre) {
+        if (nombre == null) return "";
+        int punto = nombre.lastIndexOf('.');
+        if (punto < 0) return "";
+        String ext = nombre.substring(punto).toLowerCase();
+        return ext.matches("\\.[a-z0-9]{1,5}") ? ext : "";
+    }
+}
@@ -0,0 +1,215 @@
+package com.ms_productos.productos.imagenes;
+
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.model.CambioCatalogo;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.model.ProductoImagen;
+import com.ms_productos.productos.repository.ProductoImagenRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeTypeUtils;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Saca de la fila de productos las imágenes que no son una referencia corta. Los data URI se
+ * decodifican y se guardan como bytes en {@code producto_imagenes}; las URLs de más de
+ * {@link Producto#LARGO_MAX_IMAGEN_URL} caracteres se guardan enteras. En imagenUrl queda
+ * {@code /api/catalog/productos/{id}/imagen?v=<huella>}, que sirve los bytes (o redirige) y se puede
+ * cachear como inmutable: otra imagen da otra huella y por lo tanto otra URL.
+ *
+ * Así ni los listados, ni el catálogo en memoria, ni las consultas sobre productos cargan imágenes.
+ */
+@Component
+public class ImagenesEnLinea {
+
+    private static final Logger log = LoggerFactory.getLogger(ImagenesEnLinea.class);
+
+    public static final int BYTES_MAX = 5 * 1024 * 1024;
+    private static final int LOTE_MIGRACION = 100;
+
+    @Autowired
+    private ProductoImagenRepository productoImagenRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private RegistroCambios registroCambios;
+
+    @Autowired
+    private CatalogoEnMemoria catalogo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Imagen ya validada: bytes con su tipo (data URI) o una URL larga
+    record Contenido(String tipo, byte[] datos, String url, String huella) { }
+
+    public static boolean esPesada(String imagen) {
+        return imagen != null && (esDataUri(imagen) || imagen.length() > Producto.LARGO_MAX_IMAGEN_URL);
+    }
+
+    public static String referencia(Long productoId, String huella) {
+        return ruta(productoId) + "?v=" + huella.substring(0, 16);
+    }
+
+    private static String ruta(Long productoId) {
+        return "/api/catalog/productos/" + productoId + "/imagen";
+    }
+
+    // Para rechazar antes de escribir (p. ej. una fila de importación) lo que asignar() no aceptaría
+    public static void validar(String imagen) {
+        if (esPesada(imagen)) decodificar(imagen);
+    }
+
+    /**
+     * Deja la imagen en el producto, que ya tiene que estar persistido (se usa su id). Va dentro
+     * de la transacción que guarda el producto. Si la imagen es pesada la guarda aparte; si no, y el
+     * producto tenía una imagen pesada, la borra. IllegalArgumentException si el data URI no sirve.
+     */
+    public void asignar(Producto producto, String imagen) {
+        if (esPesada(imagen)) {
+            Contenido contenido = decodificar(imagen);
+            ProductoImagen fila = productoImagenRepository.findById(producto.getId()).orElseGet(() -> {
+                ProductoImagen nueva = new ProductoImagen();
+                nueva.setProducto(producto);
+                return nueva;
+            });
+            fila.setTipo(contenido.tipo());
+            fila.setDatos(contenido.datos());
+            fila.setUrl(contenido.url());
+            fila.setHuella(contenido.huella());
+            productoImagenRepository.save(fila);
+            producto.setImagenUrl(referencia(producto.getId(), contenido.huella()));
+            return;
+        }
+        String anterior = producto.getImagenUrl();
+        if (anterior != null && anterior.startsWith(ruta(producto.getId())) && !anterior.equals(imagen)) {
+            productoImagenRepository.borrar(producto.getId());
+        }
+        producto.setImagenUrl(imagen);
+    }
+
+    // En una transacción de escritura: una imagen recién asignada todavía puede no estar en la réplica
+    @Transactional
+    public Optional<ProductoImagen> buscar(Long productoId) {
+        return productoImagenRepository.findById(productoId);
+    }
+
+    /**
+     * Productos guardados antes de producto_imagenes con un data URI o una URL larga en imagen_url:
+     * se pasan a la tabla aparte en lotes, quedan en el registro de cambios y se recarga el catálogo.
+     * Después de esto la columna se puede achicar a {@link Producto#LARGO_MAX_IMAGEN_URL}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrar() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Long> ids = tx.execute(s -> productoRepository.findIdsConImagenPesada(Producto.LARGO_MAX_IMAGEN_URL));
+        if (ids == null || ids.isEmpty()) return;
+        int migrados = 0;
+        for (int i = 0; i < ids.size(); i += LOTE_MIGRACION) {
+            List<Long> lote = ids.subList(i, Math.min(i + LOTE_MIGRACION, ids.size()));
+            try {
+                tx.executeWithoutResult(s -> {
+                    for (Producto p : productoRepository.findAllById(lote)) {
+                        asignar(p, p.getImagenUrl());
+                    }
+                    registroCambios.registrar(lote, CambioCatalogo.Tipo.GUARDADO);
+                });
+                migrados += lote.size();
+            } catch (IllegalArgumentException e) {
+                // Un data URI inválido no frena al resto: se migra de a uno y se deja el que falla
+                for (Long id : lote) {
+                    try {
+                        tx.executeWithoutResult(s -> {
+                            productoRepository.findById(id).ifPresent(p -> asignar(p, p.getImagenUrl()));
+                            registroCambios.registrar(List.of(id), CambioCatalogo.Tipo.GUARDADO);
+                        });
+                        migrados++;
+                    } catch (IllegalArgumentException e2) {
+                        log.warn("No se pudo migrar la imagen del producto {}: {}", id, e2.getMessage());
+                    }
+                }
+            }
+        }
+        log.info("Imágenes pesadas movidas a producto_imagenes: {} de {} productos", migrados, ids.size());
+        catalogo.recargar();
+    }
+
+    static Contenido decodificar(String imagen) {
+        if (!esDataUri(imagen)) {
+            String minusculas = imagen.toLowerCase(Locale.ROOT);
+            if (!minusculas.startsWith("http://") && !minusculas.startsWith("https://") && !esRutaLocal(imagen)) {
+                throw new IllegalArgumentException("imagenUrl debe ser una URL http(s), una ruta o un data URI de imagen");
+            }
+            return new Contenido(null, null, imagen, sha256(imagen.getBytes(StandardCharsets.UTF_8)));
+        }
+        // data:[<tipo>][;parámetros][;base64],<datos>
+        int coma = imagen.indexOf(',');
+        if (coma < 0) throw new IllegalArgumentException("Data URI sin datos");
+        String cabecera = imagen.substring(5, coma);
+        boolean base64 = cabecera.toLowerCase(Locale.ROOT).endsWith(";base64");
+        String tipo = cabecera.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        if (!tipo.startsWith("image/") || !esTipoValido(tipo)) {
+            throw new IllegalArgumentException("El data URI debe ser una imagen (tipo " + (tipo.isEmpty() ? "vacío" : tipo) + ")");
+        }
+        byte[] datos;
+        try {
+            datos = base64
+                    ? Base64.getMimeDecoder().decode(imagen.substring(coma + 1))
+                    : URLDecoder.decode(imagen.substring(coma + 1), StandardCharsets.UTF_8).getBytes(StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Data URI con datos inválidos");
+        }
+        if (datos.length > BYTES_MAX) {
+            throw new IllegalArgumentException("La imagen supera " + (BYTES_MAX / (1024 * 1024)) + " MB");
+        }
+        return new Contenido(tipo, datos, null, sha256(datos));
+    }
+
+    private static boolean esTipoValido(String tipo) {
+        try {
+            MimeTypeUtils.parseMimeType(tipo);
+            return tipo.length() <= 100;
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    // Una sola barra inicial: "//host/x" (y "/\host/x", que los navegadores leen igual) apunta a otro
+    // host con el esquema de la página, y la redirección a la URL original sería un open redirect
+    private static boolean esRutaLocal(String imagen) {
+        return imagen.startsWith("/") && (imagen.length() == 1 || (imagen.charAt(1) != '/' && imagen.charAt(1) != '\\'));
+    }
+
+    private static boolean esDataUri(String imagen) {
+        return imagen.regionMatches(true, 0, "data:", 0, 5);
+    }
+
+    private static String sha256(byte[] datos) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
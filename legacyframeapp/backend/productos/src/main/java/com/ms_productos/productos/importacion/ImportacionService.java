@@ -0,0 +1,325 @@
+package com.ms_productos.productos.importacion;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.catalogo.CatalogoSnapshot;
+import com.ms_productos.productos.config.RecursosVersionados;
+import com.ms_productos.productos.dto.ErrorImportacionDto;
+import com.ms_productos.productos.dto.ResultadoImportacionDto;
+import com.ms_productos.productos.imagenes.ImagenesEnLinea;
+import com.ms_productos.productos.model.CambioCatalogo;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Importación masiva de productos desde CSV o NDJSON.
+ *
+ * El archivo se lee fila por fila directamente del cuerpo de la petición (nunca se carga completo)
+ * y se guarda en lotes: cada lote es una transacción con un único findAllById para los upserts
+ * y un flush que Hibernate envía como batch JDBC. Después del flush se limpia el contexto de
+ * persistencia, así la memoria depende del tamaño del lote y no del archivo.
+ *
+ * Las filas sin id se crean y las filas con id actualizan ese producto. Un id que no existe es un
+ * error de esa fila y no un alta: los ids salen de productos_seq en bloques, y una fila insertada
+ * con un id elegido afuera chocaría más adelante con un id que la secuencia entrega a otro alta.
+ *
+ * Cada fila o línea leída cuenta en {@code procesadas}, también las que tienen error. Un CSV sin
+ * encabezado utilizable se rechaza entero con IllegalArgumentException (400 en el controller).
+ */
+@Service
+public class ImportacionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionService.class);
+
+    private static final int TAMANO_LOTE_MAX = 5000;
+    private static final int ERRORES_MAX = 1000;
+
+    public enum Formato { CSV, NDJSON }
+
+    // Una fila ya convertida; id == null significa alta, id != null actualización
+    private record Fila(long numero, Long id, String nombre, String descripcion, Double precio,
+                        Integer stock, String imagenUrl, Long categoriaId) { }
+
+    // Fuente de filas en streaming para cada formato
+    private interface Fuente {
+        Fila siguiente() throws IOException;
+    }
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CatalogoEnMemoria catalogo;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RegistroCambios registroCambios;
+
+    @Autowired
+    private ImagenesEnLinea imagenesEnLinea;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${catalogo.importacion.tamano-lote:500}")
+    private int tamanoLotePorDefecto;
+
+    public ResultadoImportacionDto importar(InputStream cuerpo, Formato formato, Integer tamanoLote) throws IOException {
+        int lote = tamanoLote == null || tamanoLote <= 0 ? tamanoLotePorDefecto : Math.min(tamanoLote, TAMANO_LOTE_MAX);
+        ResultadoImportacionDto resultado = new ResultadoImportacionDto();
+        resultado.setTamanoLote(lote);
+
+        CatalogoSnapshot snapshot = catalogo.snapshot(); // para resolver categorías sin ir a la base
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long inicio = System.nanoTime();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(cuerpo, StandardCharsets.UTF_8), 64 * 1024);
+        Fuente fuente = formato == Formato.CSV ? fuenteCsv(reader, snapshot, resultado) : fuenteNdjson(reader, snapshot, resultado);
+
+        List<Fila> pendientes = new ArrayList<>(lote);
+        Fila fila;
+        try {
+            while ((fila = fuente.siguiente()) != null) {
+                pendientes.add(fila);
+                if (pendientes.size() == lote) {
+                    guardarLote(pendientes, tx, resultado);
+                    pendientes.clear();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // El archivo se corta a la mitad (comillas sin cerrar): lo anterior se guarda igual y el
+            // controller responde 400 con el resultado, para que el cliente sepa desde dónde corregir
+            resultado.setError(e.getMessage());
+        }
+        if (!pendientes.isEmpty()) guardarLote(pendientes, tx, resultado);
+
+        long nanos = System.nanoTime() - inicio;
+        resultado.setDuracionMs(nanos / 1_000_000);
+        resultado.setFilasPorSegundo(nanos == 0 ? 0 : resultado.getProcesadas() * 1_000_000_000.0 / nanos);
+        log.info("Importación {}: {} filas ({} nuevas, {} actualizadas, {} con error) en {} ms",
+                formato, resultado.getProcesadas(), resultado.getInsertadas(), resultado.getActualizadas(),
+                resultado.getConError(), resultado.getDuracionMs());
+
+        if (resultado.getInsertadas() + resultado.getActualizadas() > 0) {
+            catalogo.recargar();
+        }
+        return resultado;
+    }
+
+    private void guardarLote(List<Fila> filas, TransactionTemplate tx, ResultadoImportacionDto resultado) {
+        List<Long> ids = new ArrayList<>();
+        for (Fila f : filas) if (f.id() != null) ids.add(f.id());
+
+        long[] conteos = new long[2]; // [insertadas, actualizadas]
+        List<ErrorImportacionDto> erroresLote = new ArrayList<>();
+        try {
+            tx.executeWithoutResult(status -> {
+                List<Long> cambiados = new ArrayList<>(filas.size());
+                Map<Long, Producto> existentes = new HashMap<>();
+                if (!ids.isEmpty()) {
+                    for (Producto p : productoRepository.findAllById(ids)) existentes.put(p.getId(), p);
+                }
+                for (Fila f : filas) {
+                    if (f.id() == null) {
+                        Producto p = new Producto();
+                        aplicar(p, f);
+                        entityManager.persist(p);
+                        imagenesEnLinea.asignar(p, RecursosVersionados.sinHuella(f.imagenUrl()));
+                        cambiados.add(p.getId());
+                        conteos[0]++;
+                    } else {
+                        Producto p = existentes.get(f.id());
+                        if (p == null) {
+                            erroresLote.add(new ErrorImportacionDto(f.numero(), "No existe un producto con id " + f.id()
+                                    + " (para crear un producto, omita el id)"));
+                            continue;
+                        }
+                        aplicar(p, f); // dirty checking: el UPDATE sale en el flush, agrupado en batch
+                        imagenesEnLinea.asignar(p, RecursosVersionados.sinHuella(f.imagenUrl()));
+                        cambiados.add(p.getId());
+                        conteos[1]++;
+                    }
+                }
+                entityManager.flush();
+                // En la misma transacción del lote: si el lote se revierte, tampoco quedan sus cambios registrados
+                registroCambios.registrar(cambiados, CambioCatalogo.Tipo.GUARDADO);
+                entityManager.clear();
+            });
+            resultado.setInsertadas(resultado.getInsertadas() + conteos[0]);
+            resultado.setActualizadas(resultado.getActualizadas() + conteos[1]);
+            for (ErrorImportacionDto e : erroresLote) registrarError(resultado, e.getFila(), e.getMensaje());
+        } catch (RuntimeException e) {
+            // Si la base rechaza el lote se revierte completo y se informa en cada fila
+            log.warn("Lote de importación rechazado: {}", e.getMessage());
+            for (Fila f : filas) registrarError(resultado, f.numero(), "Lote rechazado por la base de datos: " + e.getMessage());
+        }
+    }
+
+    private void aplicar(Producto p, Fila f) {
+        p.setNombre(f.nombre());
+        p.setDescripcion(f.descripcion());
+        p.setPrecio(f.precio());
+        p.setStock(f.stock());
+        // Referencia sin SELECT: la categoría ya se validó contra el catálogo en memoria
+        p.setCategoria(entityManager.getReference(Categoria.class, f.categoriaId()));
+    }
+
+    // ---- Formatos de entrada ----
+
+    private Fuente fuenteCsv(BufferedReader reader, CatalogoSnapshot snapshot, ResultadoImportacionDto resultado) throws IOException {
+        LectorCsv csv = new LectorCsv(reader);
+        List<String> encabezado = csv.siguiente();
+        Map<String, Integer> columnas = new HashMap<>();
+        if (encabezado != null) {
+            for (int i = 0; i < encabezado.size(); i++) {
+                String nombre = encabezado.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+                columnas.put(nombre, i);
+            }
+        }
+        if (encabezado != null && !columnas.containsKey("nombre")) {
+            throw new IllegalArgumentException("El CSV debe tener encabezado con al menos la columna 'nombre'");
+        }
+
+        long[] numero = {0};
+        return () -> {
+            List<String> campos;
+            while ((campos = csv.siguiente()) != null) {
+                numero[0]++;
+                Map<String, String> valores = new HashMap<>();
+                for (Map.Entry<String, Integer> c : columnas.entrySet()) {
+                    if (c.getValue() < campos.size()) valores.put(c.getKey(), campos.get(c.getValue()));
+                }
+                Fila fila = convertir(numero[0], valores, snapshot, resultado);
+                if (fila != null) return fila;
+            }
+            return null;
+        };
+    }
+
+    private Fuente fuenteNdjson(BufferedReader reader, CatalogoSnapshot snapshot, ResultadoImportacionDto resultado) {
+        long[] numero = {0};
+        return () -> {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                if (linea.isBlank()) continue;
+                numero[0]++;
+                Map<String, String> valores = new HashMap<>();
+                try {
+                    JsonNode nodo = objectMapper.readTree(linea);
+                    nodo.fields().forEachRemaining(e -> {
+                        JsonNode v = e.getValue();
+                        String clave = e.getKey().toLowerCase(Locale.ROOT);
+                        if (clave.equals("categoria") && v.isObject()) {
+                            // Mismo formato que POST /productos: "categoria": {"id": 1}
+                            if (v.hasNonNull("id")) valores.put("categoriaid", v.get("id").asText());
+                            if (v.hasNonNull("nombre")) valores.put("categoria", v.get("nombre").asText());
+                        } else if (!v.isNull()) {
+                            valores.put(clave, v.asText());
+                        }
+                    });
+                } catch (JsonProcessingException e) {
+                    resultado.setProcesadas(resultado.getProcesadas() + 1);
+                    registrarError(resultado, numero[0], "JSON inválido: " + e.getOriginalMessage());
+                    continue;
+                }
+                Fila fila = convertir(numero[0], valores, snapshot, resultado);
+                if (fila != null) return fila;
+            }
+            return null;
+        };
+    }
+
+    // Valida y convierte una fila; si tiene errores los registra y devuelve null
+    private Fila convertir(long numero, Map<String, String> v, CatalogoSnapshot snapshot, ResultadoImportacionDto resultado) {
+        resultado.setProcesadas(resultado.getProcesadas() + 1);
+        try {
+            Long id = numeroLargo(v.get("id"), "id");
+            String nombre = texto(v.get("nombre"));
+            if (nombre == null) throw new IllegalArgumentException("El nombre es obligatorio");
+            Double precio = numeroDecimal(v.get("precio"), "precio");
+            if (precio != null && precio < 0) throw new IllegalArgumentException("El precio no puede ser negativo");
+            Long stockLargo = numeroLargo(v.get("stock"), "stock");
+            if (stockLargo != null && (stockLargo < 0 || stockLargo > Integer.MAX_VALUE)) {
+                throw new IllegalArgumentException("Stock fuera de rango: " + stockLargo);
+            }
+
+            Categoria categoria = null;
+            Long categoriaId = numeroLargo(v.get("categoriaid"), "categoriaId");
+            if (categoriaId != null) {
+                categoria = snapshot.getCategoria(categoriaId);
+            } else if (texto(v.get("categoria")) != null) {
+                categoria = snapshot.getCategoriaPorNombre(v.get("categoria").trim());
+            }
+            if (categoria == null) throw new IllegalArgumentException("Categoría inexistente o no indicada");
+
+            String imagenUrl = texto(v.get("imagenurl"));
+            ImagenesEnLinea.validar(imagenUrl); // un data URI inválido es error de la fila, no del lote
+
+            return new Fila(numero, id, nombre, texto(v.get("descripcion")), precio,
+                    stockLargo != null ? stockLargo.intValue() : null, imagenUrl, categoria.getId());
+        } catch (IllegalArgumentException e) {
+            registrarError(resultado, numero, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void registrarError(ResultadoImportacionDto resultado, long fila, String mensaje) {
+        resultado.setConError(resultado.getConError() + 1);
+        if (resultado.getErrores().size() < ERRORES_MAX) {
+            resultado.getErrores().add(new ErrorImportacionDto(fila, mensaje));
+        }
+    }
+
+    private static String texto(String valor) {
+        return valor == null || valor.isBlank() ? null : valor.trim();
+    }
+
+    private static Long numeroLargo(String valor, String campo) {
+        String t = texto(valor);
+        if (t == null) return null;
+        try {
+            return Long.parseLong(t);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido para " + campo + ": " + t);
+        }
+    }
+
+    private static Double numeroDecimal(String valor, String campo) {
+        String t = texto(valor);
+        if (t == null) return null;
+        try {
+            return Double.parseDouble(t);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido para " + campo + ": " + t);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ms_productos.productos.importacion;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV en streaming (RFC 4180): separador coma, campos entre comillas dobles,
+ * comillas escapadas como "" y saltos de línea dentro de campos entre comillas.
+ * Solo mantiene en memoria el registro que está leyendo. Un archivo que termina con comillas sin
+ * cerrar es un error de formato ({@link IllegalArgumentException} con la línea donde empezó el registro).
+ */
+class LectorCsv {
+
+    private final BufferedReader reader;
+    private long linea; // última línea física leída
+
+    LectorCsv(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    // Devuelve los campos del siguiente registro, o null al llegar al final
+    List<String> siguiente() throws IOException {
+        String linea = leerLinea();
+        while (linea != null && linea.isBlank()) linea = leerLinea();
+        if (linea == null) return null;
+        long inicio = this.linea;
+
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+
+        while (true) {
+            for (int i = 0; i < linea.length(); i++) {
+                char c = linea.charAt(i);
+                if (entreComillas) {
+                    if (c == '"') {
+                        if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                            actual.append('"');
+                            i++;
+                        } else {
+                            entreComillas = false;
+                        }
+                    } else {
+                        actual.append(c);
+                    }
+                } else if (c == '"') {
+                    entreComillas = true;
+                } else if (c == ',') {
+                    campos.add(actual.toString());
+                    actual.setLength(0);
+                } else {
+                    actual.append(c);
+                }
+            }
+            if (!entreComillas) break;
+            // Campo entre comillas que continúa en la línea siguiente
+            linea = leerLinea();
+            if (linea == null) {
+                throw new IllegalArgumentException("Comillas sin cerrar: el registro de la línea " + inicio + " sigue hasta el final del archivo");
+            }
+            actual.append('\n');
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+
+    private String leerLinea() throws IOException {
+        String l = reader.readLine();
+        if (l != null) linea++;
+        return l;
+    }
+}
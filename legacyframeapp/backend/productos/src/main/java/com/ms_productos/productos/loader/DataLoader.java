@@ -6,11 +6,17 @@ import com.ms_productos.productos.repository.CategoriaRepository;
 import com.ms_productos.productos.repository.ProductoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
+// Instancias que se suman a una base ya poblada (perfil rapido) no lo necesitan: catalogo.datos-iniciales=false
 @Component
+@ConditionalOnProperty(name = "catalogo.datos-iniciales", havingValue = "true", matchIfMissing = true)
 public class DataLoader implements CommandLineRunner {
 
     @Autowired
@@ -19,7 +25,12 @@ public class DataLoader implements CommandLineRunner {
     @Autowired
     private ProductoRepository productoRepository;
 
+    // Productos acumulados por crearProd para insertarlos juntos (un batch JDBC, no un INSERT por save)
+    private final List<Producto> porGuardar = new ArrayList<>();
+
+    // Transacción de escritura: el "¿está vacía?" se pregunta a la primaria aunque haya réplica
     @Override
+    @Transactional
     public void run(String... args) throws Exception {
         cargarDatos();
     }
@@ -94,6 +105,9 @@ public class DataLoader implements CommandLineRunner {
 
             crearProd("Marco para Camisetas", "Especializado en enmarcación de camisetas deportivas y memorabilia con montaje especial.", 20000, 10, "/assets/polera.1.png", catCuadros);
 
+            productoRepository.saveAll(porGuardar);
+            porGuardar.clear();
+
             System.out.println(">>> ¡INVENTARIO CARGADO CON ÉXITO! <<<");
         } else {
             System.out.println(">>> La base de datos ya tiene productos. No se cargaron duplicados. <<<");
@@ -109,6 +123,6 @@ public class DataLoader implements CommandLineRunner {
         p.setStock(stock);
         p.setImagenUrl(imagen);
         p.setCategoria(categoria);
-        productoRepository.save(p);
+        porGuardar.add(p);
     }
 }
\ No newline at end of file
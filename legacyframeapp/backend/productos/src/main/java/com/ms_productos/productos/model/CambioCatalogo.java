@@ -0,0 +1,30 @@
+package com.ms_productos.productos.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+// Registro de cambios del catálogo: una fila por producto creado/actualizado o eliminado (tombstone).
+// El seq es AUTO_INCREMENT: puede confirmarse fuera de orden, RegistroCambios lee hasta su marca.
+@Entity
+@Table(name = "catalogo_cambios", indexes = @Index(name = "idx_catalogo_cambios_fecha", columnList = "fecha"))
+@Data
+public class CambioCatalogo {
+
+    public enum Tipo { GUARDADO, ELIMINADO }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @Column(nullable = false)
+    private Long productoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Tipo tipo;
+
+    @Column(nullable = false)
+    private Instant fecha;
+}
@@ -2,13 +2,20 @@ package com.ms_productos.productos.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+// En la caché de segundo nivel: cargar un producto (categoría EAGER) o la lista de categorías no
+// vuelve a MySQL por ellas. READ_WRITE: un cambio de categoría se ve al confirmar su transacción
 @Entity
 @Table(name = "categorias")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "categorias")
 @Data
 public class Categoria {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "categorias_seq")
+    @SequenceGenerator(name = "categorias_seq", sequenceName = "categorias_seq", allocationSize = 10)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -0,0 +1,18 @@
+package com.ms_productos.productos.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Hasta qué seq se borró el registro de cambios (una sola fila, id = 1).
+// Un cliente que pida cambios desde antes de esta marca debe volver a cargar el catálogo completo.
+@Entity
+@Table(name = "catalogo_cambios_compactacion")
+@Data
+public class CompactacionCambios {
+    public static final Long ID = 1L;
+
+    @Id
+    private Long id;
+
+    private long hastaSeq;
+}
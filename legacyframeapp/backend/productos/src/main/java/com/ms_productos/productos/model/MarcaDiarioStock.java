@@ -0,0 +1,18 @@
+package com.ms_productos.productos.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Último registro del diario de stock ya aplicado a la tabla productos (una sola fila, id = 1).
+// Se actualiza en la misma transacción que el volcado: al reiniciar solo se reaplica lo posterior.
+@Entity
+@Table(name = "stock_diario_marca")
+@Data
+public class MarcaDiarioStock {
+    public static final Long ID = 1L;
+
+    @Id
+    private Long id;
+
+    private long ultimoSeq;
+}
@@ -7,8 +7,14 @@ import lombok.Data;
 @Table(name = "productos")
 @Data
 public class Producto {
+    // Largo máximo de imagenUrl en la fila; lo que no entra (o es un data URI) va a producto_imagenes
+    public static final int LARGO_MAX_IMAGEN_URL = 512;
+
+    // Secuencia con asignación por bloques (IDENTITY obliga a Hibernate a insertar fila por fila,
+    // sin batching JDBC). En MySQL Hibernate la emula con la tabla productos_seq.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productos_seq")
+    @SequenceGenerator(name = "productos_seq", sequenceName = "productos_seq", allocationSize = 50)
     private Long id;
 
     private String nombre;
@@ -16,9 +22,14 @@ public class Producto {
     private Double precio;
     private Integer stock;
     
-    // --- CAMBIO IMPORTANTE: AUMENTAMOS EL TAMAÑO ---
-    @Column(length = 5000) 
-    private String imagenUrl; 
+    // Solo una referencia corta: las imágenes en línea y las URLs largas las guarda ImagenesEnLinea
+    // en producto_imagenes y acá queda /api/catalog/productos/{id}/imagen?v=...
+    @Column(length = LARGO_MAX_IMAGEN_URL)
+    private String imagenUrl;
+
+    // SHA-256 de la imagen subida por /api/catalog/upload; sus variantes viven en /images/{thumb|list|detail}/<hash>.jpg
+    @Column(length = 64)
+    private String imagenHash;
 
     @ManyToOne
     @JoinColumn(name = "categoria_id", nullable = false)
@@ -0,0 +1,40 @@
+package com.ms_productos.productos.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// Imagen pesada de un producto (data URI ya decodificado, o una URL que no entra en la fila de productos).
+// Producto no la mapea: solo se lee al pedir /api/catalog/productos/{id}/imagen, nunca en listados.
+@Entity
+@Table(name = "producto_imagenes")
+@Data
+public class ProductoImagen {
+    @Id
+    private Long productoId;
+
+    // Borrar el producto borra su imagen (ON DELETE CASCADE en la base, sin cargarla)
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @MapsId
+    @JoinColumn(name = "producto_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Producto producto;
+
+    @Column(length = 100)
+    private String tipo; // content-type de 'datos'
+
+    @Lob
+    private byte[] datos;
+
+    @Lob
+    private String url; // URL externa larga: se responde con una redirección
+
+    // SHA-256 del contenido; va en la URL corta (?v=) y como ETag
+    @Column(length = 64, nullable = false)
+    private String huella;
+}
@@ -0,0 +1,30 @@
+package com.ms_productos.productos.repository;
+import com.ms_productos.productos.model.CambioCatalogo;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.Instant;
+import java.util.List;
+
+public interface CambioCatalogoRepository extends JpaRepository<CambioCatalogo, Long> {
+
+    @Query("select max(c.seq) from CambioCatalogo c")
+    Long findMaxSeq();
+
+    // Lectura incremental por la PK: "where seq > desde order by seq limit n"
+    List<CambioCatalogo> findBySeqGreaterThanOrderBySeq(long desde, Pageable pageable);
+
+    // Lo mismo, sin pasar de la marca de lo confirmado
+    List<CambioCatalogo> findBySeqGreaterThanAndSeqLessThanEqualOrderBySeq(long desde, long hasta, Pageable pageable);
+
+    boolean existsBySeqBetween(long desde, long hasta);
+
+    @Query("select max(c.seq) from CambioCatalogo c where c.fecha < :antes")
+    Long findMaxSeqAntesDe(@Param("antes") Instant antes);
+
+    @Modifying
+    @Query("delete from CambioCatalogo c where c.seq <= :hasta")
+    int borrarHasta(@Param("hasta") long hasta);
+}
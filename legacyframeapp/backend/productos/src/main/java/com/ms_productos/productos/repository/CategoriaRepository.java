@@ -1,6 +1,16 @@
 package com.ms_productos.productos.repository;
 import com.ms_productos.productos.model.Categoria;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.List;
 
 public interface CategoriaRepository extends JpaRepository<Categoria, Long> {
-}
\ No newline at end of file
+    // La lista de categorías sale del caché de consultas (ids) + la región "categorias" (filas):
+    // recargar el catálogo no las vuelve a leer de MySQL mientras no se escriba la tabla
+    @Override
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    List<Categoria> findAll();
+}
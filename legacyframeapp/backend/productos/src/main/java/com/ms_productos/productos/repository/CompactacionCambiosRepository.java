@@ -0,0 +1,6 @@
+package com.ms_productos.productos.repository;
+import com.ms_productos.productos.model.CompactacionCambios;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CompactacionCambiosRepository extends JpaRepository<CompactacionCambios, Long> {
+}
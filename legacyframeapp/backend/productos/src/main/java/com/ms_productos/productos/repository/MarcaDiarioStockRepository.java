@@ -0,0 +1,6 @@
+package com.ms_productos.productos.repository;
+import com.ms_productos.productos.model.MarcaDiarioStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MarcaDiarioStockRepository extends JpaRepository<MarcaDiarioStock, Long> {
+}
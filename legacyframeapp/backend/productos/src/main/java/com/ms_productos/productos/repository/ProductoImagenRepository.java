@@ -0,0 +1,15 @@
+package com.ms_productos.productos.repository;
+
+import com.ms_productos.productos.model.ProductoImagen;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ProductoImagenRepository extends JpaRepository<ProductoImagen, Long> {
+
+    // Sin SELECT previo: el producto dejó de usar su imagen pesada
+    @Modifying
+    @Query("delete from ProductoImagen i where i.productoId = :productoId")
+    int borrar(@Param("productoId") Long productoId);
+}
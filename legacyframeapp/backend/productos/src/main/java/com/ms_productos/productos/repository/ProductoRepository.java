@@ -1,9 +1,65 @@
 package com.ms_productos.productos.repository;
+import com.ms_productos.productos.dto.ProductoResumenDto;
 import com.ms_productos.productos.model.Producto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface ProductoRepository extends JpaRepository<Producto, Long> {
+public interface ProductoRepository extends JpaRepository<Producto, Long>, ProductoRepositoryCustom {
     // Método extra útil: Buscar productos por ID de categoría
+    // El entity graph trae la categoría en el mismo SELECT (sin un select extra por categoría).
+    // Sin caché de consultas: los listados por categoría salen del catálogo en memoria, y un
+    // resultado cacheado aquí (con stock) quedaría atrasado en las demás instancias
+    @EntityGraph(attributePaths = "categoria")
     List<Producto> findByCategoriaId(Long categoriaId);
-}
\ No newline at end of file
+
+    // Catálogo completo en una sola consulta: findAll() dispara un select adicional por cada categoría
+    @Query("select p from Producto p join fetch p.categoria order by p.id")
+    List<Producto> findAllConCategoria();
+
+    // Recorrido del catálogo fila a fila para exportar: el driver trae bloques de 500 filas
+    // (en MySQL requiere useCursorFetch=true). Debe consumirse dentro de una transacción y cerrarse.
+    @Query("select p from Producto p join fetch p.categoria order by p.id")
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Producto> streamAllConCategoria();
+
+    // Paginación keyset sobre la PK: "where id > cursor order by id" usa el índice y no hace OFFSET
+    @Query("select new com.ms_productos.productos.dto.ProductoResumenDto(p.id, p.nombre, p.precio, p.stock, c.id, c.nombre) " +
+           "from Producto p join p.categoria c where p.id > :despuesDe order by p.id")
+    List<ProductoResumenDto> findResumenDespuesDe(@Param("despuesDe") Long despuesDe, Pageable pageable);
+
+    // Varios productos por id con su categoría en un solo SELECT
+    @Query("select p from Producto p join fetch p.categoria where p.id in :ids")
+    List<Producto> findConCategoriaPorIds(@Param("ids") Collection<Long> ids);
+
+    // Descuento condicional en una sola sentencia: MySQL evalúa la condición sobre el valor actual
+    // de la fila, sin leer-modificar-escribir desde Java. Devuelve 0 si no alcanza (o si no existe).
+    @Modifying(clearAutomatically = true)
+    @Query("update Producto p set p.stock = p.stock - :cantidad where p.id = :id and p.stock >= :cantidad")
+    int descontarStock(@Param("id") Long id, @Param("cantidad") int cantidad);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Producto p set p.stock = p.stock + :cantidad where p.id = :id")
+    int reponerStock(@Param("id") Long id, @Param("cantidad") int cantidad);
+
+    // Volcado de los contadores en memoria (sku calientes): suma el delta neto sin condición
+    @Modifying(clearAutomatically = true)
+    @Query("update Producto p set p.stock = p.stock + :delta where p.id = :id")
+    int ajustarStock(@Param("id") Long id, @Param("delta") int delta);
+
+    // Filas que todavía guardan una imagen pesada en imagen_url (anteriores a producto_imagenes)
+    @Query("select p.id from Producto p where p.imagenUrl like 'data:%' or length(p.imagenUrl) > :largoMax order by p.id")
+    List<Long> findIdsConImagenPesada(@Param("largoMax") int largoMax);
+}
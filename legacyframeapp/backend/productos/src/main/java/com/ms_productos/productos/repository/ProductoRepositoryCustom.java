@@ -0,0 +1,20 @@
+package com.ms_productos.productos.repository;
+
+import com.ms_productos.productos.catalogo.CamposProducto;
+import com.ms_productos.productos.dto.AjusteMasivoDto;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ProductoRepositoryCustom {
+
+    // Página keyset (id > despuesDe) seleccionando solo las columnas de los campos pedidos
+    List<Map<String, Object>> findCamposDespuesDe(CamposProducto campos, Long despuesDe, int limite);
+
+    // Ids que cumplen el filtro de un ajuste masivo (los null no filtran), bloqueados hasta el fin de la transacción
+    List<Long> findIdsParaAjustar(Long categoriaId, Collection<Long> ids, Double precioMin, Double precioMax);
+
+    // Un único UPDATE sobre esos ids; devuelve las filas modificadas
+    int ajustar(Collection<Long> ids, AjusteMasivoDto.Campo campo, AjusteMasivoDto.Operacion operacion, double valor);
+}
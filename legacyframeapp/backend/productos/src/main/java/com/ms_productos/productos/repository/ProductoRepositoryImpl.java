@@ -0,0 +1,118 @@
+package com.ms_productos.productos.repository;
+
+import com.ms_productos.productos.catalogo.CamposProducto;
+import com.ms_productos.productos.catalogo.CamposProducto.Campo;
+import com.ms_productos.productos.dto.AjusteMasivoDto;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Fragmento de ProductoRepository: proyección dinámica con Criteria (select de tuplas, sin entidades)
+// y ajustes masivos con CriteriaUpdate (sin cargar los productos)
+class ProductoRepositoryImpl implements ProductoRepositoryCustom {
+
+    private static final String HASH = "_hash";
+    private static final String URL_SIN_HASH = "_urlSinHash";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<Map<String, Object>> findCamposDespuesDe(CamposProducto campos, Long despuesDe, int limite) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> q = cb.createTupleQuery();
+        Root<Producto> p = q.from(Producto.class);
+        // Sin campos de categoría no hay join: productos sola
+        Join<Producto, Categoria> c = campos.requiereCategoria() ? p.join("categoria") : null;
+
+        List<Selection<?>> columnas = new ArrayList<>();
+        for (Campo campo : campos.getCampos()) {
+            switch (campo) {
+                case MINIATURA -> {
+                    // Con hash la miniatura se arma en Java; la URL solo viaja si no hay hash
+                    Path<String> hash = p.get("imagenHash");
+                    columnas.add(hash.alias(HASH));
+                    columnas.add(cb.<String>selectCase()
+                            .when(cb.isNull(hash), p.<String>get("imagenUrl"))
+                            .otherwise(cb.nullLiteral(String.class))
+                            .alias(URL_SIN_HASH));
+                }
+                case CATEGORIA_ID -> columnas.add(c.get("id").alias(campo.getNombre()));
+                case CATEGORIA_NOMBRE -> columnas.add(c.get("nombre").alias(campo.getNombre()));
+                default -> columnas.add(p.get(campo.getNombre()).alias(campo.getNombre()));
+            }
+        }
+        q.multiselect(columnas)
+                .where(cb.greaterThan(p.get("id"), despuesDe))
+                .orderBy(cb.asc(p.get("id")));
+
+        List<Tuple> tuplas = em.createQuery(q).setMaxResults(limite).getResultList();
+        List<Map<String, Object>> filas = new ArrayList<>(tuplas.size());
+        for (Tuple t : tuplas) {
+            Map<String, Object> fila = new LinkedHashMap<>();
+            for (Campo campo : campos.getCampos()) {
+                Object valor = campo == Campo.MINIATURA
+                        ? CamposProducto.miniatura(t.get(HASH, String.class), t.get(URL_SIN_HASH, String.class))
+                        : t.get(campo.getNombre());
+                fila.put(campo.getNombre(), valor);
+            }
+            filas.add(fila);
+        }
+        return filas;
+    }
+
+    @Override
+    public List<Long> findIdsParaAjustar(Long categoriaId, Collection<Long> ids, Double precioMin, Double precioMax) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> q = cb.createQuery(Long.class);
+        Root<Producto> p = q.from(Producto.class);
+        List<Predicate> filtro = new ArrayList<>();
+        // categoria.id es la FK de productos: no hace falta join
+        if (categoriaId != null) filtro.add(cb.equal(p.get("categoria").get("id"), categoriaId));
+        if (ids != null) filtro.add(p.get("id").in(ids));
+        if (precioMin != null) filtro.add(cb.ge(p.get("precio"), precioMin));
+        if (precioMax != null) filtro.add(cb.le(p.get("precio"), precioMax));
+        q.select(p.get("id")).where(filtro.toArray(Predicate[]::new)).orderBy(cb.asc(p.get("id")));
+        // FOR UPDATE: entre esta lectura y los UPDATE nadie cambia (ni saca del filtro) esas filas
+        return em.createQuery(q).setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList();
+    }
+
+    @Override
+    public int ajustar(Collection<Long> ids, AjusteMasivoDto.Campo campo, AjusteMasivoDto.Operacion operacion, double valor) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaUpdate<Producto> u = cb.createCriteriaUpdate(Producto.class);
+        Root<Producto> p = u.from(Producto.class);
+        boolean porcentaje = operacion == AjusteMasivoDto.Operacion.PORCENTAJE;
+        if (campo == AjusteMasivoDto.Campo.PRECIO) {
+            Path<Double> precio = p.get("precio");
+            Expression<Double> nuevo = cb.round(porcentaje ? cb.prod(precio, 1 + valor / 100) : cb.sum(precio, valor), 2);
+            u.set(precio, cb.<Double>selectCase().when(cb.lt(nuevo, 0.0), 0.0).otherwise(nuevo));
+        } else {
+            Path<Integer> stock = p.get("stock");
+            Expression<Integer> nuevo = porcentaje
+                    ? cb.toInteger(cb.round(cb.prod(stock.as(Double.class), 1 + valor / 100), 0))
+                    : cb.sum(stock, (int) valor);
+            u.set(stock, cb.<Integer>selectCase().when(cb.lt(nuevo, 0), 0).otherwise(nuevo));
+        }
+        u.where(p.get("id").in(ids));
+        return em.createQuery(u).executeUpdate();
+    }
+}
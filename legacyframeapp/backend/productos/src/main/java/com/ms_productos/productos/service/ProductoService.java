@@ -1,31 +1,100 @@
 package com.ms_productos.productos.service;
 
+import com.ms_productos.productos.catalogo.CamposProducto;
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.config.RecursosVersionados;
+import com.ms_productos.productos.dto.PaginaDto;
+import com.ms_productos.productos.dto.ProductoResumenDto;
+import com.ms_productos.productos.event.ProductoCambiadoEvent;
+import com.ms_productos.productos.imagenes.ImagenesEnLinea;
 import com.ms_productos.productos.model.Categoria;
 import com.ms_productos.productos.model.Producto;
 import com.ms_productos.productos.repository.CategoriaRepository;
 import com.ms_productos.productos.repository.ProductoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ProductoService {
 
+    // Tope de elementos por página para que ningún cliente pida el catálogo completo de una vez
+    public static final int LIMITE_PAGINA_MAX = 200;
+    public static final int LIMITE_PAGINA_DEFECTO = 50;
+
     @Autowired
     private ProductoRepository productoRepository;
 
     @Autowired
     private CategoriaRepository categoriaRepository;
 
+    @Autowired
+    private CatalogoEnMemoria catalogo;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Autowired
+    private ImagenesEnLinea imagenesEnLinea;
+
     // 1. Corregido: Método listarTodos() que faltaba
+    // Las lecturas salen del catálogo en memoria, no de MySQL
     public List<Producto> listarTodos() {
-        return productoRepository.findAll();
+        return catalogo.snapshot().getProductos();
+    }
+
+    // Listado paginado por cursor: pedimos un elemento extra para saber si hay siguiente página
+    @Transactional(readOnly = true)
+    public PaginaDto<ProductoResumenDto> listarPagina(Long despuesDe, Integer limite) {
+        long cursor = despuesDe != null ? despuesDe : 0L;
+        int tamano = tamanoPagina(limite);
+
+        List<ProductoResumenDto> filas = productoRepository.findResumenDespuesDe(cursor, PageRequest.of(0, tamano + 1));
+
+        Long siguiente = null;
+        if (filas.size() > tamano) {
+            filas = filas.subList(0, tamano);
+            siguiente = filas.get(tamano - 1).getId();
+        }
+        return new PaginaDto<>(filas, siguiente, tamano);
+    }
+
+    // Misma página, pero MySQL devuelve solo las columnas de los campos pedidos (?fields=)
+    @Transactional(readOnly = true)
+    public PaginaDto<Map<String, Object>> listarPagina(Long despuesDe, Integer limite, CamposProducto campos) {
+        long cursor = despuesDe != null ? despuesDe : 0L;
+        int tamano = tamanoPagina(limite);
+
+        List<Map<String, Object>> filas = productoRepository.findCamposDespuesDe(campos, cursor, tamano + 1);
+
+        Long siguiente = null;
+        if (filas.size() > tamano) {
+            filas = filas.subList(0, tamano);
+            siguiente = (Long) filas.get(tamano - 1).get(CamposProducto.Campo.ID.getNombre());
+        }
+        return new PaginaDto<>(filas, siguiente, tamano);
+    }
+
+    private static int tamanoPagina(Integer limite) {
+        return limite == null || limite <= 0 ? LIMITE_PAGINA_DEFECTO : Math.min(limite, LIMITE_PAGINA_MAX);
     }
 
     // 2. Corregido: guardarProducto ahora recibe 'Producto' (no DTO)
+    @Transactional
     public Producto guardarProducto(Producto producto) {
-        return productoRepository.save(producto);
+        // El catálogo publica /assets con huella; en la base se guarda siempre la URL simple
+        String imagen = RecursosVersionados.sinHuella(producto.getImagenUrl());
+        producto.setImagenUrl(null);
+        Producto guardado = productoRepository.save(producto);
+        // Con el id ya asignado: un data URI o una URL larga van a producto_imagenes
+        imagenesEnLinea.asignar(guardado, imagen);
+        eventos.publishEvent(ProductoCambiadoEvent.guardado(guardado));
+        return guardado;
     }
 
     // 3. Corregido: Método obtenerProductoPorId() que faltaba
@@ -35,15 +104,18 @@ public class ProductoService {
 
     // 4. Corregido: Método para listar categorías
     public List<Categoria> listarCategorias() {
-        return categoriaRepository.findAll();
+        return catalogo.snapshot().getCategorias();
     }
     
     // Método para eliminar (por si lo necesitas a futuro)
+    @Transactional
     public void eliminarProducto(Long id) {
         productoRepository.deleteById(id);
+        eventos.publishEvent(ProductoCambiadoEvent.eliminado(id));
     }
 
     // MÉTODO NUEVO PARA ACTUALIZAR
+    @Transactional
     public Producto actualizarProducto(Long id, Producto productoActualizado) {
         Producto productoExistente = obtenerProductoPorId(id);
         
@@ -52,17 +124,40 @@ public class ProductoService {
             productoExistente.setDescripcion(productoActualizado.getDescripcion());
             productoExistente.setPrecio(productoActualizado.getPrecio());
             productoExistente.setStock(productoActualizado.getStock());
-            productoExistente.setImagenUrl(productoActualizado.getImagenUrl());
+            imagenesEnLinea.asignar(productoExistente, RecursosVersionados.sinHuella(productoActualizado.getImagenUrl()));
+            if (productoActualizado.getImagenHash() != null) {
+                productoExistente.setImagenHash(productoActualizado.getImagenHash());
+            } else if (productoExistente.getImagenHash() != null && (productoActualizado.getImagenUrl() == null
+                    || !productoActualizado.getImagenUrl().contains(productoExistente.getImagenHash()))) {
+                // Cambiaron la imagen por una URL externa: el hash anterior ya no la representa
+                productoExistente.setImagenHash(null);
+            }
             productoExistente.setCategoria(productoActualizado.getCategoria());
             
-            return productoRepository.save(productoExistente);
+            Producto guardado = productoRepository.save(productoExistente);
+            eventos.publishEvent(ProductoCambiadoEvent.guardado(guardado));
+            return guardado;
         }
         return null;
     }
 
+    // Asocia una imagen ya subida (por hash) y apunta imagenUrl a su variante de detalle
+    @Transactional
+    public Producto asignarImagen(Long id, String hash, String url) {
+        Producto producto = obtenerProductoPorId(id);
+        if (producto == null) return null;
+        producto.setImagenHash(hash);
+        imagenesEnLinea.asignar(producto, url);
+        Producto guardado = productoRepository.save(producto);
+        eventos.publishEvent(ProductoCambiadoEvent.guardado(guardado));
+        return guardado;
+    }
+
+    @Transactional
     public boolean borrarProducto(Long id) {
         if (productoRepository.existsById(id)) {
             productoRepository.deleteById(id);
+            eventos.publishEvent(ProductoCambiadoEvent.eliminado(id));
             return true; // Se borró con éxito
         }
         return false; // No existía el ID
@@ -0,0 +1,185 @@
+package com.ms_productos.productos.service;
+
+import com.ms_productos.productos.dto.FaltanteStockDto;
+import com.ms_productos.productos.dto.LineaStockDto;
+import com.ms_productos.productos.dto.ResultadoStockDto;
+import com.ms_productos.productos.event.ProductoCambiadoEvent;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.ProductoRepository;
+import com.ms_productos.productos.stock.StockCaliente;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reserva y liberación de stock sin leer-modificar-escribir.
+ *
+ * Cada línea es un UPDATE condicional ({@code stock = stock - n where stock >= n}): dos compras
+ * simultáneas del mismo producto nunca venden más de lo que hay, sin leer antes la fila. El UPDATE
+ * sí deja la fila bloqueada hasta el commit, así que dos reservas del mismo producto se turnan (por
+ * eso existen los sku calientes); reservas de productos distintos no comparten ningún lock, ni
+ * siquiera al registrar el cambio (el registro de cambios no tiene contador). Las líneas se aplican
+ * ordenadas por id para que dos reservas con los mismos productos bloqueen las filas en el mismo
+ * orden (sin deadlocks), y si alguna no alcanza se revierte la transacción completa.
+ *
+ * El catálogo en memoria recibe el stock nuevo después del commit, agrupado con los demás cambios
+ * pendientes: la reserva no espera a que se copie la foto.
+ *
+ * Los productos marcados como calientes ({@link StockCaliente}) se descuentan de contadores en
+ * memoria en lugar de su fila; StockCaliente los registra al confirmar y los devuelve si la
+ * transacción no llega a confirmarse. Una operación que es toda de sku calientes no abre
+ * transacción ni va a MySQL: responde con los contadores y la fila la pone al día el volcado.
+ */
+@Service
+public class StockService {
+
+    public static final int MAX_LINEAS = 500;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Autowired
+    private StockCaliente stockCaliente;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public ResultadoStockDto reservar(List<LineaStockDto> lineas) {
+        TreeMap<Long, Integer> porProducto = agrupar(lineas);
+        if (soloCalientes(porProducto)) {
+            ResultadoStockDto resultado = new ResultadoStockDto();
+            for (Long id : stockCaliente.descontarTodos(porProducto)) {
+                resultado.getFaltantes().add(new FaltanteStockDto(id, porProducto.get(id), null));
+            }
+            return terminarEnMemoria(porProducto, resultado);
+        }
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            ResultadoStockDto resultado = new ResultadoStockDto();
+            for (Map.Entry<Long, Integer> linea : porProducto.entrySet()) {
+                Long id = linea.getKey();
+                int cantidad = linea.getValue();
+                boolean aplicada;
+                if (stockCaliente.esCaliente(id)) {
+                    aplicada = stockCaliente.descontar(id, cantidad);
+                } else {
+                    aplicada = productoRepository.descontarStock(id, cantidad) == 1;
+                }
+                if (!aplicada) {
+                    resultado.getFaltantes().add(new FaltanteStockDto(id, cantidad, null));
+                }
+            }
+            return terminar(porProducto, resultado, status);
+        });
+    }
+
+    public ResultadoStockDto liberar(List<LineaStockDto> lineas) {
+        TreeMap<Long, Integer> porProducto = agrupar(lineas);
+        if (soloCalientes(porProducto)) {
+            stockCaliente.reponerTodos(porProducto);
+            return terminarEnMemoria(porProducto, new ResultadoStockDto());
+        }
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            ResultadoStockDto resultado = new ResultadoStockDto();
+            for (Map.Entry<Long, Integer> linea : porProducto.entrySet()) {
+                if (stockCaliente.esCaliente(linea.getKey())) continue;
+                if (productoRepository.reponerStock(linea.getKey(), linea.getValue()) == 0) {
+                    resultado.getFaltantes().add(new FaltanteStockDto(linea.getKey(), linea.getValue(), null));
+                }
+            }
+            // Los sku calientes van al final: reponer no puede fallar, así que solo se aplican si todo lo demás salió
+            if (resultado.getFaltantes().isEmpty()) {
+                for (Map.Entry<Long, Integer> linea : porProducto.entrySet()) {
+                    if (stockCaliente.esCaliente(linea.getKey())) stockCaliente.reponer(linea.getKey(), linea.getValue());
+                }
+            }
+            return terminar(porProducto, resultado, status);
+        });
+    }
+
+    // Dentro de una transacción ajena los contadores tienen que esperar a su commit: camino normal
+    private boolean soloCalientes(Map<Long, Integer> porProducto) {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                && porProducto.keySet().stream().allMatch(stockCaliente::esCaliente);
+    }
+
+    private ResultadoStockDto terminarEnMemoria(TreeMap<Long, Integer> porProducto, ResultadoStockDto resultado) {
+        if (!resultado.getFaltantes().isEmpty()) {
+            resultado.getFaltantes().forEach(f -> f.setDisponible(stockCaliente.stock(f.getProductoId())));
+            return resultado;
+        }
+        resultado.setAplicada(true);
+        porProducto.keySet().forEach(id -> resultado.getStock().put(id, stockCaliente.stock(id)));
+        return resultado;
+    }
+
+    private ResultadoStockDto terminar(TreeMap<Long, Integer> porProducto, ResultadoStockDto resultado, TransactionStatus status) {
+        if (!resultado.getFaltantes().isEmpty()) {
+            // Todo o nada: se deshacen las líneas que sí se habían aplicado
+            status.setRollbackOnly();
+            Map<Long, Integer> disponibles = new HashMap<>();
+            for (Producto p : productoRepository.findAllById(resultado.getFaltantes().stream().map(FaltanteStockDto::getProductoId).toList())) {
+                disponibles.put(p.getId(), stockCaliente.esCaliente(p.getId()) ? stockCaliente.stock(p.getId()) : p.getStock());
+            }
+            resultado.getFaltantes().forEach(f -> f.setDisponible(disponibles.get(f.getProductoId())));
+            return resultado;
+        }
+
+        resultado.setAplicada(true);
+        // Los sku calientes salen de su contador (los publica StockCaliente al volcar); el resto se
+        // relee para que el catálogo en memoria publique el stock nuevo al confirmar
+        List<Long> enBase = new ArrayList<>();
+        for (Long id : porProducto.keySet()) {
+            if (stockCaliente.esCaliente(id)) {
+                resultado.getStock().put(id, stockCaliente.stock(id));
+            } else {
+                enBase.add(id);
+            }
+        }
+        if (enBase.isEmpty()) return resultado;
+        for (Producto p : productoRepository.findConCategoriaPorIds(enBase)) {
+            resultado.getStock().put(p.getId(), p.getStock());
+            eventos.publishEvent(ProductoCambiadoEvent.guardado(p));
+        }
+        return resultado;
+    }
+
+    // Suma las líneas repetidas del mismo producto y las deja ordenadas por id
+    private static TreeMap<Long, Integer> agrupar(List<LineaStockDto> lineas) {
+        if (lineas == null || lineas.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos una línea");
+        }
+        if (lineas.size() > MAX_LINEAS) {
+            throw new IllegalArgumentException("Máximo " + MAX_LINEAS + " líneas por operación");
+        }
+        TreeMap<Long, Integer> porProducto = new TreeMap<>();
+        for (LineaStockDto linea : lineas) {
+            if (linea == null || linea.getProductoId() == null) {
+                throw new IllegalArgumentException("Cada línea necesita productoId");
+            }
+            if (linea.getCantidad() == null || linea.getCantidad() <= 0) {
+                throw new IllegalArgumentException("Cantidad inválida para el producto " + linea.getProductoId());
+            }
+            porProducto.merge(linea.getProductoId(), linea.getCantidad(), (a, b) -> {
+                long suma = (long) a + b;
+                if (suma > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Cantidad inválida para el producto " + linea.getProductoId());
+                }
+                return (int) suma;
+            });
+        }
+        return porProducto;
+    }
+}
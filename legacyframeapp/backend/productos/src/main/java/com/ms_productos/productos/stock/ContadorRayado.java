@@ -0,0 +1,76 @@
+package com.ms_productos.productos.stock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock de un producto repartido en varias franjas atómicas.
+ *
+ * Cada hilo descuenta de "su" franja con un CAS, así que reservas concurrentes del mismo
+ * producto no compiten por una única variable. Si la franja propia no alcanza se prueban las
+ * demás, y solo cuando ninguna alcanza por sí sola se consolida todo bajo un lock (ahí se decide
+ * con el total real, sin falsos "sin stock").
+ */
+final class ContadorRayado {
+
+    // 8 longs = 64 bytes: cada franja queda en su propia línea de caché (sin false sharing)
+    private static final int SEPARACION = 8;
+
+    private final AtomicLongArray celdas;
+    private final int franjas;
+
+    ContadorRayado(long inicial, int franjas) {
+        if (franjas < 1) throw new IllegalArgumentException("franjas debe ser >= 1");
+        this.franjas = franjas;
+        this.celdas = new AtomicLongArray(franjas * SEPARACION);
+        repartir(Math.max(0, inicial));
+    }
+
+    boolean descontar(long cantidad) {
+        int inicio = franjaActual();
+        for (int i = 0; i < franjas; i++) {
+            int celda = ((inicio + i) % franjas) * SEPARACION;
+            long valor;
+            while ((valor = celdas.get(celda)) >= cantidad) {
+                if (celdas.compareAndSet(celda, valor, valor - cantidad)) return true;
+            }
+        }
+        return descontarConsolidando(cantidad);
+    }
+
+    void sumar(long cantidad) {
+        celdas.addAndGet(franjaActual() * SEPARACION, cantidad);
+    }
+
+    long total() {
+        long total = 0;
+        for (int i = 0; i < franjas; i++) {
+            total += celdas.get(i * SEPARACION);
+        }
+        return total;
+    }
+
+    // Junta todas las franjas, decide con el total y lo vuelve a repartir
+    private synchronized boolean descontarConsolidando(long cantidad) {
+        long total = 0;
+        for (int i = 0; i < franjas; i++) {
+            total += celdas.getAndSet(i * SEPARACION, 0);
+        }
+        boolean alcanza = total >= cantidad;
+        if (alcanza) total -= cantidad;
+        repartir(total);
+        return alcanza;
+    }
+
+    private void repartir(long total) {
+        long parte = total / franjas;
+        long resto = total % franjas;
+        for (int i = 0; i < franjas; i++) {
+            celdas.addAndGet(i * SEPARACION, parte + (i < resto ? 1 : 0));
+        }
+    }
+
+    private int franjaActual() {
+        long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) ((h >>> 33) % franjas);
+    }
+}
@@ -0,0 +1,197 @@
+package com.ms_productos.productos.stock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diario (write-ahead log) de los cambios de stock en memoria.
+ *
+ * Cada reserva agrega una línea {@code seq;productoId;delta} y espera a que esté en disco. Un
+ * único hilo hace el fsync para todas las que llegaron mientras tanto (group commit), así que
+ * el costo del fsync se reparte entre las reservas concurrentes. Al volcar a MySQL se rota el
+ * archivo: el volcado incluye exactamente lo registrado en el archivo rotado.
+ */
+final class DiarioStock implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DiarioStock.class);
+    private static final String PREFIJO = "stock-";
+    private static final String SUFIJO = ".diario";
+
+    record Registro(long seq, long productoId, long delta) { }
+
+    // Lo que se vuelca en una pasada: deltas netos por producto hasta hastaSeq (inclusive)
+    record Rotacion(long hastaSeq, Map<Long, Long> deltas, Path archivo) { }
+
+    private final Path directorio;
+    private final boolean esperarFsync;
+    private final Thread sincronizador;
+
+    private FileChannel canal;
+    private Path archivo;
+    private long seq;
+    private long sincronizado;
+    private Map<Long, Long> pendientes = new HashMap<>();
+    private IOException falla;
+    private boolean cerrado;
+
+    DiarioStock(Path directorio, long ultimoSeq, boolean esperarFsync) throws IOException {
+        this.directorio = Files.createDirectories(directorio);
+        this.esperarFsync = esperarFsync;
+        this.seq = ultimoSeq;
+        this.sincronizado = ultimoSeq;
+        abrirArchivo();
+        this.sincronizador = new Thread(this::sincronizar, "diario-stock-fsync");
+        this.sincronizador.setDaemon(true);
+        this.sincronizador.start();
+    }
+
+    // Registra el cambio y (si esperarFsync) vuelve recién cuando está en disco
+    void registrar(long productoId, long delta) {
+        long propio;
+        synchronized (this) {
+            if (cerrado) throw new IllegalStateException("Diario de stock cerrado");
+            if (falla != null) throw new UncheckedIOException(falla);
+            propio = ++seq;
+            try {
+                ByteBuffer linea = StandardCharsets.US_ASCII.encode(propio + ";" + productoId + ";" + delta + "\n");
+                while (linea.hasRemaining()) canal.write(linea);
+            } catch (IOException e) {
+                falla = e;
+                throw new UncheckedIOException(e);
+            }
+            pendientes.merge(productoId, delta, Long::sum);
+            notifyAll();
+        }
+        if (esperarFsync) esperar(propio);
+    }
+
+    private synchronized void esperar(long objetivo) {
+        boolean interrumpido = false;
+        while (sincronizado < objetivo && falla == null && !cerrado) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) Thread.currentThread().interrupt();
+        if (falla != null && sincronizado < objetivo) throw new UncheckedIOException(falla);
+    }
+
+    private void sincronizar() {
+        while (true) {
+            FileChannel objetivoCanal;
+            long objetivo;
+            synchronized (this) {
+                while (sincronizado == seq && !cerrado) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (cerrado) return;
+                objetivoCanal = canal;
+                objetivo = seq;
+            }
+            try {
+                objetivoCanal.force(false);
+            } catch (ClosedChannelException e) {
+                // Lo rotaron mientras tanto; rotar() ya hizo el fsync
+            } catch (IOException e) {
+                synchronized (this) {
+                    falla = e;
+                    notifyAll();
+                }
+                log.error("Fallo el fsync del diario de stock", e);
+                return;
+            }
+            synchronized (this) {
+                if (objetivo > sincronizado) sincronizado = objetivo;
+                notifyAll();
+            }
+        }
+    }
+
+    // Cierra el archivo actual (con fsync) y abre uno nuevo; null si no hubo cambios
+    synchronized Rotacion rotar() throws IOException {
+        if (pendientes.isEmpty()) return null;
+        canal.force(false);
+        canal.close();
+        sincronizado = seq;
+        notifyAll();
+        Rotacion r = new Rotacion(seq, pendientes, archivo);
+        pendientes = new HashMap<>();
+        abrirArchivo();
+        return r;
+    }
+
+    private void abrirArchivo() throws IOException {
+        archivo = directorio.resolve(String.format("%s%019d%s", PREFIJO, seq + 1, SUFIJO));
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (cerrado) return;
+            cerrado = true;
+            notifyAll();
+        }
+        sincronizador.interrupt();
+        synchronized (this) {
+            canal.force(false);
+            canal.close();
+        }
+    }
+
+    // Lee todos los archivos en orden; una última línea cortada (caída a mitad de escritura) se ignora:
+    // nunca se confirmó a nadie porque no llegó a estar en disco
+    static List<Registro> leer(Path directorio) throws IOException {
+        List<Registro> registros = new ArrayList<>();
+        for (Path f : archivos(directorio)) {
+            for (String linea : Files.readAllLines(f, StandardCharsets.US_ASCII)) {
+                String[] partes = linea.split(";");
+                if (partes.length != 3) continue;
+                try {
+                    registros.add(new Registro(Long.parseLong(partes[0]), Long.parseLong(partes[1]), Long.parseLong(partes[2])));
+                } catch (NumberFormatException e) {
+                    // línea incompleta
+                }
+            }
+        }
+        return registros;
+    }
+
+    static void borrarTodo(Path directorio) throws IOException {
+        for (Path f : archivos(directorio)) {
+            Files.deleteIfExists(f);
+        }
+    }
+
+    private static List<Path> archivos(Path directorio) throws IOException {
+        List<Path> archivos = new ArrayList<>();
+        if (!Files.isDirectory(directorio)) return archivos;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(directorio, PREFIJO + "*" + SUFIJO)) {
+            ds.forEach(archivos::add);
+        }
+        archivos.sort(null); // el nombre lleva el primer seq con ceros a la izquierda
+        return archivos;
+    }
+}
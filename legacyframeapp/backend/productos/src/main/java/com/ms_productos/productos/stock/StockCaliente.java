@@ -0,0 +1,288 @@
+package com.ms_productos.productos.stock;
+
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.event.ProductoCambiadoEvent;
+import com.ms_productos.productos.model.CambioCatalogo;
+import com.ms_productos.productos.model.MarcaDiarioStock;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.MarcaDiarioStockRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Modo "sku caliente": el stock de los productos listados en {@code catalogo.stock.calientes}
+ * vive en contadores en memoria ({@link ContadorRayado}) y no en una fila de MySQL por reserva.
+ *
+ * El contador cambia en el momento (así dos reservas no toman la misma unidad), pero el cambio se
+ * registra en el {@link DiarioStock} (con fsync) recién cuando la transacción que lo pidió confirma;
+ * si no confirma, se deshace en el contador y el diario no se entera. Así una caída nunca reaplica
+ * el descuento de una reserva revertida. Cada {@code catalogo.stock.volcado-ms} los deltas netos
+ * se aplican a la tabla productos en una sola transacción junto con la marca del último registro
+ * aplicado. Si el proceso se cae, al arrancar se reaplica lo que quedó en el diario después de esa marca.
+ *
+ * Mientras el modo está activo, el stock de esos productos se cambia solo con reservar/liberar
+ * (un PUT con stock nuevo se pisaría con el siguiente volcado). Sin la propiedad no hace nada.
+ */
+@Component
+public class StockCaliente {
+
+    private static final Logger log = LoggerFactory.getLogger(StockCaliente.class);
+
+    @Value("${catalogo.stock.calientes:}")
+    private List<Long> calientes;
+
+    @Value("${catalogo.stock.franjas:0}")
+    private int franjas;
+
+    @Value("${catalogo.stock.diario.directorio:stock-diario}")
+    private String directorio;
+
+    @Value("${catalogo.stock.diario.esperar-fsync:true}")
+    private boolean esperarFsync;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private MarcaDiarioStockRepository marcaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Autowired
+    private RegistroCambios registroCambios;
+
+    private final Map<Long, ContadorRayado> contadores = new ConcurrentHashMap<>();
+    // Cambios confirmados que el diario no pudo registrar: van igual en el próximo volcado
+    private final Map<Long, Long> sinDiario = new ConcurrentHashMap<>();
+    private final List<DiarioStock.Rotacion> sinAplicar = new ArrayList<>();
+    private volatile DiarioStock diario;
+
+    // Se puede volver a llamar: carga los sku calientes que todavía no tienen contador
+    // (por ejemplo, uno listado en la propiedad que se creó después del arranque)
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void iniciar() throws IOException {
+        if (calientes == null || calientes.isEmpty()) return;
+        Path dir = Path.of(directorio);
+        if (diario == null) {
+            long ultimoSeq = recuperar(dir);
+            diario = new DiarioStock(dir, ultimoSeq, esperarFsync);
+        }
+
+        int n = franjas > 0 ? franjas : Runtime.getRuntime().availableProcessors();
+        List<Long> faltantes = calientes.stream().filter(id -> !contadores.containsKey(id)).toList();
+        // Desde la primaria: un stock de partida leído de la réplica atrasada permitiría sobrevender
+        List<Producto> productos = new TransactionTemplate(transactionManager).execute(status -> productoRepository.findAllById(faltantes));
+        for (Producto p : productos) {
+            contadores.put(p.getId(), new ContadorRayado(p.getStock() != null ? p.getStock() : 0, n));
+        }
+        log.info("Stock en memoria para {} sku calientes ({} franjas, diario en {})", contadores.size(), n, dir.toAbsolutePath());
+    }
+
+    public boolean esCaliente(Long productoId) {
+        return contadores.containsKey(productoId);
+    }
+
+    // false si no alcanza; si alcanza, el descuento va al diario cuando confirme la transacción
+    public boolean descontar(Long productoId, int cantidad) {
+        ContadorRayado contador = contadores.get(productoId);
+        if (!contador.descontar(cantidad)) return false;
+        registrarAlConfirmar(productoId, contador, -cantidad);
+        return true;
+    }
+
+    public void reponer(Long productoId, int cantidad) {
+        ContadorRayado contador = contadores.get(productoId);
+        contador.sumar(cantidad);
+        registrarAlConfirmar(productoId, contador, cantidad);
+    }
+
+    // Reserva que es toda de sku calientes, sin transacción: todas las líneas o ninguna, y al diario
+    // solo si se aplicaron todas. Devuelve los ids que no alcanzaron (vacío = aplicada)
+    public List<Long> descontarTodos(Map<Long, Integer> lineas) {
+        List<Long> faltantes = new ArrayList<>();
+        Map<Long, Integer> aplicadas = new HashMap<>();
+        for (Map.Entry<Long, Integer> linea : lineas.entrySet()) {
+            if (contadores.get(linea.getKey()).descontar(linea.getValue())) {
+                aplicadas.put(linea.getKey(), linea.getValue());
+            } else {
+                faltantes.add(linea.getKey());
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            aplicadas.forEach((id, cantidad) -> contadores.get(id).sumar(cantidad));
+            return faltantes;
+        }
+        aplicadas.forEach((id, cantidad) -> registrar(id, -cantidad));
+        return faltantes;
+    }
+
+    public void reponerTodos(Map<Long, Integer> lineas) {
+        lineas.forEach((id, cantidad) -> {
+            contadores.get(id).sumar(cantidad);
+            registrar(id, cantidad);
+        });
+    }
+
+    public int stock(Long productoId) {
+        return (int) contadores.get(productoId).total();
+    }
+
+    // Fuera de una transacción se registra ya
+    private void registrarAlConfirmar(Long productoId, ContadorRayado contador, int delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            registrar(productoId, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    registrar(productoId, delta);
+                } else if (delta < 0) {
+                    contador.sumar(-delta);
+                } else if (!contador.descontar(delta)) {
+                    log.warn("No se pudo deshacer la liberación de {} unidades del producto {}", delta, productoId);
+                }
+            }
+        });
+    }
+
+    // Ya confirmado: si el diario falla no se puede deshacer, así que el cambio se guarda para el
+    // próximo volcado (sin la protección del diario ante una caída hasta entonces)
+    private void registrar(Long productoId, long delta) {
+        try {
+            diario.registrar(productoId, delta);
+        } catch (RuntimeException e) {
+            log.error("No se pudo registrar en el diario {} unidades del producto {}; se aplican en el próximo volcado",
+                    delta, productoId, e);
+            sinDiario.merge(productoId, delta, Long::sum);
+        }
+    }
+
+    // Aplica los deltas netos acumulados desde el último volcado. Si MySQL falla, los archivos
+    // rotados se conservan y se reintentan junto con los siguientes (la marca no avanza)
+    @Scheduled(fixedDelayString = "${catalogo.stock.volcado-ms:200}")
+    public synchronized void volcar() throws IOException {
+        if (diario == null) return;
+        DiarioStock.Rotacion rotacion = diario.rotar();
+        if (rotacion != null) sinAplicar.add(rotacion);
+        Map<Long, Long> sueltos = new HashMap<>();
+        for (Long id : sinDiario.keySet()) {
+            Long delta = sinDiario.remove(id);
+            if (delta != null) sueltos.merge(id, delta, Long::sum);
+        }
+        if (sinAplicar.isEmpty() && sueltos.isEmpty()) return;
+
+        Map<Long, Long> deltas = new HashMap<>(sueltos);
+        for (DiarioStock.Rotacion r : sinAplicar) {
+            r.deltas().forEach((id, delta) -> deltas.merge(id, delta, Long::sum));
+        }
+        Long hasta = sinAplicar.isEmpty() ? null : sinAplicar.get(sinAplicar.size() - 1).hastaSeq();
+        List<ProductoCambiadoEvent> cambios = new ArrayList<>();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                aplicar(deltas);
+                if (hasta != null) guardarMarca(hasta);
+                long seq = registroCambios.registrar(deltas.keySet(), CambioCatalogo.Tipo.GUARDADO);
+                // Releídos con las filas todavía bloqueadas: el estado corresponde a ese seq
+                for (Producto p : productoRepository.findConCategoriaPorIds(deltas.keySet())) {
+                    cambios.add(ProductoCambiadoEvent.guardado(p, seq));
+                }
+            });
+        } catch (RuntimeException e) {
+            sueltos.forEach((id, delta) -> sinDiario.merge(id, delta, Long::sum));
+            throw e;
+        }
+        for (DiarioStock.Rotacion r : sinAplicar) {
+            Files.deleteIfExists(r.archivo());
+        }
+        sinAplicar.clear();
+
+        // Después del commit, con el seq ya puesto (el registro de cambios se escribió arriba)
+        cambios.forEach(eventos::publishEvent);
+    }
+
+    @PreDestroy
+    public synchronized void cerrar() throws IOException {
+        if (diario == null) return;
+        volcar();
+        diario.close();
+        diario = null;
+    }
+
+    // Reaplica lo que quedó en el diario después de la marca y devuelve el último seq
+    private long recuperar(Path dir) throws IOException {
+        MarcaDiarioStock marca = new TransactionTemplate(transactionManager)
+                .execute(status -> marcaRepository.findById(MarcaDiarioStock.ID).orElse(null));
+        List<DiarioStock.Registro> registros = DiarioStock.leer(dir);
+        if (marca == null) {
+            // Base nueva (por ejemplo con ddl-auto=create-drop): el diario es de otra base y no aplica
+            if (!registros.isEmpty()) {
+                log.warn("Se descarta un diario de stock con {} registros: la base no tiene marca de volcado", registros.size());
+            }
+            DiarioStock.borrarTodo(dir);
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> guardarMarca(0L));
+            return 0L;
+        }
+
+        Map<Long, Long> deltas = new HashMap<>();
+        long ultimo = marca.getUltimoSeq();
+        for (DiarioStock.Registro r : registros) {
+            if (r.seq() <= marca.getUltimoSeq()) continue;
+            deltas.merge(r.productoId(), r.delta(), Long::sum);
+            ultimo = Math.max(ultimo, r.seq());
+        }
+        if (!deltas.isEmpty()) {
+            long hasta = ultimo;
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                aplicar(deltas);
+                guardarMarca(hasta);
+            });
+            log.info("Diario de stock: reaplicados {} productos hasta el registro {}", deltas.size(), hasta);
+        }
+        DiarioStock.borrarTodo(dir);
+        return ultimo;
+    }
+
+    private void aplicar(Map<Long, Long> deltas) {
+        deltas.forEach((id, delta) -> {
+            if (delta != 0) productoRepository.ajustarStock(id, Math.toIntExact(delta));
+        });
+    }
+
+    private void guardarMarca(long seq) {
+        MarcaDiarioStock marca = marcaRepository.findById(MarcaDiarioStock.ID).orElseGet(() -> {
+            MarcaDiarioStock m = new MarcaDiarioStock();
+            m.setId(MarcaDiarioStock.ID);
+            return m;
+        });
+        marca.setUltimoSeq(seq);
+        marcaRepository.save(marca);
+    }
+}
@@ -0,0 +1,140 @@
+package com.ms_productos.productos.ajuste;
+
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.dto.AjusteMasivoDto;
+import com.ms_productos.productos.dto.ResultadoAjusteDto;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.CategoriaRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import com.ms_productos.productos.stock.StockCaliente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sin transacción de test: el ajuste confirma la suya y recién ahí se recarga el catálogo
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({AjusteMasivoService.class, CatalogoEnMemoria.class, RegistroCambios.class, StockCaliente.class})
+class AjusteMasivoServiceTest {
+
+	// Más de dos lotes de UPDATE
+	private static final int RUSTICAS = 2 * AjusteMasivoService.LOTE + 100;
+
+	@Autowired
+	private AjusteMasivoService ajusteMasivoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private CatalogoEnMemoria catalogo;
+
+	@Autowired
+	private RegistroCambios registroCambios;
+
+	private Long primera;
+	private Long cuadro;
+
+	@BeforeEach
+	void setUp() {
+		productoRepository.deleteAllInBatch();
+		categoriaRepository.deleteAllInBatch();
+		Categoria rusticas = categoria("rusticas");
+		Categoria cuadros = categoria("cuadros");
+		List<Producto> productos = new ArrayList<>();
+		for (int i = 0; i < RUSTICAS; i++) productos.add(producto("Moldura " + i, 1000.0 + i, 10, rusticas));
+		productos.add(producto("Marco", 5000.0, 10, cuadros));
+		productoRepository.saveAll(productos);
+		primera = productos.get(0).getId();
+		cuadro = productos.get(RUSTICAS).getId();
+		catalogo.recargar();
+	}
+
+	private Categoria categoria(String nombre) {
+		Categoria c = new Categoria();
+		c.setNombre(nombre);
+		return categoriaRepository.save(c);
+	}
+
+	private static Producto producto(String nombre, double precio, int stock, Categoria categoria) {
+		Producto p = new Producto();
+		p.setNombre(nombre);
+		p.setPrecio(precio);
+		p.setStock(stock);
+		p.setCategoria(categoria);
+		return p;
+	}
+
+	private static AjusteMasivoDto ajuste(AjusteMasivoDto.Campo campo, AjusteMasivoDto.Operacion operacion, double valor) {
+		AjusteMasivoDto a = new AjusteMasivoDto();
+		a.setCampo(campo);
+		a.setOperacion(operacion);
+		a.setValor(valor);
+		return a;
+	}
+
+	@Test
+	void porcentajeSobreUnaCategoriaEnUnaTransaccionYUnaVersion() {
+		long version = catalogo.snapshot().getVersion();
+		long cursor = registroCambios.ultimoConfirmado();
+
+		AjusteMasivoDto ajuste = ajuste(AjusteMasivoDto.Campo.PRECIO, AjusteMasivoDto.Operacion.PORCENTAJE, 8);
+		ajuste.setCategoria("rusticas");
+		ResultadoAjusteDto resultado = ajusteMasivoService.ajustar(ajuste);
+
+		assertEquals(RUSTICAS, resultado.getActualizados());
+		assertEquals(version + 1, resultado.getVersion());
+		assertEquals(version + 1, catalogo.snapshot().getVersion());
+		assertEquals(1080.0, productoRepository.findById(primera).orElseThrow().getPrecio());
+		assertEquals(1081.08, productoRepository.findById(primera + 1).orElseThrow().getPrecio());
+		assertEquals(1081.08, catalogo.snapshot().getProducto(primera + 1).getPrecio());
+		assertEquals(5000.0, productoRepository.findById(cuadro).orElseThrow().getPrecio());
+		assertEquals(cursor + RUSTICAS, registroCambios.ultimoConfirmado());
+	}
+
+	@Test
+	void stockNoQuedaNegativoYLosFiltrosSeCombinan() {
+		AjusteMasivoDto resta = ajuste(AjusteMasivoDto.Campo.STOCK, AjusteMasivoDto.Operacion.ABSOLUTO, -15);
+		resta.setIds(List.of(primera, primera + 1, cuadro));
+		resta.setPrecioMax(1000.5);
+		assertEquals(1, ajusteMasivoService.ajustar(resta).getActualizados());
+		assertEquals(0, productoRepository.findById(primera).orElseThrow().getStock());
+		assertEquals(10, productoRepository.findById(primera + 1).orElseThrow().getStock());
+
+		AjusteMasivoDto mitad = ajuste(AjusteMasivoDto.Campo.STOCK, AjusteMasivoDto.Operacion.PORCENTAJE, -45);
+		mitad.setCategoriaId(productoRepository.findById(cuadro).orElseThrow().getCategoria().getId());
+		assertEquals(1, ajusteMasivoService.ajustar(mitad).getActualizados());
+		assertEquals(6, productoRepository.findById(cuadro).orElseThrow().getStock()); // 5,5 redondea a 6
+	}
+
+	@Test
+	void rechazaAjustesSinFiltroOInvalidos() {
+		AjusteMasivoDto sinFiltro = ajuste(AjusteMasivoDto.Campo.PRECIO, AjusteMasivoDto.Operacion.PORCENTAJE, 8);
+		assertThrows(IllegalArgumentException.class, () -> ajusteMasivoService.ajustar(sinFiltro));
+
+		AjusteMasivoDto todo = ajuste(AjusteMasivoDto.Campo.PRECIO, AjusteMasivoDto.Operacion.PORCENTAJE, -100);
+		todo.setCategoria("rusticas");
+		assertThrows(IllegalArgumentException.class, () -> ajusteMasivoService.ajustar(todo));
+
+		AjusteMasivoDto desconocida = ajuste(AjusteMasivoDto.Campo.STOCK, AjusteMasivoDto.Operacion.ABSOLUTO, 1.5);
+		desconocida.setCategoria("rusticas");
+		assertThrows(IllegalArgumentException.class, () -> ajusteMasivoService.ajustar(desconocida));
+		desconocida.setValor(1.0);
+		desconocida.setCategoria("espejos");
+		assertThrows(IllegalArgumentException.class, () -> ajusteMasivoService.ajustar(desconocida));
+	}
+}
@@ -0,0 +1,68 @@
+package com.ms_productos.productos.busqueda;
+
+import com.ms_productos.productos.model.Producto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceBusquedaTest {
+
+	private IndiceBusqueda indice;
+
+	private static Producto producto(long id, String nombre, String descripcion) {
+		Producto p = new Producto();
+		p.setId(id);
+		p.setNombre(nombre);
+		p.setDescripcion(descripcion);
+		return p;
+	}
+
+	@BeforeEach
+	void setUp() {
+		indice = new IndiceBusqueda();
+		indice.reconstruir(List.of(
+				producto(1L, "Marco Dorado Clásico", "Elegancia pura con acabado pan de oro envejecido."),
+				producto(2L, "Marco Rústico de Madera", "Acabado rústico natural."),
+				producto(3L, "H 20 albayalde azul", "Moldura rústica con acabado albayalde azul."),
+				producto(4L, "Moldura Ñandú", "Diseño con motivo de ñandú.")
+		));
+	}
+
+	@Test
+	void ignoraTildesYMayusculas() {
+		assertEquals(List.of(1L), indice.buscar("clasico", 0, 10).ids());
+		assertEquals(List.of(4L), indice.buscar("NANDU", 0, 10).ids());
+	}
+
+	@Test
+	void buscaPorPrefijoConTodosLosTerminos() {
+		assertEquals(List.of(1L), indice.buscar("marc dor", 0, 10).ids());
+		assertEquals(2, indice.buscar("marc", 0, 10).total());
+	}
+
+	@Test
+	void priorizaCoincidenciasEnElNombre() {
+		// "rústico" está en el nombre del 2 y solo en la descripción del 3
+		assertEquals(List.of(2L, 3L), indice.buscar("rustic", 0, 10).ids());
+	}
+
+	@Test
+	void paginaResultados() {
+		IndiceBusqueda.Resultado pagina = indice.buscar("acabado", 1, 1);
+		assertEquals(3, pagina.total());
+		assertEquals(1, pagina.ids().size());
+	}
+
+	@Test
+	void actualizaIncrementalmente() {
+		indice.indexar(producto(2L, "Marco Nativo", "Madera de lenga."));
+		assertTrue(indice.buscar("rustico", 0, 10).ids().stream().noneMatch(id -> id == 2L));
+		assertEquals(List.of(2L), indice.buscar("lenga", 0, 10).ids());
+
+		indice.eliminar(1L);
+		assertEquals(0, indice.buscar("dorado", 0, 10).total());
+	}
+}
@@ -0,0 +1,90 @@
+package com.ms_productos.productos.busqueda;
+
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.catalogo.CatalogoSnapshot;
+import com.ms_productos.productos.dto.FacetaDto;
+import com.ms_productos.productos.dto.FiltroProductosDto;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IndiceFacetasTest {
+
+	private IndiceFacetas indice;
+	private Categoria grecas;
+	private Categoria rusticas;
+
+	private static Categoria categoria(long id, String nombre) {
+		Categoria c = new Categoria();
+		c.setId(id);
+		c.setNombre(nombre);
+		return c;
+	}
+
+	private static Producto producto(long id, double precio, int stock, Categoria categoria) {
+		Producto p = new Producto();
+		p.setId(id);
+		p.setNombre("Producto " + id);
+		p.setPrecio(precio);
+		p.setStock(stock);
+		p.setCategoria(categoria);
+		return p;
+	}
+
+	private static int cantidad(List<FacetaDto> facetas, String valor) {
+		return facetas.stream().filter(f -> f.getValor().equals(valor)).findFirst().orElseThrow().getCantidad();
+	}
+
+	@BeforeEach
+	void setUp() {
+		grecas = categoria(1L, "grecas");
+		rusticas = categoria(2L, "rusticas");
+		List<Producto> productos = List.of(
+				producto(1L, 12500, 50, grecas),
+				producto(2L, 38000, 0, grecas),
+				producto(3L, 130000, 45, rusticas),
+				producto(4L, 24990, 10, rusticas));
+
+		CatalogoSnapshot snapshot = mock(CatalogoSnapshot.class);
+		when(snapshot.getCategorias()).thenReturn(List.of(grecas, rusticas));
+		for (Producto p : productos) when(snapshot.getProducto(p.getId())).thenReturn(p);
+		CatalogoEnMemoria catalogo = mock(CatalogoEnMemoria.class);
+		when(catalogo.snapshot()).thenReturn(snapshot);
+
+		indice = new IndiceFacetas();
+		ReflectionTestUtils.setField(indice, "catalogo", catalogo);
+		indice.reconstruir(productos);
+	}
+
+	@Test
+	void combinaFiltrosYCuentaFacetas() {
+		FiltroProductosDto r = indice.filtrar(1L, 10000.0, 40000.0, true, 0, 20);
+
+		assertEquals(1, r.getTotal());
+		assertEquals(1L, r.getItems().get(0).getId());
+		// La faceta de categoría ignora su propio filtro: con precio 10k-40k y stock hay 1 greca y 1 rústica
+		assertEquals(1, cantidad(r.getCategorias(), "grecas"));
+		assertEquals(1, cantidad(r.getCategorias(), "rusticas"));
+		assertEquals(1, cantidad(r.getStock(), "false"));
+	}
+
+	@Test
+	void mantieneConteosAlActualizar() {
+		indice.indexar(producto(2L, 38000, 5, rusticas));
+		FiltroProductosDto r = indice.filtrar(null, null, null, true, 0, 20);
+
+		assertEquals(4, r.getTotal());
+		assertEquals(1, cantidad(r.getCategorias(), "grecas"));
+		assertEquals(3, cantidad(r.getCategorias(), "rusticas"));
+
+		indice.eliminar(3L);
+		assertEquals(1, cantidad(indice.filtrar(null, null, null, null, 0, 20).getRangosPrecio(), "25000-50000"));
+	}
+}
@@ -0,0 +1,106 @@
+package com.ms_productos.productos.busqueda;
+
+import com.ms_productos.productos.model.Producto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndicePreciosTest {
+
+	private static Producto producto(long id, Double precio) {
+		Producto p = new Producto();
+		p.setId(id);
+		p.setNombre("Producto " + id);
+		p.setPrecio(precio);
+		return p;
+	}
+
+	// Lo que debería devolver el índice, recorriendo y ordenando todo
+	private static long[] esperado(Map<Long, Double> precios, Double min, Double max, boolean desc, int pagina, int tamano) {
+		Comparator<Map.Entry<Long, Double>> orden = Comparator.<Map.Entry<Long, Double>>comparingLong(e -> Math.round(e.getValue() * 100))
+				.thenComparing(Map.Entry::getKey);
+		List<Long> ids = precios.entrySet().stream()
+				.filter(e -> min == null || Math.round(e.getValue() * 100) >= Math.round(min * 100))
+				.filter(e -> max == null || Math.round(e.getValue() * 100) <= Math.round(max * 100))
+				.sorted(desc ? orden.reversed() : orden)
+				.map(Map.Entry::getKey)
+				.toList();
+		return ids.stream().skip((long) pagina * tamano).limit(tamano).mapToLong(Long::longValue).toArray();
+	}
+
+	@Test
+	void rangosYPaginasPorPrecio() {
+		IndicePrecios indice = new IndicePrecios();
+		indice.reconstruir(List.of(
+				producto(1L, 12500.0),
+				producto(2L, 38000.0),
+				producto(3L, 12500.0),
+				producto(4L, 24990.5),
+				producto(5L, null)));
+
+		assertEquals(4, indice.size());
+		IndicePrecios.Pagina todos = indice.rango(null, null, false, 0, 10);
+		assertArrayEquals(new long[]{1, 3, 4, 2}, todos.ids());
+		assertEquals(4, todos.total());
+
+		// Límites inclusive
+		IndicePrecios.Pagina rango = indice.rango(12500.0, 24990.5, false, 0, 10);
+		assertArrayEquals(new long[]{1, 3, 4}, rango.ids());
+		assertArrayEquals(new long[]{4, 3}, indice.rango(12500.0, 24990.5, true, 0, 2).ids());
+		assertArrayEquals(new long[]{1}, indice.rango(12500.0, 24990.5, true, 1, 2).ids());
+		assertEquals(0, indice.rango(null, null, false, 5, 10).ids().length);
+		assertEquals(0, indice.rango(30000.0, 20000.0, false, 0, 10).total());
+
+		// Cambios incrementales: sube de precio, aparece, se va
+		indice.indexar(producto(1L, 40000.0));
+		indice.indexar(producto(5L, 100.0));
+		indice.eliminar(2L);
+		assertArrayEquals(new long[]{5, 3, 4, 1}, indice.rango(null, null, false, 0, 10).ids());
+	}
+
+	@Test
+	void coincideConOrdenarTodoTrasCambiosAlAzar() {
+		Random random = new Random(7);
+		Map<Long, Double> precios = new HashMap<>();
+		List<Producto> productos = new ArrayList<>();
+		for (long id = 1; id <= 3000; id++) {
+			double precio = random.nextInt(500) * 100 + (random.nextBoolean() ? 0.5 : 0);
+			precios.put(id, precio);
+			productos.add(producto(id, precio));
+		}
+		IndicePrecios indice = new IndicePrecios();
+		indice.reconstruir(productos);
+
+		for (int i = 0; i < 2000; i++) {
+			long id = 1 + random.nextInt(3500);
+			if (random.nextInt(5) == 0) {
+				indice.eliminar(id);
+				precios.remove(id);
+			} else {
+				double precio = random.nextInt(500) * 100;
+				indice.indexar(producto(id, precio));
+				precios.put(id, precio);
+			}
+		}
+
+		assertEquals(precios.size(), indice.size());
+		for (int i = 0; i < 200; i++) {
+			Double min = random.nextBoolean() ? null : (double) random.nextInt(50_000);
+			Double max = random.nextBoolean() ? null : (double) random.nextInt(50_000);
+			boolean desc = random.nextBoolean();
+			int pagina = random.nextInt(5);
+			int tamano = 1 + random.nextInt(100);
+			long[] ids = indice.rango(min, max, desc, pagina, tamano).ids();
+			assertArrayEquals(esperado(precios, min, max, desc, pagina, tamano), ids,
+					() -> "min=" + min + " max=" + max + " desc=" + desc + " pagina=" + pagina + " -> " + Arrays.toString(ids));
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package com.ms_productos.productos.cambios;
+
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.imagenes.ImagenesEnLinea;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.CambioCatalogoRepository;
+import com.ms_productos.productos.repository.CategoriaRepository;
+import com.ms_productos.productos.repository.CompactacionCambiosRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import com.ms_productos.productos.service.ProductoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Sin transacción de test: el registro de cambios se escribe al confirmar cada operación. El
+// @EnableScheduling de la aplicación también corre acá: despachar y latido solo los llama el test
+@DataJpaTest(properties = {"catalogo.sse.intervalo-ms=3600000", "catalogo.sse.heartbeat-ms=3600000"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DifusionCambios.class, ProductoService.class, CatalogoEnMemoria.class, RegistroCambios.class, ImagenesEnLinea.class,
+		JacksonAutoConfiguration.class})
+class DifusionCambiosTest {
+
+	private static final Pattern EVENTO = Pattern.compile("id:(\\d+)\\nevent:(\\w+)\\n");
+
+	@Autowired
+	private DifusionCambios difusion;
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private CambioCatalogoRepository cambioRepository;
+
+	@Autowired
+	private CompactacionCambiosRepository compactacionRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private RegistroCambios registroCambios;
+
+	// Los envíos quedan en cola hasta que el test los corre: así se ve qué se acumuló en cada buffer
+	private final List<Runnable> envios = new ArrayList<>();
+	private MockMvc mvc;
+	private Categoria cuadros;
+
+	@RestController
+	static class StreamController {
+		private final DifusionCambios difusion;
+
+		StreamController(DifusionCambios difusion) {
+			this.difusion = difusion;
+		}
+
+		@GetMapping("/stream")
+		SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) Long ultimoId) throws IOException {
+			return difusion.suscribir(ultimoId);
+		}
+	}
+
+	@BeforeEach
+	void setUp() {
+		cambioRepository.deleteAllInBatch();
+		compactacionRepository.deleteAllInBatch();
+		productoRepository.deleteAllInBatch();
+		categoriaRepository.deleteAllInBatch();
+		// Cada test empieza en seq 1, con la marca de lo confirmado sin calcular
+		jdbcTemplate.execute("ALTER TABLE catalogo_cambios ALTER COLUMN seq RESTART WITH 1");
+		ReflectionTestUtils.setField(registroCambios, "marca", -1L);
+		cuadros = new Categoria();
+		cuadros.setNombre("cuadros");
+		categoriaRepository.save(cuadros);
+
+		envios.clear();
+		ReflectionTestUtils.setField(difusion, "envios", (Executor) envios::add);
+		ReflectionTestUtils.setField(difusion, "capacidad", 1000);
+		ReflectionTestUtils.setField(difusion, "despachado", -1L);
+		ReflectionTestUtils.setField(registroCambios, "retencionDias", 7);
+		mvc = MockMvcBuilders.standaloneSetup(new StreamController(difusion)).build();
+	}
+
+	@AfterEach
+	void cerrar() {
+		difusion.cerrar();
+	}
+
+	private Producto crear(String nombre) {
+		Producto p = new Producto();
+		p.setNombre(nombre);
+		p.setPrecio(15000.0);
+		p.setStock(10);
+		p.setCategoria(cuadros);
+		return productoService.guardarProducto(p);
+	}
+
+	private void renombrar(Producto p, String nombre) {
+		Producto cambios = new Producto();
+		cambios.setNombre(nombre);
+		cambios.setPrecio(p.getPrecio());
+		cambios.setStock(p.getStock());
+		cambios.setCategoria(cuadros);
+		productoService.actualizarProducto(p.getId(), cambios);
+	}
+
+	private MvcResult conectar(Long ultimoId) throws Exception {
+		var pedido = get("/stream");
+		if (ultimoId != null) pedido.header("Last-Event-ID", ultimoId);
+		return mvc.perform(pedido).andReturn();
+	}
+
+	private void correrEnvios() {
+		while (!envios.isEmpty()) envios.remove(0).run();
+	}
+
+	// "nombre:id" de cada evento con id recibido, en orden
+	private static List<String> eventos(MvcResult conexion) throws Exception {
+		List<String> vistos = new ArrayList<>();
+		Matcher m = EVENTO.matcher(conexion.getResponse().getContentAsString());
+		while (m.find()) vistos.add(m.group(2) + ":" + m.group(1));
+		return vistos;
+	}
+
+	@Test
+	void unProductoQueCambiaVariasVecesAntesDeEnviarseViajaUnaSolaVez() throws Exception {
+		MvcResult conexion = conectar(null);
+		assertEquals(List.of("inicio:0"), eventos(conexion));
+
+		Producto a = crear("Marco Roble");
+		difusion.despachar();
+		renombrar(a, "Marco Roble Claro");
+		crear("Marco Nogal");
+		renombrar(a, "Marco Roble Oscuro");
+		difusion.despachar();
+		correrEnvios();
+
+		// a (seq 1, 2 y 4) queda solo con el último; b (seq 3) va antes por orden de seq
+		assertEquals(List.of("inicio:0", "producto:3", "producto:4"), eventos(conexion));
+		String cuerpo = conexion.getResponse().getContentAsString();
+		assertTrue(cuerpo.contains("Marco Roble Oscuro"));
+		assertFalse(cuerpo.contains("Marco Roble Claro"));
+	}
+
+	@Test
+	void unClienteQueNoLeeSeDesalojaAlLlenarSuBufferYLosDemasSiguen() throws Exception {
+		ReflectionTestUtils.setField(difusion, "capacidad", 2);
+		MvcResult lento = conectar(null);
+		crear("Marco 1");
+		crear("Marco 2");
+		difusion.despachar();
+		// El primero no lee: sus dos eventos siguen pendientes cuando se conecta el segundo
+		MvcResult rapido = conectar(null);
+		assertEquals(2, difusion.getSuscriptores());
+
+		crear("Marco 3");
+		difusion.despachar();
+
+		// Tres productos pendientes con buffer de 2: el lento queda afuera sin recibir nada más
+		assertEquals(1, difusion.getSuscriptores());
+		correrEnvios();
+		assertEquals(List.of("inicio:0"), eventos(lento));
+		assertEquals(List.of("inicio:2", "producto:3"), eventos(rapido));
+	}
+
+	@Test
+	void alReconectarConLastEventIdSeReenviaLoPerdido() throws Exception {
+		MvcResult primera = conectar(null);
+		Producto a = crear("Marco Roble");
+		crear("Marco Nogal");
+		difusion.despachar();
+		correrEnvios();
+		assertEquals(List.of("inicio:0", "producto:1", "producto:2"), eventos(primera));
+
+		// Se cortó después del seq 1; mientras tanto se borró un producto
+		productoService.borrarProducto(a.getId());
+		difusion.despachar();
+		correrEnvios();
+		MvcResult reconexion = conectar(1L);
+		correrEnvios();
+		// a: guardado en 1 y borrado en 3, ya se informa como eliminado; el 2 se reenvía
+		assertEquals(List.of("producto:2", "eliminado:3"), eventos(reconexion));
+
+		// Un id posterior a lo que emitió este servidor (base recreada): recargar todo
+		MvcResult desconocido = conectar(99L);
+		assertEquals(List.of("reiniciar:3"), eventos(desconocido));
+
+		// Un id anterior a lo compactado: también recargar
+		ReflectionTestUtils.setField(registroCambios, "retencionDias", -1);
+		registroCambios.compactar();
+		MvcResult viejo = conectar(1L);
+		assertEquals(List.of("reiniciar:3"), eventos(viejo));
+	}
+}
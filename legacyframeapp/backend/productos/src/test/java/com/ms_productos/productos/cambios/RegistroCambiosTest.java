@@ -0,0 +1,228 @@
+package com.ms_productos.productos.cambios;
+
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.dto.CambiosCatalogoDto;
+import com.ms_productos.productos.imagenes.ImagenesEnLinea;
+import com.ms_productos.productos.model.CambioCatalogo;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.CambioCatalogoRepository;
+import com.ms_productos.productos.repository.CategoriaRepository;
+import com.ms_productos.productos.repository.CompactacionCambiosRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import com.ms_productos.productos.service.ProductoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sin transacción de test: el registro se escribe al confirmar cada operación del servicio
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ProductoService.class, CatalogoEnMemoria.class, RegistroCambios.class, ImagenesEnLinea.class})
+class RegistroCambiosTest {
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private RegistroCambios registroCambios;
+
+	@Autowired
+	private CambioCatalogoRepository cambioRepository;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private CompactacionCambiosRepository compactacionRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private AutowireCapableBeanFactory beanFactory;
+
+	@BeforeEach
+	void limpiar() {
+		cambioRepository.deleteAllInBatch();
+		compactacionRepository.deleteAllInBatch();
+		productoRepository.deleteAllInBatch();
+		categoriaRepository.deleteAllInBatch();
+		// Cada test empieza en seq 1, con la marca de lo confirmado sin calcular
+		jdbcTemplate.execute("ALTER TABLE catalogo_cambios ALTER COLUMN seq RESTART WITH 1");
+		ReflectionTestUtils.setField(registroCambios, "marca", -1L);
+	}
+
+	private Producto crear(Categoria categoria, String nombre) {
+		Producto p = new Producto();
+		p.setNombre(nombre);
+		p.setPrecio(15000.0);
+		p.setStock(10);
+		p.setCategoria(categoria);
+		return productoService.guardarProducto(p);
+	}
+
+	@Test
+	void registraCambiosEnOrdenYCompactaConSenalDeReinicio() {
+		Categoria cuadros = new Categoria();
+		cuadros.setNombre("cuadros");
+		categoriaRepository.save(cuadros);
+
+		Producto a = crear(cuadros, "Marco para Diplomas");
+		Producto b = crear(cuadros, "Marco Vintage Antiguo");
+		CambiosCatalogoDto inicio = registroCambios.leer(0, null);
+		assertEquals(2, inicio.getCambios().size());
+		long cursor = inicio.getHasta();
+
+		Producto cambios = new Producto();
+		cambios.setNombre("Marco para Diplomas UV");
+		cambios.setPrecio(16000.0);
+		cambios.setStock(8);
+		cambios.setCategoria(cuadros);
+		productoService.actualizarProducto(a.getId(), cambios);
+		productoService.actualizarProducto(a.getId(), cambios);
+		productoService.borrarProducto(b.getId());
+
+		// Tres filas nuevas, pero 'a' se informa una sola vez con su estado actual
+		CambiosCatalogoDto delta = registroCambios.leer(cursor, null);
+		assertFalse(delta.isReiniciar());
+		assertEquals(cursor + 3, delta.getHasta());
+		assertEquals(2, delta.getCambios().size());
+		assertEquals(a.getId(), delta.getCambios().get(0).getProductoId());
+		assertEquals("Marco para Diplomas UV", delta.getCambios().get(0).getProducto().getNombre());
+		assertEquals(CambioCatalogo.Tipo.ELIMINADO, delta.getCambios().get(1).getTipo());
+		assertNull(delta.getCambios().get(1).getProducto());
+
+		// Paginación
+		CambiosCatalogoDto pagina = registroCambios.leer(cursor, 1);
+		assertTrue(pagina.isHayMas());
+		assertEquals(cursor + 1, pagina.getHasta());
+
+		// Sin cambios nuevos: página vacía y el mismo cursor
+		assertTrue(registroCambios.leer(delta.getHasta(), null).getCambios().isEmpty());
+
+		// Compactar todo: quien venía de antes debe recargar el catálogo
+		ReflectionTestUtils.setField(registroCambios, "retencionDias", -1);
+		registroCambios.compactar();
+		assertEquals(0, cambioRepository.count());
+		CambiosCatalogoDto reinicio = registroCambios.leer(cursor, null);
+		assertTrue(reinicio.isReiniciar());
+		assertEquals(delta.getHasta(), reinicio.getHasta());
+		assertFalse(registroCambios.leer(reinicio.getHasta(), null).isReiniciar());
+
+		// Los seq siguen después de la compactación
+		crear(cuadros, "Marco para Camisetas");
+		assertEquals(delta.getHasta() + 1, registroCambios.leer(reinicio.getHasta(), null).getHasta());
+		assertEquals(1, productoRepository.findAll().stream().filter(p -> p.getNombre().equals("Marco para Camisetas")).count());
+	}
+
+	@Test
+	void dosInstanciasSobreLaMismaBaseNoRepitenSeqYVenLoQueConfirmaLaOtra() throws Exception {
+		// Otra instancia del servicio: mismo esquema, sin nada compartido en memoria con la primera
+		RegistroCambios otra = beanFactory.createBean(RegistroCambios.class);
+		RegistroCambios[] instancias = {registroCambios, otra};
+		TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> tareas = new ArrayList<>();
+			for (int hilo = 0; hilo < 4; hilo++) {
+				RegistroCambios instancia = instancias[hilo % 2];
+				long base = hilo * 100L;
+				tareas.add(pool.submit(() -> {
+					for (long i = 0; i < 20; i++) {
+						long id = base + i;
+						tx.executeWithoutResult(status -> instancia.registrar(List.of(id, id + 50), CambioCatalogo.Tipo.GUARDADO));
+					}
+				}));
+			}
+			for (Future<?> t : tareas) t.get();
+		} finally {
+			pool.shutdown();
+		}
+
+		// 160 filas con seq distintos, y las dos instancias ven todo lo confirmado
+		long[] seqs = cambioRepository.findAll().stream().mapToLong(CambioCatalogo::getSeq).sorted().toArray();
+		assertEquals(160, LongStream.of(seqs).distinct().count());
+		long ultimo = seqs[seqs.length - 1];
+		assertEquals(ultimo, registroCambios.ultimoConfirmado());
+		assertEquals(ultimo, otra.ultimoConfirmado());
+		assertEquals(ultimo, registroCambios.leer(0, 1000).getHasta());
+
+		// Una transacción deshecha deja un hueco: la marca espera por si está en curso y después lo saltea
+		assertThrows(IllegalStateException.class, () -> tx.executeWithoutResult(status -> {
+			otra.registrar(List.of(1L), CambioCatalogo.Tipo.ELIMINADO);
+			throw new IllegalStateException("falla después de registrar");
+		}));
+		tx.executeWithoutResult(status -> registroCambios.registrar(List.of(2L), CambioCatalogo.Tipo.ELIMINADO));
+		long despues = tx.execute(status -> otra.registrar(List.of(3L), CambioCatalogo.Tipo.ELIMINADO));
+		assertEquals(ultimo, otra.ultimoConfirmado());
+		assertTrue(registroCambios.leer(ultimo, null).getCambios().isEmpty());
+		ReflectionTestUtils.setField(otra, "esperaHuecoMs", 0L);
+		assertEquals(despues, otra.ultimoConfirmado());
+		assertEquals(162, cambioRepository.count());
+	}
+
+	// Un seq tomado por una transacción que todavía no confirma frena la marca, aunque lo posterior ya esté confirmado
+	@Test
+	void unaTransaccionEnCursoRetieneLaMarca() throws Exception {
+		TransactionTemplate tx = new TransactionTemplate(transactionManager);
+		tx.executeWithoutResult(status -> registroCambios.registrar(List.of(1L), CambioCatalogo.Tipo.GUARDADO));
+		long antes = registroCambios.ultimoConfirmado();
+
+		CountDownLatch registrado = new CountDownLatch(1);
+		CountDownLatch confirmar = new CountDownLatch(1);
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> lenta = pool.submit(() -> tx.executeWithoutResult(status -> {
+				registroCambios.registrar(List.of(2L), CambioCatalogo.Tipo.GUARDADO);
+				registrado.countDown();
+				try {
+					confirmar.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+			registrado.await();
+			long rapida = tx.execute(status -> registroCambios.registrar(List.of(3L), CambioCatalogo.Tipo.GUARDADO));
+
+			assertEquals(antes, registroCambios.ultimoConfirmado());
+			CambiosCatalogoDto nada = registroCambios.leer(antes, null);
+			assertTrue(nada.getCambios().isEmpty());
+			assertEquals(antes, nada.getHasta());
+
+			confirmar.countDown();
+			lenta.get();
+			assertEquals(rapida, registroCambios.ultimoConfirmado());
+			assertEquals(List.of(2L, 3L), registroCambios.leer(antes, null).getCambios().stream()
+					.map(c -> c.getProductoId()).toList());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package com.ms_productos.productos.catalogo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CamposProductoTest {
+
+	// PERMITIDOS es una constante (va en las anotaciones de Swagger): se escribe a mano y no debe desfasarse del enum
+	@Test
+	void permitidosCoincideConLosCampos() {
+		String campos = Arrays.stream(CamposProducto.Campo.values()).map(CamposProducto.Campo::getNombre).collect(Collectors.joining(","));
+		assertEquals(campos, CamposProducto.PERMITIDOS);
+	}
+
+	@Test
+	void elIdVaSiempreYUnCampoDesconocidoSeRechaza() {
+		assertNull(CamposProducto.parse(" "));
+		assertEquals(EnumSet.of(CamposProducto.Campo.ID, CamposProducto.Campo.NOMBRE, CamposProducto.Campo.MINIATURA),
+				CamposProducto.parse("nombre, miniatura,,").getCampos());
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> CamposProducto.parse("nombre,costo"));
+		assertTrue(e.getMessage().contains("costo"));
+	}
+}
@@ -0,0 +1,159 @@
+package com.ms_productos.productos.catalogo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CatalogoSerializadoTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private CatalogoEnMemoria catalogo;
+	private CatalogoSerializado serializado;
+
+	@BeforeEach
+	void setUp() {
+		catalogo = mock(CatalogoEnMemoria.class);
+		when(catalogo.snapshot()).thenReturn(snapshot(1, "Marco Roble"));
+		serializado = new CatalogoSerializado();
+		ReflectionTestUtils.setField(serializado, "catalogo", catalogo);
+		ReflectionTestUtils.setField(serializado, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(serializado, "conversorCbor", new MappingJackson2CborHttpMessageConverter());
+		serializado.afterPropertiesSet();
+	}
+
+	private static CatalogoSnapshot snapshot(long version, String nombre) {
+		Categoria categoria = new Categoria();
+		categoria.setId(1L);
+		categoria.setNombre("cuadros");
+		Producto p = new Producto();
+		p.setId(1L);
+		p.setNombre(nombre);
+		p.setPrecio(15000.0);
+		p.setStock(3);
+		p.setCategoria(categoria);
+		TreeMap<Long, Producto> productos = new TreeMap<>();
+		productos.put(1L, p);
+		return new CatalogoSnapshot(version, productos, List.of(categoria));
+	}
+
+	private ResponseEntity<byte[]> pedir(String ifNoneMatch, String acceptEncoding) {
+		return serializado.responder(CatalogoSerializado.Recurso.PRODUCTOS, ifNoneMatch, acceptEncoding, null);
+	}
+
+	private static byte[] descomprimir(byte[] gzip) throws IOException {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+			return in.readAllBytes();
+		}
+	}
+
+	@Test
+	void mismaVersionMismosBytesYEtagDevuelve304() throws IOException {
+		ResponseEntity<byte[]> primera = pedir(null, null);
+		assertEquals(HttpStatus.OK, primera.getStatusCode());
+		assertEquals(MediaType.APPLICATION_JSON, primera.getHeaders().getContentType());
+		assertEquals("1", primera.getHeaders().getFirst(CatalogoSerializado.HEADER_VERSION));
+		assertEquals("no-cache", primera.getHeaders().getCacheControl());
+		assertEquals("Marco Roble", objectMapper.readTree(primera.getBody()).get(0).get("nombre").asText());
+
+		String etag = primera.getHeaders().getETag();
+		assertNotNull(etag);
+		// Sin cambio de versión no se vuelve a serializar: es el mismo arreglo
+		assertSame(primera.getBody(), pedir(null, null).getBody());
+
+		ResponseEntity<byte[]> gzip = pedir(null, "br, gzip;q=0.8");
+		assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		assertArrayEquals(primera.getBody(), descomprimir(gzip.getBody()));
+		// Otros bytes, otro ETag fuerte (un caché intermedio no mezcla las dos codificaciones)
+		String etagGzip = gzip.getHeaders().getETag();
+		assertEquals(etag.substring(0, etag.length() - 1) + "-gz\"", etagGzip);
+
+		for (String ifNoneMatch : new String[]{etag, "W/" + etag, "\"otro\", " + etag, "*", etagGzip}) {
+			ResponseEntity<byte[]> r = pedir(ifNoneMatch, null);
+			assertEquals(HttpStatus.NOT_MODIFIED, r.getStatusCode(), ifNoneMatch);
+			assertNull(r.getBody());
+			assertEquals(etag, r.getHeaders().getETag());
+		}
+		// Cualquiera de los dos revalida también la respuesta comprimida, que responde con el suyo
+		for (String ifNoneMatch : new String[]{etag, etagGzip}) {
+			ResponseEntity<byte[]> r = pedir(ifNoneMatch, "gzip");
+			assertEquals(HttpStatus.NOT_MODIFIED, r.getStatusCode(), ifNoneMatch);
+			assertEquals(etagGzip, r.getHeaders().getETag());
+		}
+	}
+
+	@Test
+	void unaVersionNuevaCambiaCuerpoYEtag() throws IOException {
+		ResponseEntity<byte[]> antes = pedir(null, null);
+		when(catalogo.snapshot()).thenReturn(snapshot(2, "Marco Nogal"));
+
+		ResponseEntity<byte[]> despues = pedir(antes.getHeaders().getETag(), null);
+		assertEquals(HttpStatus.OK, despues.getStatusCode());
+		assertNotEquals(antes.getHeaders().getETag(), despues.getHeaders().getETag());
+		assertEquals("2", despues.getHeaders().getFirst(CatalogoSerializado.HEADER_VERSION));
+		assertEquals("Marco Nogal", objectMapper.readTree(despues.getBody()).get(0).get("nombre").asText());
+	}
+
+	// El ETag depende del contenido, no de la versión: dos instancias con el mismo catálogo coinciden
+	@Test
+	void elEtagSaleDelContenido() {
+		String etag = pedir(null, null).getHeaders().getETag();
+		when(catalogo.snapshot()).thenReturn(snapshot(7, "Marco Roble"));
+		ResponseEntity<byte[]> r = pedir(etag, null);
+		assertEquals(HttpStatus.NOT_MODIFIED, r.getStatusCode());
+		assertEquals("7", r.getHeaders().getFirst(CatalogoSerializado.HEADER_VERSION));
+	}
+
+	@Test
+	void gzipSoloSiElClienteLoAcepta() {
+		assertFalse(CatalogoSerializado.aceptaGzip(null));
+		assertFalse(CatalogoSerializado.aceptaGzip("br, deflate"));
+		assertFalse(CatalogoSerializado.aceptaGzip("gzip;q=0"));
+		assertFalse(CatalogoSerializado.aceptaGzip("gzip; q=0.0"));
+		assertTrue(CatalogoSerializado.aceptaGzip("GZIP"));
+		assertTrue(CatalogoSerializado.aceptaGzip("deflate, gzip;q=0.5"));
+		assertFalse(CatalogoSerializado.coincideEtag(null, "\"a\""));
+		assertFalse(CatalogoSerializado.coincideEtag("\"b\"", "\"a\""));
+	}
+
+	@Test
+	void cborSoloSiElClienteLoPrefiere() {
+		assertFalse(CatalogoSerializado.prefiereCbor(null));
+		assertFalse(CatalogoSerializado.prefiereCbor(""));
+		assertFalse(CatalogoSerializado.prefiereCbor("*/*"));
+		assertFalse(CatalogoSerializado.prefiereCbor("application/json"));
+		assertTrue(CatalogoSerializado.prefiereCbor("application/cbor"));
+		assertFalse(CatalogoSerializado.prefiereCbor("application/cbor;q=0"));
+		assertFalse(CatalogoSerializado.prefiereCbor("application/cbor;q=0.5, application/json"));
+		assertTrue(CatalogoSerializado.prefiereCbor("application/json;q=0.5, application/cbor"));
+		assertFalse(CatalogoSerializado.prefiereCbor("application/cbor;q=basura"));
+	}
+
+	// A igual calidad gana el primero, como en la negociación de Spring MVC (RestTemplate manda JSON primero)
+	@Test
+	void aIgualCalidadGanaElQueVienePrimero() {
+		assertFalse(CatalogoSerializado.prefiereCbor("application/json, application/cbor"));
+		assertFalse(CatalogoSerializado.prefiereCbor("application/json, application/*+json, application/cbor"));
+		assertTrue(CatalogoSerializado.prefiereCbor("application/cbor, application/json"));
+		assertFalse(CatalogoSerializado.prefiereCbor("application/*, application/cbor"));
+		assertTrue(CatalogoSerializado.prefiereCbor("application/cbor, */*"));
+		assertFalse(CatalogoSerializado.prefiereCbor("application/json;q=0.8, application/cbor;q=0.8"));
+		assertTrue(CatalogoSerializado.prefiereCbor("application/cbor;q=0.8, application/json;q=0.8"));
+	}
+}
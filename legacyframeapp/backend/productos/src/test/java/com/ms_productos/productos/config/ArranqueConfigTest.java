@@ -0,0 +1,65 @@
+package com.ms_productos.productos.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.ScheduledAnnotationBeanPostProcessor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contexto mínimo con el perfil rapido (spring.main.lazy-initialization=true): sin base ni web
+class ArranqueConfigTest {
+
+	@Configuration
+	@EnableScheduling
+	@Import(ArranqueConfig.class)
+	static class Config {
+		@Bean
+		Tarea tarea() {
+			return new Tarea();
+		}
+
+		@Bean
+		Comun comun() {
+			return new Comun();
+		}
+	}
+
+	static class Tarea {
+		@Scheduled(fixedDelay = 3_600_000, initialDelay = 3_600_000)
+		void correr() {
+		}
+	}
+
+	static class Comun {
+	}
+
+	@Test
+	void conElPerfilRapidoLasTareasProgramadasSeCreanAlArrancar() {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Config.class)
+				.web(WebApplicationType.NONE)
+				.profiles("rapido")
+				.run()) {
+			assertTrue(context.getEnvironment().getProperty("spring.main.lazy-initialization", Boolean.class));
+			// Nadie los pidió: solo el que tiene @Scheduled existe y su tarea quedó programada
+			assertTrue(context.getBeanFactory().containsSingleton("tarea"));
+			assertFalse(context.getBeanFactory().containsSingleton("comun"));
+			assertEquals(1, context.getBean(ScheduledAnnotationBeanPostProcessor.class).getScheduledTasks().size());
+		}
+	}
+
+	@Test
+	void detectaMetodosProgramadosHeredados() {
+		class Hija extends Tarea {
+		}
+		assertTrue(ArranqueConfig.tieneTareas(Hija.class));
+		assertFalse(ArranqueConfig.tieneTareas(Comun.class));
+		assertFalse(ArranqueConfig.tieneTareas(null));
+	}
+}
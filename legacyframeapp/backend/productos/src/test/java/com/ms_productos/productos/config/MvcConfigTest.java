@@ -0,0 +1,89 @@
+package com.ms_productos.productos.config;
+
+import com.ms_productos.productos.imagenes.ImagenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Solo la configuración MVC sobre una carpeta de imágenes temporal
+@SpringJUnitWebConfig(MvcConfigTest.Config.class)
+class MvcConfigTest {
+
+	private static final String HASH = "3fa4c2d1".repeat(8);
+
+	@Configuration
+	@EnableWebMvc
+	@Import(MvcConfig.class)
+	static class Config {
+		@Bean
+		ImagenService imagenService() throws IOException {
+			return new ImagenService(Files.createTempDirectory("imagenes-").toString());
+		}
+	}
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private ImagenService imagenService;
+
+	private MockMvc mvc;
+
+	@BeforeEach
+	void setUp() {
+		mvc = MockMvcBuilders.webAppContextSetup(context).build();
+		escribir("thumb/" + HASH + ".jpg");
+		escribir("originales/" + HASH + ".png");
+		escribir("thumb/marco-roble.jpg");
+		escribir("logo.png");
+	}
+
+	private void escribir(String ruta) {
+		try {
+			Path archivo = imagenService.getRaiz().resolve(ruta);
+			Files.createDirectories(archivo.getParent());
+			Files.write(archivo, new byte[]{1, 2, 3});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private MvcResult pedir(String url) throws Exception {
+		MvcResult r = mvc.perform(get(url)).andReturn();
+		assertEquals(200, r.getResponse().getStatus(), url);
+		return r;
+	}
+
+	@Test
+	void soloLosArchivosConHashSonInmutables() throws Exception {
+		for (String url : new String[]{"/images/thumb/" + HASH + ".jpg", "/images/originales/" + HASH + ".png"}) {
+			MvcResult r = pedir(url);
+			assertEquals("max-age=31536000, public, immutable", r.getResponse().getHeader("Cache-Control"), url);
+			assertEquals("\"" + HASH + "\"", r.getResponse().getHeader("ETag"), url);
+		}
+
+		for (String url : new String[]{"/images/thumb/marco-roble.jpg", "/images/logo.png"}) {
+			MvcResult r = pedir(url);
+			assertEquals("max-age=600, must-revalidate, public", r.getResponse().getHeader("Cache-Control"), url);
+			assertNull(r.getResponse().getHeader("ETag"), url);
+			assertNotNull(r.getResponse().getHeader("Last-Modified"), url);
+		}
+	}
+}
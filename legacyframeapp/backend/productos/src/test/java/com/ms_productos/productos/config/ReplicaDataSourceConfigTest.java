@@ -0,0 +1,41 @@
+package com.ms_productos.productos.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Dos H2 en memoria hacen de primaria y réplica; cada una responde con su propio nombre de base
+class ReplicaDataSourceConfigTest {
+
+	private static String base(DataSource dataSource, boolean soloLectura) {
+		TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		tx.setReadOnly(soloLectura);
+		return tx.execute(status -> new JdbcTemplate(dataSource).queryForObject("select database()", String.class));
+	}
+
+	@Test
+	void lecturasALaReplicaYEscriturasALaPrimaria() {
+		DataSource primaria = new DriverManagerDataSource("jdbc:h2:mem:primaria;DB_CLOSE_DELAY=-1");
+		DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1");
+		DataSource enrutado = ReplicaDataSourceConfig.enrutar(primaria, replica, 60_000);
+
+		assertEquals("REPLICA", base(enrutado, true));
+		assertEquals("PRIMARIA", base(enrutado, false));
+	}
+
+	@Test
+	void replicaCaidaLeeDeLaPrimaria() {
+		DataSource primaria = new DriverManagerDataSource("jdbc:h2:mem:primaria;DB_CLOSE_DELAY=-1");
+		DataSource caida = new DriverManagerDataSource("jdbc:h2:tcp://127.0.0.1:1/replica");
+		DataSource enrutado = ReplicaDataSourceConfig.enrutar(primaria, caida, 60_000);
+
+		assertEquals("PRIMARIA", base(enrutado, true));
+		assertEquals("PRIMARIA", base(enrutado, true)); // ya marcada como caída: no reintenta hasta que pase el intervalo
+	}
+}
@@ -0,0 +1,97 @@
+package com.ms_productos.productos.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// JSON vs CBOR sobre el catálogo completo. Los tamaños se verifican en cada build; los tiempos de
+// serialización son un micro-benchmark aparte (tag "benchmark", mvn test -Pbenchmark)
+class SerializacionBenchmarkTest {
+
+	private static final int PRODUCTOS = 5000;
+	private static final int CALENTAMIENTO = 20;
+	private static final int MEDICIONES = 30;
+
+	private static List<Producto> catalogo() {
+		List<Categoria> categorias = new ArrayList<>();
+		for (String nombre : List.of("cuadros", "grecas", "rusticas", "nativas", "finger-joint", "naturales")) {
+			Categoria c = new Categoria();
+			c.setId((long) categorias.size() + 1);
+			c.setNombre(nombre);
+			c.setDescripcion("Molduras " + nombre);
+			categorias.add(c);
+		}
+		List<Producto> productos = new ArrayList<>(PRODUCTOS);
+		for (int i = 1; i <= PRODUCTOS; i++) {
+			Producto p = new Producto();
+			p.setId((long) i);
+			p.setNombre("Moldura " + i + " madera");
+			p.setDescripcion("Moldura de madera para cuadros y espejos, terminación mate, largo 2,9 m");
+			p.setPrecio(9990.0 + (i % 500) * 10);
+			p.setStock(i % 120);
+			p.setImagenUrl("/assets/moldura-" + i + "-1f2e3d4c5b6a79881f2e3d4c5b6a7988.jpg");
+			p.setCategoria(categorias.get(i % categorias.size()));
+			productos.add(p);
+		}
+		return productos;
+	}
+
+	@Test
+	void cborEsMasChicoQueJsonParaElCatalogo() throws IOException {
+		ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+		ObjectMapper cbor = CborConfig.cborMapper(Jackson2ObjectMapperBuilder.json());
+		List<Producto> productos = catalogo();
+
+		byte[] bytesJson = json.writeValueAsBytes(productos);
+		byte[] bytesCbor = cbor.writeValueAsBytes(productos);
+
+		// Con estos datos: ~1,62 MB JSON contra ~1,44 MB CBOR; con gzip quedan casi iguales (~75 KB y ~73 KB)
+		assertTrue(bytesCbor.length < bytesJson.length * 0.9, bytesCbor.length + " vs " + bytesJson.length);
+		assertTrue(gzip(bytesCbor) < gzip(bytesJson));
+		Producto[] leidos = cbor.readValue(bytesCbor, Producto[].class);
+		assertEquals(productos, Arrays.asList(leidos));
+	}
+
+	@Test
+	@Tag("benchmark")
+	void tiempoDeSerializacion() throws IOException {
+		ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+		ObjectMapper cbor = CborConfig.cborMapper(Jackson2ObjectMapperBuilder.json());
+		List<Producto> productos = catalogo();
+
+		System.out.printf("Catálogo %d productos: JSON %.2f ms, CBOR %.2f ms%n", PRODUCTOS,
+				medianaNs(json, productos) / 1e6, medianaNs(cbor, productos) / 1e6);
+	}
+
+	private static long medianaNs(ObjectMapper mapper, Object valor) throws IOException {
+		for (int i = 0; i < CALENTAMIENTO; i++) mapper.writeValueAsBytes(valor);
+		long[] tiempos = new long[MEDICIONES];
+		for (int i = 0; i < MEDICIONES; i++) {
+			long inicio = System.nanoTime();
+			mapper.writeValueAsBytes(valor);
+			tiempos[i] = System.nanoTime() - inicio;
+		}
+		Arrays.sort(tiempos);
+		return tiempos[MEDICIONES / 2];
+	}
+
+	private static int gzip(byte[] datos) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+			gz.write(datos);
+		}
+		return out.size();
+	}
+}
@@ -0,0 +1,70 @@
+package com.ms_productos.productos.controller;
+
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.catalogo.CatalogoSerializado;
+import com.ms_productos.productos.catalogo.CatalogoSnapshot;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.service.ProductoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Solo el controller sobre una foto del catálogo simulada: sin base ni contexto de Spring
+class ProductoControllerTest {
+
+	private MockMvc mvc;
+
+	@BeforeEach
+	void setUp() {
+		CatalogoSnapshot snapshot = mock(CatalogoSnapshot.class);
+		when(snapshot.getVersion()).thenReturn(42L);
+		when(snapshot.getProducto(anyLong())).thenAnswer(i -> {
+			long id = i.getArgument(0);
+			if (id > 10) return null;
+			Producto p = new Producto();
+			p.setId(id);
+			p.setNombre("Marco " + id);
+			return p;
+		});
+		CatalogoEnMemoria catalogo = mock(CatalogoEnMemoria.class);
+		when(catalogo.snapshot()).thenReturn(snapshot);
+
+		ProductoController controller = new ProductoController();
+		ReflectionTestUtils.setField(controller, "catalogo", catalogo);
+		mvc = MockMvcBuilders.standaloneSetup(controller).build();
+	}
+
+	@Test
+	void loteEnElOrdenPedidoSinRepetidosYConFaltantes() throws Exception {
+		mvc.perform(get("/api/catalog/productos/lote").param("ids", "7,3,99,7,1"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(CatalogoSerializado.HEADER_VERSION, "42"))
+				.andExpect(jsonPath("$.productos[*].id").value(contains(7, 3, 1)))
+				.andExpect(jsonPath("$.productos[0].nombre").value("Marco 7"))
+				.andExpect(jsonPath("$.faltantes[*]").value(contains(99)));
+	}
+
+	// El tope cuenta ids distintos: repetidos de más no cambian la respuesta
+	@Test
+	void loteConMasIdsDistintosQueElTopeEs400() throws Exception {
+		String tope = LongStream.rangeClosed(1, ProductoService.LIMITE_PAGINA_MAX)
+				.mapToObj(Long::toString).collect(Collectors.joining(","));
+		mvc.perform(get("/api/catalog/productos/lote").param("ids", tope + ",1,2"))
+				.andExpect(status().isOk());
+		mvc.perform(get("/api/catalog/productos/lote").param("ids", tope + "," + (ProductoService.LIMITE_PAGINA_MAX + 1)))
+				.andExpect(status().isBadRequest());
+		mvc.perform(get("/api/catalog/productos/lote").param("ids", "1,abc"))
+				.andExpect(status().isBadRequest());
+	}
+}
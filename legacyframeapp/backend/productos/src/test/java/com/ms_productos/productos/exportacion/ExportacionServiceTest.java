@@ -0,0 +1,155 @@
+package com.ms_productos.productos.exportacion;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.dto.ResultadoImportacionDto;
+import com.ms_productos.productos.imagenes.ImagenesEnLinea;
+import com.ms_productos.productos.importacion.ImportacionService;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.CategoriaRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sin transacción de test: la exportación abre la suya (solo lectura), como en producción
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ExportacionService.class, ImportacionService.class, CatalogoEnMemoria.class, RegistroCambios.class,
+		ImagenesEnLinea.class, JacksonAutoConfiguration.class})
+class ExportacionServiceTest {
+
+	@Autowired
+	private ExportacionService exportacionService;
+
+	@Autowired
+	private ImportacionService importacionService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private CatalogoEnMemoria catalogo;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private Producto roble;
+	private Producto nogal;
+
+	@BeforeEach
+	void setUp() {
+		productoRepository.deleteAll();
+		categoriaRepository.deleteAll();
+		Categoria nativas = new Categoria();
+		nativas.setNombre("nativas");
+		categoriaRepository.save(nativas);
+		roble = crear("Marco Roble", "Roble, con \"nudos\"\nsegunda línea", nativas);
+		nogal = crear("Marco Nogal", null, nativas);
+		catalogo.recargar(); // la importación resuelve las categorías contra el catálogo en memoria
+	}
+
+	private Producto crear(String nombre, String descripcion, Categoria categoria) {
+		Producto p = new Producto();
+		p.setNombre(nombre);
+		p.setDescripcion(descripcion);
+		p.setPrecio(12500.0);
+		p.setStock(4);
+		p.setCategoria(categoria);
+		return productoRepository.save(p);
+	}
+
+	private String exportar(ExportacionService.Formato formato) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exportacionService.exportar(formato, out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void csvConComillasSoloDondeHacenFalta() throws Exception {
+		String csv = exportar(ExportacionService.Formato.CSV);
+		Long categoriaId = roble.getCategoria().getId();
+
+		assertEquals("id,nombre,descripcion,precio,stock,imagenUrl,categoriaId,categoria\n"
+				+ roble.getId() + ",Marco Roble,\"Roble, con \"\"nudos\"\"\nsegunda línea\",12500.0,4,," + categoriaId + ",nativas\n"
+				+ nogal.getId() + ",Marco Nogal,,12500.0,4,," + categoriaId + ",nativas\n", csv);
+	}
+
+	@Test
+	void ndjsonUnProductoPorLineaEnOrdenDeId() throws Exception {
+		List<String> lineas = exportar(ExportacionService.Formato.NDJSON).lines().toList();
+
+		assertEquals(2, lineas.size());
+		JsonNode primero = objectMapper.readTree(lineas.get(0));
+		assertEquals(roble.getId().longValue(), primero.get("id").asLong());
+		assertEquals("Roble, con \"nudos\"\nsegunda línea", primero.get("descripcion").asText());
+		assertEquals("nativas", primero.get("categoria").get("nombre").asText());
+		assertEquals(nogal.getId().longValue(), objectMapper.readTree(lineas.get(1)).get("id").asLong());
+	}
+
+	// Lo exportado se puede volver a cargar con /import: las filas con id actualizan esos productos
+	@Test
+	void loExportadoSeReimportaTalCual() throws Exception {
+		for (ExportacionService.Formato formato : ExportacionService.Formato.values()) {
+			byte[] exportado = exportar(formato).getBytes(StandardCharsets.UTF_8);
+			Producto cambiado = productoRepository.findById(roble.getId()).orElseThrow();
+			cambiado.setDescripcion("otra");
+			cambiado.setPrecio(1.0);
+			productoRepository.save(cambiado);
+
+			ResultadoImportacionDto r = importacionService.importar(new ByteArrayInputStream(exportado),
+					formato == ExportacionService.Formato.CSV ? ImportacionService.Formato.CSV : ImportacionService.Formato.NDJSON, null);
+
+			assertEquals(2, r.getActualizadas(), formato.name());
+			assertEquals(0, r.getConError(), formato.name());
+			Producto restaurado = productoRepository.findById(roble.getId()).orElseThrow();
+			assertEquals("Roble, con \"nudos\"\nsegunda línea", restaurado.getDescripcion(), formato.name());
+			assertEquals(12500.0, restaurado.getPrecio(), formato.name());
+		}
+	}
+
+	// El cliente corta la descarga a mitad de la consulta: sale la IOException original, no una envuelta
+	@Test
+	void unCorteDelClienteSePropagaComoIOException() {
+		List<Producto> mas = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			Producto p = new Producto();
+			p.setNombre("Moldura " + i);
+			p.setPrecio(1000.0);
+			p.setStock(1);
+			p.setCategoria(roble.getCategoria());
+			mas.add(p);
+		}
+		productoRepository.saveAll(mas); // más que el buffer de 16 KB: escribe antes de terminar de leer
+		OutputStream cortado = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("conexión cerrada");
+			}
+		};
+
+		IOException e = assertThrows(IOException.class, () -> exportacionService.exportar(ExportacionService.Formato.NDJSON, cortado));
+		assertEquals("conexión cerrada", e.getMessage());
+	}
+}
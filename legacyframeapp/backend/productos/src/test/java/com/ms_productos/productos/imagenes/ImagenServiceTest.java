@@ -0,0 +1,142 @@
+package com.ms_productos.productos.imagenes;
+
+import com.ms_productos.productos.dto.ImagenSubidaDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagenServiceTest {
+
+	@TempDir
+	Path carpeta;
+
+	private ImagenService imagenService;
+
+	@BeforeEach
+	void setUp() {
+		imagenService = new ImagenService(carpeta.toString());
+	}
+
+	private static byte[] png(int ancho, int alto) throws IOException {
+		BufferedImage imagen = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_ARGB);
+		imagen.setRGB(0, 0, 0xFF336699);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(imagen, "png", out);
+		return out.toByteArray();
+	}
+
+	private static BufferedImage leer(Path archivo) throws IOException {
+		return ImageIO.read(archivo.toFile());
+	}
+
+	private List<Path> archivos() throws IOException {
+		try (Stream<Path> todos = Files.walk(carpeta)) {
+			return todos.filter(Files::isRegularFile).toList();
+		}
+	}
+
+	@Test
+	void elOriginalSeNombraPorSuHashYSeGeneranLasVariantes() throws Exception {
+		byte[] contenido = png(2400, 1200);
+		ImagenSubidaDto dto = imagenService.guardar(new ByteArrayInputStream(contenido), "Marco Roble.PNG");
+
+		String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenido));
+		assertEquals(hash, dto.getHash());
+		assertEquals("/images/originales/" + hash + ".png", dto.getOriginal());
+		assertArrayEquals(contenido, Files.readAllBytes(carpeta.resolve("originales/" + hash + ".png")));
+		assertEquals(contenido.length, dto.getBytes());
+		assertEquals(2400, dto.getAncho());
+		assertEquals(1200, dto.getAlto());
+		assertFalse(dto.isDuplicada());
+
+		// Lado mayor de cada variante, manteniendo la proporción
+		for (var v : ImagenService.VARIANTES.entrySet()) {
+			assertEquals(ImagenService.urlVariante(hash, v.getKey()), dto.getVariantes().get(v.getKey()));
+			BufferedImage variante = leer(carpeta.resolve(v.getKey()).resolve(hash + ".jpg"));
+			assertEquals(v.getValue(), variante.getWidth(), v.getKey());
+			assertEquals(v.getValue() / 2, variante.getHeight(), v.getKey());
+		}
+		// Sin temporales sueltos: el original y una variante por tamaño
+		assertEquals(1 + ImagenService.VARIANTES.size(), archivos().size());
+	}
+
+	@Test
+	void unaImagenChicaNoSeAgranda() throws Exception {
+		ImagenSubidaDto dto = imagenService.guardar(new ByteArrayInputStream(png(300, 200)), "chica.png");
+
+		assertEquals(160, leer(carpeta.resolve("thumb/" + dto.getHash() + ".jpg")).getWidth());
+		BufferedImage detalle = leer(carpeta.resolve("detail/" + dto.getHash() + ".jpg"));
+		assertEquals(300, detalle.getWidth());
+		assertEquals(200, detalle.getHeight());
+	}
+
+	@Test
+	void subirDosVecesLaMismaImagenNoDuplicaArchivos() throws Exception {
+		byte[] contenido = png(640, 480);
+		ImagenSubidaDto primera = imagenService.guardar(new ByteArrayInputStream(contenido), "a.png");
+		List<Path> antes = archivos();
+
+		ImagenSubidaDto segunda = imagenService.guardar(new ByteArrayInputStream(contenido), "a.png");
+
+		assertTrue(segunda.isDuplicada());
+		assertEquals(primera.getHash(), segunda.getHash());
+		assertEquals(antes, archivos());
+	}
+
+	@Test
+	void rechazaLoQueNoEsImagenSinDejarArchivos() throws Exception {
+		byte[] texto = "no soy una imagen".getBytes();
+		assertThrows(IllegalArgumentException.class, () -> imagenService.guardar(new ByteArrayInputStream(texto), "x.png"));
+		assertTrue(archivos().isEmpty());
+	}
+
+	// El encabezado declara 100000x100000: se rechaza antes de reservar memoria para decodificarla
+	@Test
+	void rechazaUnaImagenQueDeclaraDemasiadosPixeles() throws Exception {
+		byte[] bomba = png(10, 10);
+		// IHDR: ancho y alto en big endian a partir del byte 16
+		ByteBuffer.wrap(bomba, 16, 8).putInt(100_000).putInt(100_000);
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> imagenService.guardar(new ByteArrayInputStream(bomba), "bomba.png"));
+		assertTrue(e.getMessage().contains("100000x100000"), e.getMessage());
+		assertTrue(archivos().isEmpty());
+	}
+
+	// Una imagen muy grande se decodifica submuestreada, pero informa su tamaño real
+	@Test
+	void unaImagenGrandeSeLeeSubmuestreada() throws Exception {
+		ImagenSubidaDto dto = imagenService.guardar(new ByteArrayInputStream(png(5000, 50)), "panoramica.png");
+
+		assertEquals(5000, dto.getAncho());
+		assertEquals(50, dto.getAlto());
+		BufferedImage detalle = leer(carpeta.resolve("detail/" + dto.getHash() + ".jpg"));
+		assertEquals(1200, detalle.getWidth());
+		assertEquals(12, detalle.getHeight());
+	}
+
+	// La extensión del original sale del nombre subido solo si es corta y alfanumérica
+	@Test
+	void laExtensionDelNombreSeSanea() throws Exception {
+		ImagenSubidaDto rara = imagenService.guardar(new ByteArrayInputStream(png(10, 10)), "../../x.p/ng");
+		assertEquals("/images/originales/" + rara.getHash(), rara.getOriginal());
+		ImagenSubidaDto sinNombre = imagenService.guardar(new ByteArrayInputStream(png(11, 10)), null);
+		assertEquals("/images/originales/" + sinNombre.getHash(), sinNombre.getOriginal());
+		assertTrue(ImagenService.esHash(rara.getHash()));
+		assertFalse(ImagenService.esHash("../" + rara.getHash()));
+	}
+}
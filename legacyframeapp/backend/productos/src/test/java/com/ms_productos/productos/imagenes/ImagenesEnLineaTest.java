@@ -0,0 +1,30 @@
+package com.ms_productos.productos.imagenes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagenesEnLineaTest {
+
+	@Test
+	void aceptaUrlsHttpYRutasDelMismoSitio() {
+		for (String url : new String[]{"https://cdn.ejemplo.cl/marco.jpg", "HTTP://cdn.ejemplo.cl/marco.jpg", "/assets/marco.png", "/"}) {
+			ImagenesEnLinea.Contenido c = ImagenesEnLinea.decodificar(url);
+			assertEquals(url, c.url());
+			assertNull(c.datos());
+		}
+	}
+
+	// "//host" y "/\host" los navegadores los resuelven contra otro host
+	@Test
+	void rechazaUrlsRelativasAlProtocoloYOtrosEsquemas() {
+		for (String url : new String[]{"//evil.host/x.png", "///evil.host/x.png", "/\\evil.host/x.png", "javascript:alert(1)",
+				"ftp://ejemplo.cl/x.png", "assets/marco.png"}) {
+			assertThrows(IllegalArgumentException.class, () -> ImagenesEnLinea.decodificar(url), url);
+		}
+		// Una URL larga se guarda aparte y /imagen redirige a ella: se valida antes de escribir
+		String larga = "/" + "a".repeat(600) + ".png";
+		ImagenesEnLinea.validar(larga);
+		assertThrows(IllegalArgumentException.class, () -> ImagenesEnLinea.validar("/" + larga));
+	}
+}
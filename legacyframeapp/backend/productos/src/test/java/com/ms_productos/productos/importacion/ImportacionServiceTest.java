@@ -0,0 +1,155 @@
+package com.ms_productos.productos.importacion;
+
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.dto.ResultadoImportacionDto;
+import com.ms_productos.productos.imagenes.ImagenesEnLinea;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.model.ProductoImagen;
+import com.ms_productos.productos.repository.CategoriaRepository;
+import com.ms_productos.productos.repository.ProductoImagenRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sin transacción de test: cada lote debe confirmarse en su propia transacción, como en producción
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ImportacionService.class, CatalogoEnMemoria.class, RegistroCambios.class, ImagenesEnLinea.class, JacksonAutoConfiguration.class})
+class ImportacionServiceTest {
+
+	@Autowired
+	private ImportacionService importacionService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private ProductoImagenRepository productoImagenRepository;
+
+	@Autowired
+	private CatalogoEnMemoria catalogo;
+
+	@BeforeEach
+	void setUp() {
+		productoRepository.deleteAll();
+		categoriaRepository.deleteAll();
+		Categoria rusticas = new Categoria();
+		rusticas.setNombre("rusticas");
+		categoriaRepository.save(rusticas);
+		catalogo.recargar();
+	}
+
+	private static ByteArrayInputStream cuerpo(String texto) {
+		return new ByteArrayInputStream(texto.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void importaCsvEnLotesYReportaErroresPorFila() throws Exception {
+		StringBuilder csv = new StringBuilder("nombre,descripcion,precio,stock,categoria\n");
+		for (int i = 0; i < 1200; i++) {
+			csv.append("Moldura ").append(i).append(",\"Rústica, con \"\"nudos\"\"\",").append(1000 + i).append(",5,rusticas\n");
+		}
+		csv.append("Sin precio válido,,abc,1,rusticas\n");
+		csv.append("Categoría desconocida,,100,1,espejos\n");
+
+		ResultadoImportacionDto r = importacionService.importar(cuerpo(csv.toString()), ImportacionService.Formato.CSV, 500);
+
+		assertEquals(1202, r.getProcesadas());
+		assertEquals(1200, r.getInsertadas());
+		assertEquals(2, r.getConError());
+		assertEquals(1201, r.getErrores().get(0).getFila());
+		assertEquals(1200, productoRepository.count());
+		assertEquals("Rústica, con \"nudos\"", productoRepository.findAll().get(0).getDescripcion());
+		// El catálogo en memoria ya ve lo importado
+		assertEquals(1200, catalogo.snapshot().getProductos().size());
+	}
+
+	@Test
+	void ndjsonActualizaPorId() throws Exception {
+		importacionService.importar(cuerpo("{\"nombre\":\"J-16\",\"precio\":73000,\"stock\":15,\"categoria\":\"rusticas\"}\n"),
+				ImportacionService.Formato.NDJSON, null);
+		Producto existente = productoRepository.findAll().get(0);
+
+		String ndjson = "{\"id\":" + existente.getId() + ",\"nombre\":\"J-16\",\"precio\":80000,\"stock\":3,\"categoria\":{\"id\":"
+				+ existente.getCategoria().getId() + "}}\n"
+				+ "{\"id\":999999,\"nombre\":\"Fantasma\",\"categoria\":\"rusticas\"}\n"
+				+ "{no es json}\n";
+		ResultadoImportacionDto r = importacionService.importar(cuerpo(ndjson), ImportacionService.Formato.NDJSON, null);
+
+		// La línea que no es JSON también cuenta como procesada
+		assertEquals(3, r.getProcesadas());
+		assertEquals(1, r.getActualizadas());
+		assertEquals(0, r.getInsertadas());
+		assertEquals(2, r.getConError());
+		// El id inexistente es error de su fila: no se da de alta con ese id
+		assertTrue(r.getErrores().stream().anyMatch(e -> e.getFila() == 2 && e.getMensaje().contains("999999")));
+		assertEquals(80000.0, productoRepository.findById(existente.getId()).orElseThrow().getPrecio());
+		assertFalse(productoRepository.existsById(999999L));
+	}
+
+	@Test
+	void csvSinColumnaNombreSeRechazaEntero() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> importacionService.importar(
+				cuerpo("titulo,precio,categoria\nMoldura,100,rusticas\n"), ImportacionService.Formato.CSV, null));
+		assertTrue(e.getMessage().contains("nombre"));
+		assertEquals(0, productoRepository.count());
+	}
+
+	// Los data URI no quedan en la fila de productos: van a producto_imagenes y el producto guarda una URL corta
+	// Comillas sin cerrar a mitad del archivo: lo leído antes queda guardado y el error dice dónde empieza lo roto
+	@Test
+	void csvCortadoGuardaLoAnteriorEInformaLaLinea() throws Exception {
+		StringBuilder csv = new StringBuilder("nombre,precio,stock,categoria\n");
+		for (int i = 0; i < 3; i++) {
+			csv.append("Moldura ").append(i).append(",1000,5,rusticas\n");
+		}
+		csv.append("\"Moldura rota,1000,5,rusticas\nMoldura 4,1000,5,rusticas\n");
+
+		ResultadoImportacionDto r = importacionService.importar(cuerpo(csv.toString()), ImportacionService.Formato.CSV, 2);
+
+		assertEquals(3, r.getInsertadas());
+		assertEquals(3, productoRepository.count());
+		assertTrue(r.getError().contains("línea 5"), r.getError());
+		assertNull(importacionService.importar(cuerpo("nombre\nMoldura 5\n"), ImportacionService.Formato.CSV, null).getError());
+	}
+
+	@Test
+	void dataUriSeGuardaAparte() throws Exception {
+		String png = "data:image/png;base64," + Base64.getEncoder().encodeToString(new byte[8000]);
+		String ndjson = "{\"nombre\":\"Con imagen\",\"imagenUrl\":\"" + png + "\",\"categoria\":\"rusticas\"}\n"
+				+ "{\"nombre\":\"Imagen rota\",\"imagenUrl\":\"data:text/html,<script>\",\"categoria\":\"rusticas\"}\n";
+		ResultadoImportacionDto r = importacionService.importar(cuerpo(ndjson), ImportacionService.Formato.NDJSON, null);
+
+		assertEquals(1, r.getInsertadas());
+		assertEquals(1, r.getConError()); // solo la fila inválida, el lote se guarda
+		Producto p = productoRepository.findAll().get(0);
+		assertTrue(p.getImagenUrl().startsWith("/api/catalog/productos/" + p.getId() + "/imagen?v="));
+		ProductoImagen imagen = productoImagenRepository.findById(p.getId()).orElseThrow();
+		assertEquals("image/png", imagen.getTipo());
+		assertEquals(8000, imagen.getDatos().length);
+		assertEquals(p.getImagenUrl(), catalogo.snapshot().getProducto(p.getId()).getImagenUrl());
+
+		// Volver a una URL común borra la imagen guardada aparte
+		String ndjson2 = "{\"id\":" + p.getId() + ",\"nombre\":\"Con imagen\",\"imagenUrl\":\"/assets/marco.png\",\"categoria\":\"rusticas\"}\n";
+		importacionService.importar(cuerpo(ndjson2), ImportacionService.Formato.NDJSON, null);
+		assertEquals("/assets/marco.png", productoRepository.findById(p.getId()).orElseThrow().getImagenUrl());
+		assertFalse(productoImagenRepository.existsById(p.getId()));
+	}
+}
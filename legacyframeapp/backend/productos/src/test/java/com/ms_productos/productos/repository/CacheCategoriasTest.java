@@ -0,0 +1,115 @@
+package com.ms_productos.productos.repository;
+
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sin transacción de test: la caché de consultas se invalida recién cuando se confirma una escritura
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CacheCategoriasTest {
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Categoria molduras;
+	private Categoria espejos;
+
+	@BeforeEach
+	void cargar() {
+		molduras = categoria("molduras");
+		espejos = categoria("espejos");
+		for (int i = 0; i < 3; i++) producto("Moldura " + i, molduras);
+		for (int i = 0; i < 2; i++) producto("Espejo " + i, espejos);
+		// El CacheManager de JCache es uno por JVM: se vacía lo que dejaron otros contextos de test
+		entityManagerFactory.getCache().evictAll();
+	}
+
+	@AfterEach
+	void limpiar() {
+		productoRepository.deleteAllInBatch();
+		categoriaRepository.deleteAllInBatch();
+	}
+
+	private Categoria categoria(String nombre) {
+		Categoria c = new Categoria();
+		c.setNombre(nombre);
+		return categoriaRepository.save(c);
+	}
+
+	private Producto producto(String nombre, Categoria categoria) {
+		Producto p = new Producto();
+		p.setNombre(nombre);
+		p.setPrecio(1000.0);
+		p.setStock(5);
+		p.setCategoria(categoria);
+		return productoRepository.save(p);
+	}
+
+	private Statistics estadisticas() {
+		Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		stats.clear();
+		return stats;
+	}
+
+	// La caché es local a la JVM: productos (con su stock) no se cachean, cada lectura va a la base
+	@Test
+	void productosPorCategoriaSiempreSeLeenDeLaBase() {
+		Statistics stats = estadisticas();
+
+		assertEquals(3, productoRepository.findByCategoriaId(molduras.getId()).size());
+		long sentencias = stats.getPrepareStatementCount();
+		List<Producto> releidos = productoRepository.findByCategoriaId(molduras.getId());
+
+		assertEquals(3, releidos.size());
+		assertEquals("molduras", releidos.get(0).getCategoria().getNombre());
+		assertEquals(sentencias + 1, stats.getPrepareStatementCount());
+		assertEquals(0, stats.getQueryCachePutCount());
+		assertEquals(0, stats.getQueryCacheHitCount());
+
+		Producto movido = releidos.get(0);
+		movido.setCategoria(espejos);
+		productoRepository.save(movido);
+		assertEquals(2, productoRepository.findByCategoriaId(molduras.getId()).size());
+		assertEquals(3, productoRepository.findByCategoriaId(espejos.getId()).size());
+	}
+
+	@Test
+	void categoriasSalenDeLaCacheDeSegundoNivel() {
+		Statistics stats = estadisticas();
+
+		assertEquals(2, categoriaRepository.findAll().size());
+		long leidasDeBase = stats.getEntityStatistics(Categoria.class.getName()).getLoadCount();
+		assertEquals(2, leidasDeBase);
+		long sentencias = stats.getPrepareStatementCount();
+
+		assertEquals(2, categoriaRepository.findAll().size());
+		// findAll() sin fetch join: la categoría de cada producto ya no es un SELECT extra
+		List<Producto> productos = productoRepository.findAll();
+
+		assertEquals("molduras", productos.get(0).getCategoria().getNombre());
+		assertEquals(sentencias + 1, stats.getPrepareStatementCount(), "Solo el SELECT de productos");
+		assertEquals(leidasDeBase, stats.getEntityStatistics(Categoria.class.getName()).getLoadCount());
+		assertEquals(1, stats.getQueryCacheHitCount());
+		assertEquals(2, stats.getCacheRegionStatistics("categorias").getHitCount());
+	}
+}
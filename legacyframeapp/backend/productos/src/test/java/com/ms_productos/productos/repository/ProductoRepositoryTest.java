@@ -0,0 +1,122 @@
+package com.ms_productos.productos.repository;
+
+import com.ms_productos.productos.catalogo.CamposProducto;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Corre sobre H2 embebido: no necesita el MySQL de Laragon
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ProductoRepositoryTest {
+
+	private static final int CATEGORIAS = 5;
+	private static final int PRODUCTOS_POR_CATEGORIA = 40;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private final List<Categoria> categorias = new ArrayList<>();
+
+	@BeforeEach
+	void cargarCatalogo() {
+		for (int c = 0; c < CATEGORIAS; c++) {
+			Categoria categoria = new Categoria();
+			categoria.setNombre("categoria-" + c);
+			categorias.add(categoriaRepository.save(categoria));
+
+			for (int i = 0; i < PRODUCTOS_POR_CATEGORIA; i++) {
+				Producto p = new Producto();
+				p.setNombre("Moldura " + c + "-" + i);
+				p.setPrecio(1000.0 + i);
+				p.setStock(i);
+				p.setCategoria(categoria);
+				productoRepository.save(p);
+			}
+		}
+		// Vaciamos el contexto para que las categorías no salgan del caché de primer nivel
+		entityManager.flush();
+		entityManager.clear();
+		// Ni del de segundo nivel (compartido con otros contextos de test)
+		entityManagerFactory.getCache().evictAll();
+	}
+
+	private Statistics estadisticas() {
+		Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		stats.clear();
+		return stats;
+	}
+
+	@Test
+	void catalogoCompletoEnUnaSolaConsulta() {
+		Statistics stats = estadisticas();
+
+		List<Producto> productos = productoRepository.findAllConCategoria();
+
+		assertEquals(CATEGORIAS * PRODUCTOS_POR_CATEGORIA, productos.size());
+		assertNotNull(productos.get(0).getCategoria().getNombre());
+		assertEquals(1, stats.getPrepareStatementCount(), "El listado completo debe ser un único SELECT");
+	}
+
+	@Test
+	void productosPorCategoriaEnUnaSolaConsulta() {
+		Statistics stats = estadisticas();
+
+		List<Producto> productos = productoRepository.findByCategoriaId(categorias.get(2).getId());
+
+		assertEquals(PRODUCTOS_POR_CATEGORIA, productos.size());
+		assertEquals("categoria-2", productos.get(0).getCategoria().getNombre());
+		assertEquals(1, stats.getPrepareStatementCount(), "El filtro por categoría debe ser un único SELECT");
+	}
+
+	@Test
+	void findAllSinFetchJoinHaceUnSelectPorCategoria() {
+		// Documenta el N+1 que evitan los métodos anteriores (con la caché de categorías fría)
+		Statistics stats = estadisticas();
+
+		productoRepository.findAll();
+
+		assertEquals(1 + CATEGORIAS, stats.getPrepareStatementCount());
+	}
+
+	@Test
+	void proyeccionDevuelveSoloLosCamposPedidos() {
+		Statistics stats = estadisticas();
+
+		List<Map<String, Object>> filas = productoRepository.findCamposDespuesDe(
+				CamposProducto.parse("nombre,precio,miniatura,categoriaNombre"), 0L, 10);
+
+		assertEquals(10, filas.size());
+		Map<String, Object> primera = filas.get(0);
+		assertEquals(List.of("id", "nombre", "precio", "miniatura", "categoriaNombre"), List.copyOf(primera.keySet()));
+		assertEquals("Moldura 0-0", primera.get("nombre"));
+		assertEquals("categoria-0", primera.get("categoriaNombre"));
+		assertEquals(1, stats.getPrepareStatementCount());
+
+		// Sin campos de categoría ni imagen: solo columnas de productos
+		Map<String, Object> minima = productoRepository.findCamposDespuesDe(CamposProducto.parse("stock"), 0L, 1).get(0);
+		assertEquals(List.of("id", "stock"), List.copyOf(minima.keySet()));
+		assertThrows(IllegalArgumentException.class, () -> CamposProducto.parse("nombre,clave"));
+	}
+}
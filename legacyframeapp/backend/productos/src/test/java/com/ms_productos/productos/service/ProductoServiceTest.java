@@ -0,0 +1,138 @@
+package com.ms_productos.productos.service;
+
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.dto.PaginaDto;
+import com.ms_productos.productos.dto.ProductoResumenDto;
+import com.ms_productos.productos.imagenes.ImagenService;
+import com.ms_productos.productos.imagenes.ImagenesEnLinea;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.CategoriaRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ProductoService.class, CatalogoEnMemoria.class, RegistroCambios.class, ImagenesEnLinea.class})
+class ProductoServiceTest {
+
+	@Autowired
+	private ProductoService productoService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private final List<Long> ids = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		productoRepository.deleteAll();
+		categoriaRepository.deleteAll();
+		Categoria categoria = new Categoria();
+		categoria.setNombre("grecas");
+		categoriaRepository.save(categoria);
+		for (int i = 0; i < 7; i++) {
+			Producto p = new Producto();
+			p.setNombre("Greca " + i);
+			p.setDescripcion("Descripción larga " + i);
+			p.setPrecio(2000.0 + i);
+			p.setStock(i);
+			p.setCategoria(categoria);
+			ids.add(productoRepository.save(p).getId());
+		}
+	}
+
+	// Recorrer con siguienteCursor devuelve cada producto una vez, en orden de id, un SELECT por página
+	@Test
+	void lasPaginasPorCursorRecorrenElCatalogoSinRepetir() {
+		entityManager.flush();
+		Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		stats.clear();
+
+		List<Long> vistos = new ArrayList<>();
+		Long cursor = null;
+		int paginas = 0;
+		do {
+			PaginaDto<ProductoResumenDto> pagina = productoService.listarPagina(cursor, 3);
+			assertEquals(3, pagina.getLimite());
+			assertTrue(pagina.getItems().size() <= 3);
+			pagina.getItems().forEach(r -> vistos.add(r.getId()));
+			cursor = pagina.getSiguienteCursor();
+			paginas++;
+		} while (cursor != null);
+
+		assertEquals(ids, vistos);
+		assertEquals(3, paginas);
+		assertEquals(3, stats.getPrepareStatementCount());
+
+		ProductoResumenDto primero = productoService.listarPagina(null, 1).getItems().get(0);
+		assertEquals("Greca 0", primero.getNombre());
+		assertEquals("grecas", primero.getCategoriaNombre());
+	}
+
+	@Test
+	void elLimiteSeAcotaYUnaPaginaExactaNoTraeCursor() {
+		assertEquals(ProductoService.LIMITE_PAGINA_MAX, productoService.listarPagina(null, 10_000).getLimite());
+		assertEquals(ProductoService.LIMITE_PAGINA_DEFECTO, productoService.listarPagina(null, 0).getLimite());
+		assertEquals(ProductoService.LIMITE_PAGINA_DEFECTO, productoService.listarPagina(null, null).getLimite());
+
+		// Justo 7 de 7: el elemento extra no aparece y no hay siguiente página
+		PaginaDto<ProductoResumenDto> completa = productoService.listarPagina(null, 7);
+		assertEquals(7, completa.getItems().size());
+		assertNull(completa.getSiguienteCursor());
+
+		PaginaDto<ProductoResumenDto> ultima = productoService.listarPagina(ids.get(6), 3);
+		assertTrue(ultima.getItems().isEmpty());
+		assertNull(ultima.getSiguienteCursor());
+	}
+
+	// La imagen subida queda por hash; si después apuntan la URL a otra imagen, el hash se descarta
+	@Test
+	void asignarImagenGuardaElHashHastaQueCambiaLaUrl() {
+		String hash = "ab".repeat(32);
+		Producto p = productoService.asignarImagen(ids.get(0), hash, ImagenService.urlVariante(hash, "detail"));
+		assertEquals(hash, p.getImagenHash());
+		assertEquals("/images/detail/" + hash + ".jpg", p.getImagenUrl());
+		assertNull(productoService.asignarImagen(-1L, hash, "/x.jpg"));
+
+		Producto mismaImagen = copia(p, ImagenService.urlVariante(hash, "list"));
+		assertEquals(hash, productoService.actualizarProducto(p.getId(), mismaImagen).getImagenHash());
+
+		Producto externa = copia(p, "https://cdn.ejemplo.cl/greca.jpg");
+		Producto actualizado = productoService.actualizarProducto(p.getId(), externa);
+		assertNull(actualizado.getImagenHash());
+		assertEquals("https://cdn.ejemplo.cl/greca.jpg", actualizado.getImagenUrl());
+	}
+
+	private static Producto copia(Producto p, String imagenUrl) {
+		Producto c = new Producto();
+		c.setNombre(p.getNombre());
+		c.setPrecio(p.getPrecio());
+		c.setStock(p.getStock());
+		c.setCategoria(p.getCategoria());
+		c.setImagenUrl(imagenUrl);
+		return c;
+	}
+}
@@ -0,0 +1,154 @@
+package com.ms_productos.productos.service;
+
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.dto.LineaStockDto;
+import com.ms_productos.productos.dto.ResultadoStockDto;
+import com.ms_productos.productos.event.ProductoCambiadoEvent;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.CategoriaRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import com.ms_productos.productos.stock.StockCaliente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sin transacción de test: cada reserva confirma (o revierte) la suya, como en producción
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({StockService.class, StockCaliente.class, CatalogoEnMemoria.class, RegistroCambios.class})
+class StockServiceTest {
+
+	@Autowired
+	private StockService stockService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private CatalogoEnMemoria catalogo;
+
+	private Categoria categoria;
+
+	@BeforeEach
+	void setUp() {
+		productoRepository.deleteAll();
+		categoriaRepository.deleteAll();
+		categoria = new Categoria();
+		categoria.setNombre("cuadros");
+		categoriaRepository.save(categoria);
+	}
+
+	private Producto crear(String nombre, int stock) {
+		Producto p = new Producto();
+		p.setNombre(nombre);
+		p.setPrecio(10000.0);
+		p.setStock(stock);
+		p.setCategoria(categoria);
+		return productoRepository.save(p);
+	}
+
+	@Test
+	void muchosHilosSobreUnMismoProductoNoSobrevenden() throws Exception {
+		Producto sku = crear("Marco Dorado Clásico", 100);
+		int hilos = 16;
+		int intentos = 400;
+		ExecutorService pool = Executors.newFixedThreadPool(hilos);
+		CountDownLatch largada = new CountDownLatch(1);
+		AtomicInteger confirmadas = new AtomicInteger();
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < intentos; i++) {
+			tareas.add(pool.submit(() -> {
+				largada.await();
+				if (stockService.reservar(List.of(new LineaStockDto(sku.getId(), 1))).isAplicada()) {
+					confirmadas.incrementAndGet();
+				}
+				return null;
+			}));
+		}
+		largada.countDown();
+		for (Future<?> t : tareas) {
+			t.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+
+		assertEquals(100, confirmadas.get());
+		assertEquals(0, productoRepository.findById(sku.getId()).orElseThrow().getStock());
+		assertEquals(0, catalogo.snapshot().getProducto(sku.getId()).getStock());
+	}
+
+	@Test
+	void reservasYLiberacionesConcurrentesDejanEnLaFotoElStockDeLaBase() throws Exception {
+		Producto sku = crear("Marco Nogal", 50);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			boolean reserva = i % 2 == 0;
+			int cantidad = 1 + i % 3;
+			tareas.add(pool.submit(() -> {
+				largada.await();
+				List<LineaStockDto> linea = List.of(new LineaStockDto(sku.getId(), cantidad));
+				if (reserva) stockService.reservar(linea);
+				else stockService.liberar(linea);
+				return null;
+			}));
+		}
+		largada.countDown();
+		for (Future<?> t : tareas) {
+			t.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+
+		// Los eventos posteriores al commit llegan en cualquier orden: la foto debe quedar con el último
+		int enBase = productoRepository.findById(sku.getId()).orElseThrow().getStock();
+		assertEquals(enBase, catalogo.snapshot().getProducto(sku.getId()).getStock());
+
+		// Un estado con un seq ya superado no pisa la foto
+		Producto viejo = productoRepository.findById(sku.getId()).orElseThrow();
+		viejo.setStock(enBase + 1000);
+		catalogo.onProductoCambiado(ProductoCambiadoEvent.guardado(viejo, 1));
+		assertEquals(enBase, catalogo.snapshot().getProducto(sku.getId()).getStock());
+	}
+
+	@Test
+	void variasLineasSeAplicanTodasONinguna() {
+		Producto a = crear("Moldura A", 5);
+		Producto b = crear("Moldura B", 1);
+
+		ResultadoStockDto rechazada = stockService.reservar(List.of(new LineaStockDto(a.getId(), 2), new LineaStockDto(b.getId(), 2)));
+		assertFalse(rechazada.isAplicada());
+		assertEquals(1, rechazada.getFaltantes().size());
+		assertEquals(b.getId(), rechazada.getFaltantes().get(0).getProductoId());
+		assertEquals(1, rechazada.getFaltantes().get(0).getDisponible());
+		assertEquals(5, productoRepository.findById(a.getId()).orElseThrow().getStock());
+
+		// Líneas repetidas del mismo producto se suman
+		ResultadoStockDto ok = stockService.reservar(List.of(new LineaStockDto(a.getId(), 2), new LineaStockDto(a.getId(), 1), new LineaStockDto(b.getId(), 1)));
+		assertTrue(ok.isAplicada());
+		assertEquals(2, ok.getStock().get(a.getId()));
+		assertEquals(0, ok.getStock().get(b.getId()));
+
+		assertTrue(stockService.liberar(List.of(new LineaStockDto(a.getId(), 3))).isAplicada());
+		assertEquals(5, productoRepository.findById(a.getId()).orElseThrow().getStock());
+	}
+}
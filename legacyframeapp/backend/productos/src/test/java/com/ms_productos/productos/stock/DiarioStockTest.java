@@ -0,0 +1,53 @@
+package com.ms_productos.productos.stock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiarioStockTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void rotarDevuelveDeltasNetosYLeerRecuperaTodo() throws Exception {
+		DiarioStock diario = new DiarioStock(dir, 40, true);
+		diario.registrar(7, -2);
+		diario.registrar(7, -1);
+		diario.registrar(9, 5);
+
+		DiarioStock.Rotacion r = diario.rotar();
+		assertEquals(43, r.hastaSeq());
+		assertEquals(-3L, r.deltas().get(7L));
+		assertEquals(5L, r.deltas().get(9L));
+		assertNull(diario.rotar());
+
+		diario.registrar(7, -4);
+		diario.close();
+
+		List<DiarioStock.Registro> registros = DiarioStock.leer(dir);
+		assertEquals(4, registros.size());
+		assertEquals(41, registros.get(0).seq());
+		assertEquals(new DiarioStock.Registro(44, 7, -4), registros.get(3));
+	}
+
+	@Test
+	void ignoraUnaUltimaLineaCortada() throws Exception {
+		DiarioStock diario = new DiarioStock(dir, 0, true);
+		diario.registrar(3, -1);
+		diario.close();
+		try (var archivos = Files.list(dir)) {
+			Path archivo = archivos.findFirst().orElseThrow();
+			Files.write(archivo, "2;3".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+		}
+
+		assertEquals(List.of(new DiarioStock.Registro(1, 3, -1)), DiarioStock.leer(dir));
+	}
+}
@@ -0,0 +1,163 @@
+package com.ms_productos.productos.stock;
+
+import com.ms_productos.productos.cambios.RegistroCambios;
+import com.ms_productos.productos.catalogo.CatalogoEnMemoria;
+import com.ms_productos.productos.dto.LineaStockDto;
+import com.ms_productos.productos.dto.ResultadoStockDto;
+import com.ms_productos.productos.model.Categoria;
+import com.ms_productos.productos.model.Producto;
+import com.ms_productos.productos.repository.CategoriaRepository;
+import com.ms_productos.productos.repository.MarcaDiarioStockRepository;
+import com.ms_productos.productos.repository.ProductoRepository;
+import com.ms_productos.productos.service.StockService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Base nueva por contexto: el primer producto creado es el id 1, el marcado como caliente
+@DataJpaTest(properties = {
+		"catalogo.stock.calientes=1",
+		"catalogo.stock.diario.directorio=target/stock-diario-test",
+		"catalogo.stock.volcado-ms=3600000",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({StockService.class, StockCaliente.class, CatalogoEnMemoria.class, RegistroCambios.class})
+class StockCalienteTest {
+
+	private static final Path DIARIO = Path.of("target/stock-diario-test");
+
+	@Autowired
+	private StockService stockService;
+
+	@Autowired
+	private StockCaliente stockCaliente;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private MarcaDiarioStockRepository marcaRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void reservasEnMemoriaSeVuelcanAMySql() throws Exception {
+		Categoria cuadros = new Categoria();
+		cuadros.setNombre("cuadros");
+		categoriaRepository.save(cuadros);
+		Producto sku = new Producto();
+		sku.setNombre("Marco Dorado Clásico");
+		sku.setPrecio(32500.0);
+		sku.setStock(100);
+		sku.setCategoria(cuadros);
+		sku = productoRepository.save(sku);
+		assertEquals(1L, sku.getId());
+		stockCaliente.iniciar();
+		assertTrue(stockCaliente.esCaliente(1L));
+
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		CountDownLatch largada = new CountDownLatch(1);
+		AtomicInteger confirmadas = new AtomicInteger();
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			tareas.add(pool.submit(() -> {
+				largada.await();
+				if (stockService.reservar(List.of(new LineaStockDto(1L, 1))).isAplicada()) {
+					confirmadas.incrementAndGet();
+				}
+				return null;
+			}));
+		}
+		largada.countDown();
+		for (Future<?> t : tareas) {
+			t.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+
+		assertEquals(100, confirmadas.get());
+		assertEquals(0, stockCaliente.stock(1L));
+		// Write-behind: la fila todavía no se tocó
+		assertEquals(100, productoRepository.findById(1L).orElseThrow().getStock());
+
+		// Solo sku calientes: responde desde los contadores, sin transacción ni SQL
+		Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		stats.clear();
+		ResultadoStockDto agotada = stockService.reservar(List.of(new LineaStockDto(1L, 1)));
+		assertFalse(agotada.isAplicada());
+		assertEquals(0, agotada.getFaltantes().get(0).getDisponible());
+		ResultadoStockDto liberada = stockService.liberar(List.of(new LineaStockDto(1L, 3)));
+		assertTrue(liberada.isAplicada());
+		assertEquals(3, liberada.getStock().get(1L));
+		assertEquals(0, stats.getPrepareStatementCount());
+		assertEquals(0, stats.getTransactionCount());
+		stockCaliente.volcar();
+		assertEquals(3, productoRepository.findById(1L).orElseThrow().getStock());
+		// 100 descuentos + 1 reposición registrados en el diario y ya aplicados
+		assertEquals(101, marcaRepository.findById(1L).orElseThrow().getUltimoSeq());
+
+		// Mientras la transacción no confirma, el descuento está en el contador pero no en el diario:
+		// una caída en este punto no tiene nada que reaplicar
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			assertTrue(stockCaliente.descontar(1L, 2));
+			assertEquals(1, stockCaliente.stock(1L));
+			assertDiarioVacio();
+			status.setRollbackOnly();
+		});
+		assertEquals(3, stockCaliente.stock(1L));
+		assertDiarioVacio();
+
+		// Una reserva que falla por otra línea se revierte entera sin dejar rastro en el diario
+		Producto agotado = new Producto();
+		agotado.setNombre("Marco Nogal");
+		agotado.setPrecio(18000.0);
+		agotado.setStock(0);
+		agotado.setCategoria(cuadros);
+		agotado = productoRepository.save(agotado);
+		assertFalse(stockService.reservar(List.of(new LineaStockDto(1L, 2), new LineaStockDto(agotado.getId(), 1))).isAplicada());
+		assertEquals(3, stockCaliente.stock(1L));
+		assertDiarioVacio();
+
+		stockCaliente.volcar();
+		assertEquals(3, productoRepository.findById(1L).orElseThrow().getStock());
+		assertEquals(101, marcaRepository.findById(1L).orElseThrow().getUltimoSeq());
+		stockCaliente.cerrar();
+	}
+
+	private static void assertDiarioVacio() {
+		try {
+			assertEquals(List.of(), DiarioStock.leer(DIARIO));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}